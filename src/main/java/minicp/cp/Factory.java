@@ -21,6 +21,7 @@ import minicp.search.DFSearch;
 import minicp.search.Objective;
 import minicp.state.Copier;
 import minicp.state.Trailer;
+import minicp.util.Automaton;
 import minicp.util.exception.InconsistencyException;
 import minicp.util.Procedure;
 import minicp.util.exception.IntOverFlowException;
@@ -503,6 +504,24 @@ public final class Factory {
         return isLargerOrEqual(x, c + 1);
     }
 
+    /**
+     * Returns a boolean variable representing
+     * whether one variable is less or equal to another one plus a constant.
+     * This relation is enforced by the {@link IsLessOrEqualVar} constraint
+     * posted by calling this method.
+     *
+     * @param x the left hand side variable
+     * @param y the right hand side variable
+     * @param c the constant added to y
+     * @return a boolean variable that is true if and only if
+     *         x takes a value less or equal to {@code y + c}
+     */
+    public static BoolVar isLessOrEqual(IntVar x, IntVar y, final int c) {
+        BoolVar b = makeBoolVar(x.getSolver());
+        x.getSolver().post(new IsLessOrEqualVar(b, x, y, c));
+        return b;
+    }
+
     /**
      * Returns a constraint imposing that the
      * a first variable is less or equal to a second one.
@@ -533,6 +552,10 @@ public final class Factory {
      * specified by the given index variable
      * This relation is enforced by the {@link Element1D} constraint
      * posted by calling this method.
+     * It is bound consistent on the returned variable: the indices whose value
+     * falls in a hole of its domain are not removed from y,
+     * post an {@link Element1DDomainConsistent}
+     * for this stronger filtering.
      *
      * @param array the array of values
      * @param y the variable
@@ -545,6 +568,30 @@ public final class Factory {
         return z;
     }
 
+    /**
+     * Returns a variable representing
+     * the value of the variable in an array at the position
+     * specified by the given index variable
+     * This relation is enforced by the domain consistent {@link Element1DVar}
+     * constraint posted by calling this method.
+     *
+     * @param array the array of variables
+     * @param y the variable
+     * @return a variable equal to {@code array[y]}
+     */
+    public static IntVar element(IntVar[] array, IntVar y) {
+        Solver cp = y.getSolver();
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (IntVar x : array) {
+            min = Math.min(min, x.min());
+            max = Math.max(max, x.max());
+        }
+        IntVar z = makeIntVar(cp, min, max);
+        cp.post(new Element1DVar(array, y, z));
+        return z;
+    }
+
     /**
      * Returns a variable representing
      * the value in a matrix at the position
@@ -571,6 +618,25 @@ public final class Factory {
         return z;
     }
 
+    /**
+     * Returns a variable representing
+     * the value in a matrix at the position
+     * specified by the two given row and column index variables.
+     * The cells of the matrix are sorted once and shared by all the
+     * {@link Element2D} constraints given the same cells,
+     * which pays off when many constraints index the same large matrix.
+     *
+     * @param cells the sorted cells of the n x m matrix, see {@link Element2D.Cells}
+     * @param x the row variable with domain included in 0..n-1
+     * @param y the column variable with domain included in 0..m-1
+     * @return a variable equal to {@code matrix[x][y]}
+     */
+    public static IntVar element(Element2D.Cells cells, IntVar x, IntVar y) {
+        IntVar z = makeIntVar(x.getSolver(), cells.min(), cells.max());
+        x.getSolver().post(new Element2D(cells, x, y, z));
+        return z;
+    }
+
     /**
      * Returns a variable representing
      * the sum of a given set of variables.
@@ -631,6 +697,92 @@ public final class Factory {
         return new Sum(x, y);
     }
 
+    /**
+     * Returns a variable representing
+     * the weighted sum of a given set of variables.
+     * This relation is enforced by the {@link LinearEqual} constraint
+     * posted by calling this method.
+     *
+     * @param a the n coefficients
+     * @param x the n variables
+     * @return a variable equal to {@code a[0]*x[0]+a[1]*x[1]+...+a[n-1]*x[n-1]}
+     */
+    public static IntVar scalarProduct(int[] a, IntVar... x) {
+        long sumMin = 0;
+        long sumMax = 0;
+        for (int i = 0; i < x.length; i++) {
+            long v1 = (long) a[i] * x[i].min();
+            long v2 = (long) a[i] * x[i].max();
+            sumMin += Math.min(v1, v2);
+            sumMax += Math.max(v1, v2);
+        }
+        if (sumMin < (long) Integer.MIN_VALUE || sumMax > (long) Integer.MAX_VALUE) {
+            throw new IntOverFlowException("domains are too large for scalar product constraint and would exceed Integer bounds");
+        }
+        Solver cp = x[0].getSolver();
+        IntVar s = makeIntVar(cp, (int) sumMin, (int) sumMax);
+        cp.post(scalarProduct(a, x, s));
+        return s;
+    }
+
+    /**
+     * Returns a scalar product constraint.
+     *
+     * @param a the n coefficients
+     * @param x the n variables
+     * @param y a variable
+     * @return a constraint so that {@code y = a[0]*x[0]+a[1]*x[1]+...+a[n-1]*x[n-1]}
+     */
+    public static Constraint scalarProduct(int[] a, IntVar[] x, IntVar y) {
+        int[] coefs = Arrays.copyOf(a, a.length + 1);
+        coefs[a.length] = -1;
+        IntVar[] vars = Arrays.copyOf(x, x.length + 1, IntVar[].class);
+        vars[x.length] = y;
+        return new LinearEqual(coefs, vars, 0);
+    }
+
+    /**
+     * Returns a linear equality constraint.
+     *
+     * @param a the n coefficients
+     * @param x the n variables
+     * @param c a constant
+     * @return a constraint so that {@code a[0]*x[0]+a[1]*x[1]+...+a[n-1]*x[n-1] = c}
+     */
+    public static Constraint linearEq(int[] a, IntVar[] x, int c) {
+        return new LinearEqual(a, x, c);
+    }
+
+    /**
+     * Returns a linear inequality constraint.
+     *
+     * @param a the n coefficients
+     * @param x the n variables
+     * @param c a constant
+     * @return a constraint so that {@code a[0]*x[0]+a[1]*x[1]+...+a[n-1]*x[n-1] <= c}
+     */
+    public static Constraint linearLeq(int[] a, IntVar[] x, int c) {
+        return new LinearLessOrEqual(a, x, c);
+    }
+
+    /**
+     * Returns a boolean variable representing
+     * whether a weighted sum is less or equal to a constant.
+     * This relation is enforced by the {@link IsLinearLessOrEqual} constraint
+     * posted by calling this method.
+     *
+     * @param a the n coefficients
+     * @param x the n variables
+     * @param c a constant
+     * @return a boolean variable that is true if and only if
+     *         {@code a[0]*x[0]+a[1]*x[1]+...+a[n-1]*x[n-1] <= c}
+     */
+    public static BoolVar isLinearLeq(int[] a, IntVar[] x, int c) {
+        BoolVar b = makeBoolVar(x[0].getSolver());
+        x[0].getSolver().post(new IsLinearLessOrEqual(b, a, x, c));
+        return b;
+    }
+
     /**
      * Returns a binary decomposition of the allDifferent constraint.
      *
@@ -652,6 +804,118 @@ public final class Factory {
         return new AllDifferentDC(x);
     }
 
+    /**
+     * Returns an allDifferent constraint that enforces
+     * bound consistency.
+     * It only filters the bounds of the variables. The bounds are sorted with an insertion
+     * sort kept from one call to the next: {@code O(n^2)} in the worst case, such as
+     * the first call, but close to linear when the order of the bounds changes little.
+     * It is as strong as {@link #allDifferentDC(IntVar[])} as long as the domains
+     * have no holes, for instance when the search only changes the bounds.
+     *
+     * @param x an array of variables
+     * @return a constraint so that {@code x[i] != x[j] for all i < j}
+     */
+    public static Constraint allDifferentBC(IntVar[] x) {
+        return new AllDifferentBC(x);
+    }
+
+    /**
+     * Returns a global cardinality constraint that enforces
+     * domain consistency.
+     *
+     * @param x an array of variables
+     * @param values the distinct constrained values
+     * @param low the minimum number of occurrences of each value
+     * @param up the maximum number of occurrences of each value
+     * @return a constraint so that {@code low[k] <= |{i | x[i] == values[k]}| <= up[k]} for each k
+     */
+    public static Constraint globalCardinality(IntVar[] x, int[] values, int[] low, int[] up) {
+        return new GlobalCardinality(x, values, low, up);
+    }
+
+    /**
+     * Returns a global cardinality constraint that only filters the bounds
+     * of the variables.
+     * It is bound consistent for the maximum numbers of occurrences, the minimum ones
+     * are only checked by counting the variables whose bounds contain each value.
+     *
+     * @param x an array of variables
+     * @param values the distinct constrained values
+     * @param low the minimum number of occurrences of each value
+     * @param up the maximum number of occurrences of each value
+     * @return a constraint so that {@code low[k] <= |{i | x[i] == values[k]}| <= up[k]} for each k
+     */
+    public static Constraint globalCardinalityBC(IntVar[] x, int[] values, int[] low, int[] up) {
+        return new GlobalCardinalityBC(x, values, low, up);
+    }
+
+    /**
+     * Returns a bin-packing constraint.
+     *
+     * @param x the bin of each item, between 0 and {@code l.length - 1}
+     * @param w the weight of each item, non negative
+     * @param l the load of each bin
+     * @return a constraint so that {@code l[j] = sum_{i | x[i] == j} w[i]} for each bin j
+     */
+    public static Constraint binPacking(IntVar[] x, int[] w, IntVar[] l) {
+        return new BinPacking(x, w, l);
+    }
+
+    /**
+     * Returns an inverse constraint.
+     *
+     * @param f an array of variables with domains in {@code 0..f.length-1}
+     * @param g an array of variables with domains in {@code 0..f.length-1}
+     * @return a constraint so that {@code f[i] == j} if and only if {@code g[j] == i}
+     */
+    public static Constraint inverse(IntVar[] f, IntVar[] g) {
+        return new Inverse(f, g);
+    }
+
+    /**
+     * Returns a stable marriage constraint.
+     *
+     * @param x the woman of each man
+     * @param y the man of each woman
+     * @param rankX {@code rankX[m][w]} is the rank of woman w for man m,
+     *              the lower the rank, the higher the preference
+     * @param rankY {@code rankY[w][m]} is the rank of man m for woman w
+     * @return a constraint so that {@code x} and {@code y} are inverse of each other
+     *         and no man and woman both prefer each other over their partners
+     */
+    public static Constraint stableMarriage(IntVar[] x, IntVar[] y, int[][] rankX, int[][] rankY) {
+        return new StableMarriage(x, y, rankX, rankY);
+    }
+
+    /**
+     * Returns a lane separation constraint.
+     *
+     * @param lane the lane of each plane
+     * @param time the landing time of each plane
+     * @param type the type of each plane
+     * @param delay {@code delay[a][b]} is the minimum delay between a plane of type a
+     *              and a plane of type b landing after it on the same lane
+     * @return a constraint so that two planes i and j landing on the same lane satisfy
+     *         {@code time[i] + delay[type[i]][type[j]] <= time[j]} or
+     *         {@code time[j] + delay[type[j]][type[i]] <= time[i]}
+     */
+    public static Constraint laneSeparation(IntVar[] lane, IntVar[] time, int[] type, int[][] delay) {
+        return new LaneSeparation(lane, time, type, delay);
+    }
+
+    /**
+     * Returns a regular constraint.
+     *
+     * @param x an array of variables
+     * @param automaton a deterministic automaton
+     * @return a constraint so that the sequence {@code x[0],x[1],...,x[n-1]}
+     *         is a word accepted by the automaton
+     */
+    public static Constraint regular(IntVar[] x, Automaton automaton) {
+        return new Regular(x, automaton);
+    }
+
     public static Constraint absolute(IntVar x, IntVar y) {
         return new minicp.engine.constraints.Absolute(x, y);
     }
@@ -17,23 +17,39 @@ package minicp.engine.constraints;
 
 import minicp.engine.core.AbstractConstraint;
 import minicp.engine.core.IntVar;
-import minicp.util.exception.NotImplementedException;
-import minicp.engine.core.Solver;
-import minicp.engine.core.Constraint;
+import minicp.state.StateManager;
 
 /**
- * Absolute value constraint
+ * Absolute value constraint {@code y = |x|}
+ * <p>
+ * The bounds of each variable are reduced to values that have a support
+ * in the domain of the other one, by moving them inwards.
+ * In the domain consistent mode, the holes are propagated as well:
+ * each variable has its own propagator that only processes the values
+ * removed from its domain since its last call, found with {@link SeenValues}, so that a propagation
+ * costs the number of removed values rather than the size of the domains.
+ * The bounds only mode does not keep any copy of the domains and
+ * is meant for variables with large domains such as times.
  */
 public class Absolute extends AbstractConstraint {
 
     private final IntVar x;
     private final IntVar y;
+    private final boolean domainConsistent;
 
-    private int[] bufX = new int[0];
-    private int[] bufY = new int[0];
+    // values of the domains at the last call of their propagator
+    private SeenValues seenX;
+    private SeenValues seenY;
+    private int[] removed;
 
-    private static int[] ensureCapacity(int[] a, int needed) {
-        return (a.length >= needed) ? a : new int[needed];
+    /**
+     * Creates the domain consistent absolute value constraint {@code y = |x|}.
+     *
+     * @param x the input variable such that its absolut value is equal to y
+     * @param y the variable that represents the absolute value of x
+     */
+    public Absolute(IntVar x, IntVar y) {
+        this(x, y, true);
     }
 
     /**
@@ -41,57 +57,120 @@ public class Absolute extends AbstractConstraint {
      *
      * @param x the input variable such that its absolut value is equal to y
      * @param y the variable that represents the absolute value of x
+     * @param domainConsistent true to also propagate the holes in the domains,
+     *                         false to only reason on the bounds
      */
-    public Absolute(IntVar x, IntVar y) {
+    public Absolute(IntVar x, IntVar y, boolean domainConsistent) {
         super(x.getSolver());
         this.x = x;
         this.y = y;
+        this.domainConsistent = domainConsistent;
     }
 
+    @Override
     public void post() {
-        // TODO
-        x.propagateOnDomainChange(this);
-        y.propagateOnDomainChange(this);
-        propagate();
+        y.removeBelow(0);
+        filterBounds();
+        if (!domainConsistent) {
+            x.propagateOnBoundChange(this);
+            y.propagateOnBoundChange(this);
+            return;
+        }
+        removed = new int[Math.max(x.size(), y.size())];
+        int s = y.fillArray(removed);
+        for (int k = 0; k < s; k++)
+            if (!supported(removed[k]))
+                y.remove(removed[k]);
+        s = x.fillArray(removed);
+        for (int k = 0; k < s; k++)
+            if (!y.contains(Math.abs(removed[k])))
+                x.remove(removed[k]);
+        StateManager sm = getSolver().getStateManager();
+        seenX = new SeenValues(sm, x);
+        seenY = new SeenValues(sm, y);
+        x.whenDomainChange(this::propagateX);
+        y.whenDomainChange(this::propagateY);
     }
 
     @Override
     public void propagate() {
-        // y = |x|
-        // TODO
-        bufX = ensureCapacity(bufX, x.size());
-        bufY = ensureCapacity(bufY, y.size());
-
-        int xSize = x.fillArray(bufX);
-        int ySize = y.fillArray(bufY);
+        if (domainConsistent) {
+            propagateX();
+            propagateY();
+        } else {
+            filterBounds();
+            if (x.isFixed())
+                setActive(false);
+        }
+    }
 
-        // 1. prune values of y that have no support in x or are negative
-        for (int i = 0; i < ySize; i++) {
-            int v = bufY[i];
-            if (v < 0) {
-                y.remove(v);
-            } else {
-                boolean supported = false;
-                for (int j = 0; j < xSize && !supported; j++)
-                    supported = Math.abs(bufX[j]) == v;
-                if (!supported) y.remove(v);
-            }
+    /**
+     * Removes from y the absolute values of the values removed from x
+     * whose opposite is not in x either.
+     */
+    private void propagateX() {
+        int r = seenX.collectRemoved(x, removed);
+        for (int k = 0; k < r; k++) {
+            int v = removed[k];
+            if (!x.contains(-v))
+                y.remove(Math.abs(v));
         }
+        filterBounds();
+    }
 
+    /**
+     * Removes from x the values removed from y and their opposite.
+     */
+    private void propagateY() {
+        int r = seenY.collectRemoved(y, removed);
+        for (int k = 0; k < r; k++) {
+            x.remove(removed[k]);
+            x.remove(-removed[k]);
+        }
+        filterBounds();
+    }
 
-        y.fillArray(bufY); // refresh y domain
+    private boolean supported(int v) {
+        return x.contains(v) || x.contains(-v);
+    }
 
-        // 2. prune values of x that have no support in y
-        for (int j = 0; j < xSize; j++) {
-            int xv = bufX[j];
-            if (!y.contains(Math.abs(xv))) x.remove(xv);
+    /**
+     * Moves the bounds of y and x inwards until they have a support.
+     */
+    private void filterBounds() {
+        // y from the bounds of x
+        if (x.min() >= 0) {
+            y.removeBelow(x.min());
+            y.removeAbove(x.max());
+        } else if (x.max() <= 0) {
+            y.removeBelow(-x.max());
+            y.removeAbove(-x.min());
+        } else {
+            y.removeAbove(Math.max(-x.min(), x.max()));
         }
-        setActive(!x.isFixed() || !y.isFixed());
-
-        if (x.isFixed() && y.isFixed())
-            setActive(false);
+        // x from the bounds of y
+        x.removeBelow(-y.max());
+        x.removeAbove(y.max());
+        if (x.min() > -y.min())
+            x.removeBelow(y.min());
+        if (x.max() < y.min())
+            x.removeAbove(-y.min());
+        // first and last supported values
+        int lo = y.min();
+        int hi = y.max();
+        while (lo <= hi && !(y.contains(lo) && supported(lo)))
+            lo++;
+        y.removeBelow(lo);
+        while (!(y.contains(hi) && supported(hi)))
+            hi--;
+        y.removeAbove(hi);
+        lo = x.min();
+        hi = x.max();
+        while (lo <= hi && !(x.contains(lo) && y.contains(Math.abs(lo))))
+            lo++;
+        x.removeBelow(lo);
+        while (!(x.contains(hi) && y.contains(Math.abs(hi))))
+            hi--;
+        x.removeAbove(hi);
     }
 }
-
-
-
@@ -0,0 +1,153 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.constraints.BoundsUtil.SortedBounds;
+import minicp.engine.core.AbstractConstraint;
+import minicp.engine.core.IntVar;
+import minicp.util.exception.InconsistencyException;
+
+import static minicp.engine.constraints.BoundsUtil.pathMax;
+import static minicp.engine.constraints.BoundsUtil.pathMin;
+import static minicp.engine.constraints.BoundsUtil.pathSet;
+
+/**
+ * Bound Consistent AllDifferent Constraint
+ *
+ * Algorithm described in
+ * "A fast and simple algorithm for bounds consistency of the alldifferent constraint"
+ * A. López-Ortiz, C.-G. Quimper, J. Tromp, P. van Beek, IJCAI-03
+ * <p>
+ * The bounds of the variables are sorted and the Hall intervals are detected
+ * with a union-find structure (path compression over arrays of ranks).
+ * Only the bounds are filtered: the filtering is the same as {@link AllDifferentDC}
+ * if the domains are intervals, but much cheaper.
+ */
+public class AllDifferentBC extends AbstractConstraint {
+
+    private final IntVar[] x;
+    private final int n;
+
+    // variables sorted by their bounds, kept from one call to the next
+    private final SortedBounds sorted;
+    private final int[] minSorted;
+    private final int[] maxSorted;
+    private final int[] minRank;
+    private final int[] maxRank;
+    private final int[] bounds;
+
+    // union-find trees over the ranks of bounds:
+    // t for the critical capacity, h for the Hall intervals, d for the capacities
+    private final int[] t;
+    private final int[] d;
+    private final int[] h;
+
+    public AllDifferentBC(IntVar... x) {
+        super(x[0].getSolver());
+        this.x = x;
+        this.n = x.length;
+        sorted = new SortedBounds(n, v -> v);
+        minSorted = sorted.minSorted;
+        maxSorted = sorted.maxSorted;
+        minRank = sorted.minRank;
+        maxRank = sorted.maxRank;
+        bounds = sorted.bounds;
+        t = new int[2 * n + 2];
+        d = new int[2 * n + 2];
+        h = new int[2 * n + 2];
+    }
+
+    @Override
+    public void post() {
+        for (IntVar xi : x) {
+            xi.propagateOnBoundChange(this);
+        }
+        propagate();
+    }
+
+    @Override
+    public void propagate() {
+        sorted.sort(x);
+        filterLower();
+        filterUpper();
+    }
+
+    private void filterLower() {
+        int nb = sorted.nb;
+        for (int i = 1; i <= nb + 1; i++) {
+            t[i] = h[i] = i - 1;
+            d[i] = bounds[i] - bounds[i - 1];
+        }
+        for (int i = 0; i < n; i++) {
+            int v = maxSorted[i];
+            int x0 = minRank[v];
+            int y = maxRank[v];
+            int z = pathMax(t, x0 + 1);
+            int j = t[z];
+            if (--d[z] == 0) {
+                t[z] = z + 1;
+                z = pathMax(t, t[z]);
+                t[z] = j;
+            }
+            pathSet(t, x0 + 1, z, z);
+            if (d[z] < bounds[z] - bounds[y]) {
+                throw InconsistencyException.INCONSISTENCY;
+            }
+            if (h[x0] > x0) {
+                int w = pathMax(h, h[x0]);
+                x[v].removeBelow(bounds[w]);
+                pathSet(h, x0, w, w);
+            }
+            if (d[z] == bounds[z] - bounds[y]) {
+                pathSet(h, h[y], j - 1, y); // mark the Hall interval
+                h[y] = j - 1;
+            }
+        }
+    }
+
+    private void filterUpper() {
+        int nb = sorted.nb;
+        for (int i = 0; i <= nb; i++) {
+            t[i] = h[i] = i + 1;
+            d[i] = bounds[i + 1] - bounds[i];
+        }
+        for (int i = n - 1; i >= 0; i--) {
+            int v = minSorted[i];
+            int x0 = maxRank[v];
+            int y = minRank[v];
+            int z = pathMin(t, x0 - 1);
+            int j = t[z];
+            if (--d[z] == 0) {
+                t[z] = z - 1;
+                z = pathMin(t, t[z]);
+                t[z] = j;
+            }
+            pathSet(t, x0 - 1, z, z);
+            if (d[z] < bounds[y] - bounds[z]) {
+                throw InconsistencyException.INCONSISTENCY;
+            }
+            if (h[x0] < x0) {
+                int w = pathMin(h, h[x0]);
+                x[v].removeAbove(bounds[w] - 1);
+                pathSet(h, x0, w, w);
+            }
+            if (d[z] == bounds[y] - bounds[z]) {
+                pathSet(h, h[y], j + 1, y); // mark the Hall interval
+                h[y] = j + 1;
+            }
+        }
+    }
+}
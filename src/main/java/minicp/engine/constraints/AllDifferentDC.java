@@ -20,30 +20,62 @@ import minicp.engine.core.IntVar;
 import minicp.util.GraphUtil;
 import minicp.util.GraphUtil.Graph;
 import minicp.util.exception.InconsistencyException;
-import minicp.util.exception.NotImplementedException;
 
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.List;
 
 /**
  * Arc Consistent AllDifferent Constraint
  *
  * Algorithm described in
  * "A filtering algorithm for constraints of difference in CSPs" J-C. Régin, AAAI-94
+ * <p>
+ * The variable-value graph is a {@link VarValueGraph} stored in flat arrays
+ * allocated once at construction,
+ * as well as the residual graph given to {@link GraphUtil#stronglyConnectedComponents(int, int[], int[], int[], GraphUtil.Buffers)}.
+ * The maximum matching is kept from one call to the next
+ * and only the variables whose matched value was removed are matched again.
  */
 public class AllDifferentDC extends AbstractConstraint {
 
-    private IntVar[] x;
-
-    private final MaximumMatching maximumMatching;
+    private static final int NONE = -1;
 
+    private final IntVar[] x;
     private final int nVar;
-    private int nVal;
-
-    // residual graph
-    private ArrayList<Integer>[] in;
-    private ArrayList<Integer>[] out;
-    private int nNodes;
+    private final int nVal;
+    private final int minVal;
+
+    // node identifiers: variable i is i, value v is nVar + v - minVal, the sink is nNodes - 1
+    private final int nNodes;
+    private final int sink;
+
+    // variable-value graph
+    private final VarValueGraph graph;
+    private final int[] adj;
+    private final int[] adjStart;
+
+    // matching: value offset matched to each variable, variable matched to each value offset
+    private final int[] match;
+    private final int[] valMatch;
+
+    // augmenting path search
+    private final int[] varSeen;
+    private final int[] valSeen;
+    private int magic;
+    private final int[] pathVar;
+    private final int[] pathVal;
+    private final int[] cursor;
+
+    // residual graph in compressed sparse row form
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] scc;
+    private final GraphUtil.Buffers buffers;
+
+    /**
+     * View of the residual graph, only meant for debugging and testing
+     * as the iterators are built on demand.
+     */
     protected Graph g = new Graph() {
         @Override
         public int n() {
@@ -52,27 +84,58 @@ public class AllDifferentDC extends AbstractConstraint {
 
         @Override
         public Iterable<Integer> in(int idx) {
-            return in[idx];
+            List<Integer> in = new ArrayList<>();
+            for (int u = 0; u < nNodes; u++)
+                for (int k = offsets[u]; k < offsets[u + 1]; k++)
+                    if (targets[k] == idx) in.add(u);
+            return in;
         }
 
         @Override
         public Iterable<Integer> out(int idx) {
-            return out[idx];
+            List<Integer> out = new ArrayList<>();
+            for (int k = offsets[idx]; k < offsets[idx + 1]; k++)
+                out.add(targets[k]);
+            return out;
         }
     };
 
-    private int[] match;
-    private boolean[] matched;
-
-    private int minVal;
-    private int maxVal;
-
     public AllDifferentDC(IntVar... x) {
         super(x[0].getSolver());
         this.x = x;
-        maximumMatching = new MaximumMatching(x);
-        match = new int[x.length];
         this.nVar = x.length;
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (IntVar xi : x) {
+            min = Math.min(min, xi.min());
+            max = Math.max(max, xi.max());
+        }
+        minVal = min;
+        nVal = max - min + 1;
+        nNodes = nVar + nVal + 1;
+        sink = nNodes - 1;
+
+        graph = new VarValueGraph(x, minVal, nVal, false);
+        adj = graph.adj;
+        adjStart = graph.adjStart;
+
+        match = new int[nVar];
+        valMatch = new int[nVal];
+        for (int i = 0; i < nVar; i++)
+            match[i] = NONE;
+        for (int v = 0; v < nVal; v++)
+            valMatch[v] = NONE;
+
+        varSeen = new int[nVar];
+        valSeen = new int[nVal];
+        pathVar = new int[nVar];
+        pathVal = new int[nVar];
+        cursor = new int[nVar];
+
+        offsets = new int[nNodes + 1];
+        targets = new int[graph.maxEdges() + nVal + nVar];
+        scc = new int[nNodes];
+        buffers = new GraphUtil.Buffers(nNodes);
     }
 
     @Override
@@ -80,109 +143,93 @@ public class AllDifferentDC extends AbstractConstraint {
         for (int i = 0; i < nVar; i++) {
             x[i].propagateOnDomainChange(this);
         }
-        updateRange();
-
-        matched = new boolean[nVal];
-        nNodes = nVar + nVal + 1;
-        in = new ArrayList[nNodes];
-        out = new ArrayList[nNodes];
-        for (int i = 0; i < nNodes; i++) {
-            in[i] = new ArrayList<>();
-            out[i] = new ArrayList<>();
-        }
         propagate();
     }
 
-    private void updateRange() {
-        minVal = Integer.MAX_VALUE;
-        maxVal = Integer.MIN_VALUE;
-        for (int i = 0; i < nVar; i++) {
-            minVal = Math.min(minVal, x[i].min());
-            maxVal = Math.max(maxVal, x[i].max());
-        }
-        nVal = maxVal - minVal + 1;
+    @Override
+    public void propagate() {
+        graph.update();
+        repairMatching();
+        updateResidualGraph();
+        GraphUtil.stronglyConnectedComponents(nNodes, offsets, targets, scc, buffers);
+        graph.removeUnsupported(match, scc);
     }
 
-
-    private void updateGraph() {
-        nNodes = nVar + nVal + 1;
-        int sink = nNodes - 1;
-        for (int j = 0; j < nNodes; j++) {
-            in[j].clear();
-            out[j].clear();
-        }
-        // TODO continue the implementation for representing the residual graph
-
-        for (int var = 0; var < nVar; var++) {
-            int matchedVal = match[var];  // −1 if none
-
-            // iterate over the current domain of x
-            for (int a = x[var].min(); a <= x[var].max(); a++) {
-                if (!x[var].contains(a)) continue;
-
-                int valNode = nVar + (a - minVal);
-
-                if (a == matchedVal) {    // matched edge
-                    in[var].add(valNode);
-                    out[valNode].add(var);
-                } else {                  // unmatched edge
-                    out[var].add(valNode);
-                    in[valNode].add(var);
-                }
+    /**
+     * Removes from the previous matching the edges whose value is no longer
+     * in the domain, and completes it into a maximum matching.
+     *
+     * @throws InconsistencyException if some variable cannot be matched
+     */
+    private void repairMatching() {
+        for (int i = 0; i < nVar; i++) {
+            if (match[i] != NONE && !x[i].contains(match[i] + minVal)) {
+                valMatch[match[i]] = NONE;
+                match[i] = NONE;
             }
         }
-
-        // sink arcs
-        for (int off = 0; off < nVal; off++) {
-            int valNode = nVar + off;
-            if (matched[off]) {           // matched value
-                out[sink].add(valNode);
-                in[valNode].add(sink);
-            } else {                      // free value
-                out[valNode].add(sink);
-                in[sink].add(valNode);
+        for (int i = 0; i < nVar; i++) {
+            if (match[i] == NONE && !findAugmentingPath(i)) {
+                throw InconsistencyException.INCONSISTENCY;
             }
         }
     }
 
-
-    @Override
-    public void propagate() {
-        // TODO Implement the filtering
-        // hint: use maximumMatching.compute(match) to update the maximum matching
-        //       use updateRange() to update the range of values
-        //       use updateGraph() to update the residual graph
-        //       use  GraphUtil.stronglyConnectedComponents to compute SCC's
-
-        // 1. refresh
-        updateRange();
-
-        // 2. compute a maximum matching
-        Arrays.fill(match, -1);
-        maximumMatching.compute(match);    // fills the array 'match'
-
-        // 3. mark which values are matched
-        matched = new boolean[nVal];
-        for (int v : match)
-            if (v >= 0) matched[v - minVal] = true;
-
-        // 4. build the residual graph
-        updateGraph();
-
-        //5. compute strongly-connected components
-        int[] scc = GraphUtil.stronglyConnectedComponents(g);
-
-        //6. prune
-        for (int var = 0; var < nVar; var++) {
-            for (int a = x[var].min(); a <= x[var].max(); a++) {
-                if (!x[var].contains(a)) continue;
-                if (a == match[var]) continue;     // keep matched value
-
-                int valNode = nVar + (a - minVal);
-                if (scc[var] != scc[valNode]) {
-                    x[var].remove(a);            // unsupported value
+    /**
+     * Depth first search of an alternating path from the unmatched variable root
+     * to a free value, the matching is augmented along the path if one is found.
+     *
+     * @param root an unmatched variable
+     * @return true if the matching has been augmented
+     */
+    private boolean findAugmentingPath(int root) {
+        magic++;
+        int depth = 0;
+        pathVar[0] = root;
+        cursor[root] = adjStart[root];
+        varSeen[root] = magic;
+        while (depth >= 0) {
+            int i = pathVar[depth];
+            if (cursor[i] == adjStart[i + 1]) {
+                depth--; // dead end
+                continue;
+            }
+            int v = adj[cursor[i]++];
+            if (valSeen[v] == magic) continue;
+            valSeen[v] = magic;
+            pathVal[depth] = v;
+            int j = valMatch[v];
+            if (j == NONE) {
+                // free value: each variable on the path takes the value chosen at its level
+                for (int d = 0; d <= depth; d++) {
+                    match[pathVar[d]] = pathVal[d];
+                    valMatch[pathVal[d]] = pathVar[d];
                 }
+                return true;
             }
+            if (varSeen[j] != magic) {
+                varSeen[j] = magic;
+                cursor[j] = adjStart[j];
+                pathVar[++depth] = j;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Builds the residual graph: each variable points to its unmatched values,
+     * a matched value points to its variable and a free one to the sink,
+     * the sink points to the matched values.
+     */
+    private void updateResidualGraph() {
+        int k = graph.fillVariableArcs(match, offsets, targets);
+        for (int v = 0; v < nVal; v++) {
+            offsets[nVar + v] = k;
+            targets[k++] = valMatch[v] == NONE ? sink : valMatch[v];
         }
+        offsets[sink] = k;
+        for (int i = 0; i < nVar; i++)
+            targets[k++] = nVar + match[i];
+        offsets[nNodes] = k;
     }
 }
@@ -0,0 +1,401 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.core.AbstractConstraint;
+import minicp.engine.core.IntVar;
+import minicp.state.StateInt;
+import minicp.state.StateManager;
+import minicp.state.StateSparseSet;
+import minicp.util.exception.InconsistencyException;
+
+import java.security.InvalidParameterException;
+
+/**
+ * Bin-Packing Constraint
+ *
+ * Algorithm described in
+ * "A constraint for bin packing" P. Shaw, CP-04
+ * <p>
+ * Item i of weight {@code weights[i]} is placed in bin {@code assignment[i]}
+ * and {@code loads[j]} is the total weight of the items placed in bin j.
+ * For each bin, the items that can still be placed in it (its candidates)
+ * are kept in a reversible sparse set and the weight of the items placed in it
+ * in a reversible integer, so that only the candidates are visited.
+ * The filtering rules are:
+ * <ul>
+ *     <li>the load of a bin is between the weight of its packed items and
+ *     the weight of its packed and candidate items, and the loads sum up to the total weight;</li>
+ *     <li>a candidate too heavy for a bin is removed from it, and a candidate
+ *     without which the minimum load cannot be reached is placed in it;</li>
+ *     <li>knapsack reasoning: the load bounds of a bin are adjusted to sums
+ *     that subsets of candidates can reach, and the candidates are removed or placed
+ *     accordingly, with the sufficient "no sum" test of the paper;</li>
+ *     <li>the constraint fails if the lower bound L2 of Martello and Toth on the
+ *     number of bins needed by the items that are not packed exceeds the number of bins.</li>
+ * </ul>
+ */
+public class BinPacking extends AbstractConstraint {
+
+    private final IntVar[] x;
+    private final int[] w;
+    private final IntVar[] load;
+    private final int n;
+    private final int m;
+    private final int totalWeight;
+
+    private final StateSparseSet[] candidates; // items that can be placed in each bin
+    private final StateInt[] packed; // weight of the items placed in each bin
+    private final int[] possible; // weight of the packed and candidate items of each bin
+    // number of candidates and load bounds of each bin after its last knapsack reasoning
+    private final StateInt[] lastSize;
+    private final StateInt[] lastMin;
+    private final StateInt[] lastMax;
+
+    private final int[] sorted; // items by decreasing weight
+    private final int[] items; // candidates of a bin by decreasing weight
+    private final int[] sizes; // their weights
+    private final int[] others; // their weights without one of them
+    private final int[] l2Sizes; // sizes of the L2 bound by decreasing value
+    private final int[] binSizes; // sizes representing the bins in L2
+
+    // results of noSum: largest sum below alpha, smallest sum above beta
+    private int alphaPrime;
+    private int betaPrime;
+
+    /**
+     * Creates a bin-packing constraint.
+     * <p> This constraint holds iff
+     * {@code loads[j] == sum_{i | assignment[i] == j} weights[i]} for each bin j.
+     *
+     * @param assignment the bin of each item, between 0 and {@code loads.length - 1}
+     * @param weights the weight of each item, non negative
+     * @param loads the load of each bin
+     */
+    public BinPacking(IntVar[] assignment, int[] weights, IntVar[] loads) {
+        super(assignment[0].getSolver());
+        if (assignment.length != weights.length)
+            throw new InvalidParameterException("assignment and weights must have the same length");
+        this.x = assignment;
+        this.w = weights;
+        this.load = loads;
+        this.n = assignment.length;
+        this.m = loads.length;
+        int total = 0;
+        for (int wi : weights) {
+            if (wi < 0) throw new InvalidParameterException("the weights must be non negative");
+            total += wi;
+        }
+        totalWeight = total;
+
+        StateManager sm = getSolver().getStateManager();
+        candidates = new StateSparseSet[m];
+        packed = new StateInt[m];
+        lastSize = new StateInt[m];
+        lastMin = new StateInt[m];
+        lastMax = new StateInt[m];
+        for (int j = 0; j < m; j++) {
+            candidates[j] = new StateSparseSet(sm, n, 0);
+            packed[j] = sm.makeStateInt(0);
+            lastSize[j] = sm.makeStateInt(-1);
+            lastMin[j] = sm.makeStateInt(0);
+            lastMax[j] = sm.makeStateInt(0);
+        }
+        possible = new int[m];
+
+        sorted = new int[n];
+        for (int i = 0; i < n; i++)
+            sorted[i] = i;
+        // insertion sort by decreasing weight
+        for (int i = 1; i < n; i++) {
+            int item = sorted[i];
+            int k = i - 1;
+            while (k >= 0 && w[sorted[k]] < w[item]) {
+                sorted[k + 1] = sorted[k];
+                k--;
+            }
+            sorted[k + 1] = item;
+        }
+        items = new int[n];
+        sizes = new int[n];
+        others = new int[n];
+        l2Sizes = new int[n + m];
+        binSizes = new int[m];
+    }
+
+    @Override
+    public void post() {
+        for (IntVar xi : x) {
+            xi.removeBelow(0);
+            xi.removeAbove(m - 1);
+        }
+        for (IntVar l : load) {
+            l.removeBelow(0);
+        }
+        for (IntVar xi : x) {
+            xi.propagateOnDomainChange(this);
+        }
+        for (IntVar l : load) {
+            l.propagateOnBoundChange(this);
+        }
+        propagate();
+    }
+
+    @Override
+    public void propagate() {
+        updateCandidates();
+        filterLoads();
+        for (int j = 0; j < m; j++) {
+            filterItems(j);
+        }
+        for (int j = 0; j < m; j++) {
+            knapsack(j);
+        }
+        if (lowerBoundL2() > m)
+            throw InconsistencyException.INCONSISTENCY;
+    }
+
+    /**
+     * Removes from the candidates of each bin the items that can no longer
+     * be placed in it, and packs the items placed in it.
+     */
+    private void updateCandidates() {
+        for (int j = 0; j < m; j++) {
+            int s = candidates[j].fillArray(items);
+            int p = packed[j].value();
+            int c = 0;
+            for (int k = 0; k < s; k++) {
+                int i = items[k];
+                if (!x[i].contains(j)) {
+                    candidates[j].remove(i);
+                } else if (x[i].isFixed()) {
+                    candidates[j].remove(i);
+                    p += w[i];
+                } else {
+                    c += w[i];
+                }
+            }
+            packed[j].setValue(p);
+            possible[j] = p + c;
+        }
+    }
+
+    /**
+     * Filters the loads with the packed and candidate items,
+     * and with the total weight that must be packed.
+     */
+    private void filterLoads() {
+        int sumMin = 0;
+        int sumMax = 0;
+        for (int j = 0; j < m; j++) {
+            load[j].removeBelow(packed[j].value());
+            load[j].removeAbove(possible[j]);
+            sumMin += load[j].min();
+            sumMax += load[j].max();
+        }
+        if (sumMin > totalWeight || sumMax < totalWeight)
+            throw InconsistencyException.INCONSISTENCY;
+        for (int j = 0; j < m; j++) {
+            int min = load[j].min();
+            int max = load[j].max();
+            load[j].removeBelow(totalWeight - (sumMax - max));
+            load[j].removeAbove(totalWeight - (sumMin - min));
+        }
+    }
+
+    /**
+     * Removes the candidates too heavy for bin j, and packs the candidates
+     * without which the minimum load of bin j cannot be reached.
+     */
+    private void filterItems(int j) {
+        int s = candidates[j].fillArray(items);
+        int p = packed[j].value();
+        for (int k = 0; k < s; k++) {
+            int i = items[k];
+            if (p + w[i] > load[j].max()) {
+                x[i].remove(j);
+            } else if (possible[j] - w[i] < load[j].min()) {
+                x[i].fix(j);
+            }
+        }
+    }
+
+    /**
+     * Knapsack reasoning on bin j.
+     */
+    private void knapsack(int j) {
+        if (candidates[j].size() == lastSize[j].value()
+                && load[j].min() == lastMin[j].value() && load[j].max() == lastMax[j].value())
+            return; // same candidates and bounds as the last time, in this node or an ancestor
+        // candidates by decreasing weight
+        int s = 0;
+        int sum = 0;
+        for (int k = 0; k < n; k++) {
+            int i = sorted[k];
+            if (candidates[j].contains(i)) {
+                items[s] = i;
+                sizes[s++] = w[i];
+                sum += w[i];
+            }
+        }
+        if (s > 0) {
+            int p = packed[j].value();
+            if (noSum(sizes, s, sum, load[j].min() - p, load[j].max() - p))
+                throw InconsistencyException.INCONSISTENCY;
+            if (noSum(sizes, s, sum, load[j].min() - p, load[j].min() - p))
+                load[j].removeBelow(p + betaPrime);
+            if (noSum(sizes, s, sum, load[j].max() - p, load[j].max() - p))
+                load[j].removeAbove(p + alphaPrime);
+
+            int min = load[j].min() - p;
+            int max = load[j].max() - p;
+            // the sums of the first k candidates increase by at most sizes[0]: an interval
+            // at least that wide contains one of them if it is within [0, sum], and the
+            // other cases are handled by filterItems
+            if (max - min + 1 < sizes[0]) {
+                for (int k = 0; k < s; k++) {
+                    int i = items[k];
+                    // weights of the other candidates
+                    System.arraycopy(sizes, 0, others, 0, k);
+                    System.arraycopy(sizes, k + 1, others, k, s - k - 1);
+                    if (noSum(others, s - 1, sum - w[i], min - w[i], max - w[i])) {
+                        x[i].remove(j); // the other candidates cannot complete it
+                    } else if (noSum(others, s - 1, sum - w[i], min, max)) {
+                        x[i].fix(j); // the other candidates cannot fill the bin without it
+                    }
+                }
+            }
+        }
+        lastSize[j].setValue(candidates[j].size());
+        lastMin[j].setValue(load[j].min());
+        lastMax[j].setValue(load[j].max());
+    }
+
+    /**
+     * Sufficient test that no subset of the sizes sums up to a value in {@code [alpha, beta]}.
+     * When it returns true, no subset sums up to a value strictly between
+     * {@link #alphaPrime} and {@link #betaPrime}.
+     *
+     * @param s the sizes, by decreasing value
+     * @param size the number of sizes
+     * @param sum the sum of the sizes
+     * @param alpha the lower end of the interval
+     * @param beta the upper end of the interval
+     * @return true if no subset of s sums up to a value in {@code [alpha, beta]},
+     *         false if it cannot be proved
+     */
+    private boolean noSum(int[] s, int size, int sum, int alpha, int beta) {
+        if (alpha <= 0 || beta >= sum)
+            return false;
+        int sumA = 0, sumB, sumC = 0;
+        int k = 0; // the k largest sizes are in A
+        int k1 = 0; // the k1 smallest sizes are in C
+        while (sumC + s[size - 1 - k1] < alpha) {
+            sumC += s[size - 1 - k1];
+            k1++;
+        }
+        sumB = s[size - 1 - k1];
+        while (sumA < alpha && sumB <= beta) {
+            k++;
+            sumA += s[k - 1];
+            if (sumA < alpha) {
+                k1--;
+                sumB += s[size - 1 - k1];
+                sumC -= s[size - 1 - k1];
+                while (sumA + sumC >= alpha) {
+                    k1--;
+                    sumC -= s[size - 1 - k1];
+                    sumB += s[size - 1 - k1] - s[size - 1 - k1 - k - 1];
+                }
+            }
+        }
+        alphaPrime = sumA + sumC;
+        betaPrime = sumB;
+        return sumA < alpha;
+    }
+
+    /**
+     * Lower bound L2 of Martello and Toth on the number of bins needed
+     * for the items that are not packed.
+     * The bins get the largest capacity c of all the bins, and each bin j
+     * is replaced by an item of size {@code packed[j] + c - load[j].max()}.
+     */
+    private int lowerBoundL2() {
+        int c = 0;
+        for (int j = 0; j < m; j++)
+            c = Math.max(c, load[j].max());
+        if (c == 0) return 0;
+        // sizes of the bins by decreasing value
+        int nBins = 0;
+        for (int j = 0; j < m; j++) {
+            int sj = packed[j].value() + c - load[j].max();
+            if (sj == 0) continue;
+            int k = nBins++ - 1;
+            while (k >= 0 && binSizes[k] < sj) {
+                binSizes[k + 1] = binSizes[k];
+                k--;
+            }
+            binSizes[k + 1] = sj;
+        }
+        // merged with the items not packed, by decreasing weight
+        int size = 0;
+        int f = 0;
+        for (int k = 0; k < n; k++) {
+            int i = sorted[k];
+            if (x[i].isFixed() || w[i] == 0) continue;
+            while (f < nBins && binSizes[f] >= w[i])
+                l2Sizes[size++] = binSizes[f++];
+            l2Sizes[size++] = w[i];
+        }
+        while (f < nBins)
+            l2Sizes[size++] = binSizes[f++];
+
+        // the sizes larger than c/2 are l2Sizes[0..nLarge-1]
+        int nLarge = 0;
+        long sumLarge = 0;
+        while (nLarge < size && 2 * l2Sizes[nLarge] > c)
+            sumLarge += l2Sizes[nLarge++];
+        long sumSmall = 0;
+        for (int k = nLarge; k < size; k++)
+            sumSmall += l2Sizes[k];
+
+        // L(K) for K = 0 and each small size, by increasing K:
+        // N1 = sizes larger than c - K, N2 = other sizes larger than c/2, N3 = sizes between K and c/2
+        int best = 0;
+        int n1 = 0;
+        long sum1 = 0;
+        int end = size; // the sizes smaller than K are l2Sizes[end..size-1]
+        long sumBelow = 0;
+        int threshold = 0;
+        int next = size - 1;
+        while (true) {
+            while (n1 < nLarge && l2Sizes[n1] > c - threshold)
+                sum1 += l2Sizes[n1++];
+            while (end > nLarge && l2Sizes[end - 1] < threshold)
+                sumBelow += l2Sizes[--end];
+            int n2 = nLarge - n1;
+            long free = (long) n2 * c - (sumLarge - sum1);
+            long sum3 = sumSmall - sumBelow;
+            long extra = sum3 > free ? (sum3 - free + c - 1) / c : 0;
+            best = (int) Math.max(best, n1 + n2 + extra);
+            while (next >= nLarge && l2Sizes[next] <= threshold)
+                next--;
+            if (next < nLarge) break;
+            threshold = l2Sizes[next];
+        }
+        return best;
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.core.IntVar;
+
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Helpers shared by the constraints reasoning on the sorted bounds of their variables:
+ * an insertion sort for permutations kept from one propagation to the next and
+ * the sorted bounds with the union-find path operations
+ * used to detect the Hall intervals of {@link AllDifferentBC} and {@link GlobalCardinalityBC}.
+ */
+final class BoundsUtil {
+
+    private BoundsUtil() {
+    }
+
+    /**
+     * Sorts a permutation by increasing key with an insertion sort,
+     * linear if the permutation is already nearly sorted.
+     * The permutations are meant to be kept from one propagation to the next.
+     *
+     * @param perm the permutation to sort
+     * @param key the key of each element of the permutation
+     */
+    static void sortByKey(int[] perm, int[] key) {
+        for (int i = 1; i < perm.length; i++) {
+            int p = perm[i];
+            int k = key[p];
+            int j = i - 1;
+            while (j >= 0 && key[perm[j]] > k) {
+                perm[j + 1] = perm[j];
+                j--;
+            }
+            perm[j + 1] = p;
+        }
+    }
+
+    /**
+     * Follows the links of a union-find tree from {@code start} up to {@code end}
+     * and redirects them all to {@code to}.
+     */
+    static void pathSet(int[] a, int start, int end, int to) {
+        int next = start;
+        int prev = next;
+        while (prev != end) {
+            next = a[prev];
+            a[prev] = to;
+            prev = next;
+        }
+    }
+
+    /**
+     * Returns the root of i in a union-find tree whose links go down.
+     */
+    static int pathMin(int[] a, int i) {
+        while (a[i] < i) i = a[i];
+        return i;
+    }
+
+    /**
+     * Returns the root of i in a union-find tree whose links go up.
+     */
+    static int pathMax(int[] a, int i) {
+        while (a[i] > i) i = a[i];
+        return i;
+    }
+
+    /**
+     * Bounds of variables sorted as in
+     * "A fast and simple algorithm for bounds consistency of the alldifferent constraint"
+     * A. López-Ortiz, C.-G. Quimper, J. Tromp, P. van Beek, IJCAI-03:
+     * {@code bounds[1..nb]} are the sorted distinct values of the ranks of the
+     * lower bounds and of the upper bounds plus one, with a sentinel at each end.
+     */
+    static final class SortedBounds {
+
+        private final int n;
+        private final IntUnaryOperator rank;
+        // rank of the bounds of the variables at the beginning of the propagation
+        private final int[] lb;
+        private final int[] ub;
+        // variables sorted by increasing lb (resp. ub), kept from one call to the next
+        final int[] minSorted;
+        final int[] maxSorted;
+        // index of lb (resp. ub+1) in bounds
+        final int[] minRank;
+        final int[] maxRank;
+        final int[] bounds;
+        int nb;
+
+        /**
+         * Creates the sorted bounds of n variables.
+         *
+         * @param n the number of variables
+         * @param rank the rank of each value of the variables,
+         *             increasing with the value and such that consecutive
+         *             values that can be taken have consecutive ranks
+         */
+        SortedBounds(int n, IntUnaryOperator rank) {
+            this.n = n;
+            this.rank = rank;
+            lb = new int[n];
+            ub = new int[n];
+            minSorted = new int[n];
+            maxSorted = new int[n];
+            minRank = new int[n];
+            maxRank = new int[n];
+            for (int i = 0; i < n; i++) {
+                minSorted[i] = i;
+                maxSorted[i] = i;
+            }
+            bounds = new int[2 * n + 2];
+        }
+
+        /**
+         * Sorts the variables by their bounds and computes the index
+         * of their bounds in {@link #bounds}.
+         *
+         * @param x the variables
+         */
+        void sort(IntVar[] x) {
+            for (int i = 0; i < n; i++) {
+                lb[i] = rank.applyAsInt(x[i].min());
+                ub[i] = rank.applyAsInt(x[i].max());
+            }
+            sortByKey(minSorted, lb);
+            sortByKey(maxSorted, ub);
+
+            int min = lb[minSorted[0]];
+            int max = ub[maxSorted[0]] + 1;
+            int last = min - 2;
+            nb = 0;
+            bounds[0] = last;
+            int i = 0, j = 0;
+            while (true) {
+                if (i < n && min <= max) {
+                    if (min != last) bounds[++nb] = last = min;
+                    minRank[minSorted[i]] = nb;
+                    if (++i < n) min = lb[minSorted[i]];
+                } else {
+                    if (max != last) bounds[++nb] = last = max;
+                    maxRank[maxSorted[j]] = nb;
+                    if (++j == n) break;
+                    max = ub[maxSorted[j]] + 1;
+                }
+            }
+            bounds[nb + 1] = bounds[nb] + 2;
+        }
+    }
+}
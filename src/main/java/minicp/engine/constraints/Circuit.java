@@ -19,12 +19,30 @@ package minicp.engine.constraints;
 import minicp.engine.core.AbstractConstraint;
 import minicp.engine.core.IntVar;
 import minicp.state.StateInt;
+import minicp.util.GraphUtil;
+import minicp.util.exception.InconsistencyException;
 import minicp.util.exception.NotImplementedException;
 import static minicp.cp.Factory.allDifferent;
+import static minicp.cp.Factory.allDifferentDC;
 import minicp.util.Procedure;
 
 /**
  * Hamiltonian Circuit Constraint with a successor model
+ * <p>
+ * The default filtering prevents the closure of a subtour
+ * when a chain of fixed successors is extended.
+ * The strong filtering additionally uses {@link AllDifferentDC} and,
+ * on the successor graph (an arc {@code i -> j} for each value j of {@code x[i]}):
+ * <ul>
+ *     <li>fails if the graph is not strongly connected;</li>
+ *     <li>removes the arcs {@code i -> j} such that every path from 0 to i
+ *     goes through {@code j != 0}, or every path from j to 0 goes through {@code i != 0}:
+ *     the circuit would then contain a subtour without 0.
+ *     This is computed with the dominator trees of the graph and of its reverse,
+ *     rooted at 0.</li>
+ * </ul>
+ * See "Improving the asymmetric TSP by considering graph structure",
+ * J-G. Fages, X. Lorca, 2012.
  */
 public class Circuit extends AbstractConstraint {
 
@@ -33,6 +51,26 @@ public class Circuit extends AbstractConstraint {
     protected final StateInt[] orig;
     protected final StateInt[] lengthToDest;
 
+    private final boolean strong;
+    private final int n;
+
+    // successor graph (out) and predecessor graph (in) in compressed sparse row form
+    private int[] outOffsets, outTargets;
+    private int[] inOffsets, inTargets;
+    private int[] domain;
+    private int[] scc;
+    private GraphUtil.Buffers buffers;
+
+    // dominator tree
+    private int[] idom;
+    private int[] order; // nodes in post order of the depth first search
+    private int[] postNumber;
+    private int[] stack;
+    private int[] cursor;
+    private boolean[] visited;
+    private int[] treeOffsets, treeTargets;
+    private int[] treePre, treePost;
+
     /**
      * Creates an Hamiltonian Circuit Constraint
      * with a successor model.
@@ -41,8 +79,23 @@ public class Circuit extends AbstractConstraint {
      *          {@code x[i]} is the city visited after city i
      */
     public Circuit(IntVar[] x) {
+        this(x, false);
+    }
+
+    /**
+     * Creates an Hamiltonian Circuit Constraint
+     * with a successor model.
+     *
+     * @param x the variables representing the successor array that is
+     *          {@code x[i]} is the city visited after city i
+     * @param strong true to use the filtering based on the successor graph
+     *               and {@link AllDifferentDC}
+     */
+    public Circuit(IntVar[] x, boolean strong) {
         super(x[0].getSolver());
         this.x = x;
+        this.strong = strong;
+        this.n = x.length;
         dest = new StateInt[x.length];
         orig = new StateInt[x.length];
         lengthToDest = new StateInt[x.length];
@@ -51,12 +104,35 @@ public class Circuit extends AbstractConstraint {
             orig[i] = getSolver().getStateManager().makeStateInt(i);
             lengthToDest[i] = getSolver().getStateManager().makeStateInt(0);
         }
+        if (strong) {
+            outOffsets = new int[n + 1];
+            inOffsets = new int[n + 1];
+            outTargets = new int[n * n];
+            inTargets = new int[n * n];
+            domain = new int[n];
+            scc = new int[n];
+            buffers = new GraphUtil.Buffers(n);
+            idom = new int[n];
+            order = new int[n];
+            postNumber = new int[n];
+            stack = new int[n];
+            cursor = new int[n];
+            visited = new boolean[n];
+            treeOffsets = new int[n + 1];
+            treeTargets = new int[n];
+            treePre = new int[n];
+            treePost = new int[n];
+        }
     }
 
 
     @Override
     public void post() {
-        getSolver().post(allDifferent(x));
+        for (int i = 0; i < n; i++) {
+            x[i].removeBelow(0);
+            x[i].removeAbove(n - 1);
+        }
+        getSolver().post(strong ? allDifferentDC(x) : allDifferent(x));
         // TODO
         // Hint: use x[i].whenFixed(...) to call the fix
 
@@ -68,8 +144,163 @@ public class Circuit extends AbstractConstraint {
             if (x[idx].isFixed())      // already fixed at post time
                 fix(idx);
         }
+        if (strong) {
+            for (int i = 0; i < n; i++)
+                x[i].propagateOnDomainChange(this);
+            propagate();
+        }
+    }
+
+    @Override
+    public void propagate() {
+        updateGraph();
+        if (GraphUtil.stronglyConnectedComponents(n, outOffsets, outTargets, scc, buffers) > 1)
+            throw InconsistencyException.INCONSISTENCY;
+        // j dominates i: the arc i -> j closes a cycle without 0
+        dominatorTree(outOffsets, outTargets, inOffsets, inTargets);
+        for (int i = 0; i < n; i++) {
+            for (int k = outOffsets[i]; k < outOffsets[i + 1]; k++) {
+                int j = outTargets[k];
+                if (j != 0 && dominates(j, i))
+                    x[i].remove(j);
+            }
+        }
+        // i dominates j in the reverse graph: every path from j to 0 goes through i
+        dominatorTree(inOffsets, inTargets, outOffsets, outTargets);
+        for (int i = 1; i < n; i++) {
+            for (int k = outOffsets[i]; k < outOffsets[i + 1]; k++) {
+                int j = outTargets[k];
+                if (j != 0 && dominates(i, j))
+                    x[i].remove(j);
+            }
+        }
     }
 
+    /**
+     * Builds the successor and predecessor graphs from the domains.
+     */
+    private void updateGraph() {
+        int nArcs = 0;
+        for (int i = 0; i <= n; i++)
+            inOffsets[i] = 0;
+        for (int i = 0; i < n; i++) {
+            outOffsets[i] = nArcs;
+            int s = x[i].fillArray(domain);
+            for (int k = 0; k < s; k++) {
+                outTargets[nArcs++] = domain[k];
+                inOffsets[domain[k] + 1]++;
+            }
+        }
+        outOffsets[n] = nArcs;
+        for (int j = 0; j < n; j++)
+            inOffsets[j + 1] += inOffsets[j];
+        for (int j = 0; j < n; j++)
+            cursor[j] = inOffsets[j];
+        for (int i = 0; i < n; i++)
+            for (int k = outOffsets[i]; k < outOffsets[i + 1]; k++)
+                inTargets[cursor[outTargets[k]]++] = i;
+    }
+
+    /**
+     * Computes the dominator tree rooted at 0 of a strongly connected graph
+     * without the arcs entering 0, with the iterative algorithm of
+     * "A simple, fast dominance algorithm", K. Cooper, T. Harvey, K. Kennedy, 2001.
+     * The tree is stored as intervals of the preorder numbers in {@link #treePre} and {@link #treePost}.
+     *
+     * @param sOffsets the offsets of the successors
+     * @param sTargets the successors
+     * @param pOffsets the offsets of the predecessors
+     * @param pTargets the predecessors
+     */
+    private void dominatorTree(int[] sOffsets, int[] sTargets, int[] pOffsets, int[] pTargets) {
+        // post order of a depth first search from 0
+        for (int u = 0; u < n; u++)
+            visited[u] = false;
+        int nOrder = 0;
+        int depth = 0;
+        stack[0] = 0;
+        cursor[0] = sOffsets[0];
+        visited[0] = true;
+        while (depth >= 0) {
+            int u = stack[depth];
+            if (cursor[u] < sOffsets[u + 1]) {
+                int w = sTargets[cursor[u]++];
+                if (!visited[w]) {
+                    visited[w] = true;
+                    cursor[w] = sOffsets[w];
+                    stack[++depth] = w;
+                }
+            } else {
+                postNumber[u] = nOrder;
+                order[nOrder++] = u;
+                depth--;
+            }
+        }
+        // immediate dominators, the nodes are processed in reverse post order
+        for (int u = 1; u < n; u++)
+            idom[u] = -1;
+        idom[0] = 0;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int k = n - 2; k >= 0; k--) {
+                int u = order[k];
+                int newIdom = -1;
+                for (int e = pOffsets[u]; e < pOffsets[u + 1]; e++) {
+                    int p = pTargets[e];
+                    if (idom[p] != -1)
+                        newIdom = newIdom == -1 ? p : intersect(p, newIdom);
+                }
+                if (idom[u] != newIdom) {
+                    idom[u] = newIdom;
+                    changed = true;
+                }
+            }
+        }
+        // children in the dominator tree, then preorder and postorder numbers
+        for (int u = 0; u <= n; u++)
+            treeOffsets[u] = 0;
+        for (int u = 1; u < n; u++)
+            treeOffsets[idom[u] + 1]++;
+        for (int u = 0; u < n; u++)
+            treeOffsets[u + 1] += treeOffsets[u];
+        for (int u = 0; u < n; u++)
+            cursor[u] = treeOffsets[u];
+        for (int u = 1; u < n; u++)
+            treeTargets[cursor[idom[u]]++] = u;
+        int time = 0;
+        depth = 0;
+        stack[0] = 0;
+        cursor[0] = treeOffsets[0];
+        treePre[0] = time++;
+        while (depth >= 0) {
+            int u = stack[depth];
+            if (cursor[u] < treeOffsets[u + 1]) {
+                int w = treeTargets[cursor[u]++];
+                treePre[w] = time++;
+                cursor[w] = treeOffsets[w];
+                stack[++depth] = w;
+            } else {
+                treePost[u] = time++;
+                depth--;
+            }
+        }
+    }
+
+    private int intersect(int a, int b) {
+        while (a != b) {
+            while (postNumber[a] < postNumber[b]) a = idom[a];
+            while (postNumber[b] < postNumber[a]) b = idom[b];
+        }
+        return a;
+    }
+
+    /**
+     * @return true if u is an ancestor of v (or v itself) in the dominator tree
+     */
+    private boolean dominates(int u, int v) {
+        return treePre[u] <= treePre[v] && treePost[v] <= treePost[u];
+    }
 
     protected void fix(int i) {
         // TODO
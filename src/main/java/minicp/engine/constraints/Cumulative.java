@@ -19,17 +19,43 @@ package minicp.engine.constraints;
 import minicp.cp.Factory;
 import minicp.engine.constraints.Profile.Rectangle;
 import minicp.engine.core.AbstractConstraint;
+import minicp.engine.core.BoolVar;
 import minicp.engine.core.IntVar;
+import minicp.state.StateInt;
 import minicp.util.exception.InconsistencyException;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
 import static minicp.cp.Factory.minus;
 import static minicp.cp.Factory.plus;
-import minicp.util.exception.NotImplementedException;
 
 /**
  * Cumulative constraint with time-table filtering
+ * <p>
+ * The profile of the compulsory parts is built with a sweep over
+ * the sorted start and end events and kept in preallocated arrays.
+ * It is only rebuilt when the compulsory part of an activity has changed
+ * since the last propagation.
+ * The rectangle overlapping the earliest start of an activity is
+ * found by binary search and the activity is then pushed
+ * in a single pass over the following rectangles.
+ * <p>
+ * Optionally, the energetic reasoning of
+ * <i>Constraint-Based Scheduling</i>, Baptiste, Le Pape, Nuijten, 2001,
+ * can be performed on top of the time-table filtering.
+ * For each interval {@code [t1,t2)} with t1 an earliest start and t2 a latest end
+ * or earliest end, the minimal energy that the activities must consume in
+ * the interval is compared with the capacity and used to push the
+ * earliest starts. For a given t1, the minimal energy is a piecewise linear
+ * function of t2 evaluated by a sweep such that the overload check costs
+ * O(n^2 log n), but the adjustments may cost O(n^3) per propagation.
+ * It can thus be run only at every k-th search node.
+ * <p>
+ * The activities can be optional, with a presence variable.
+ * Only the activities surely present are used to filter the others.
+ * An optional activity that cannot be scheduled in its time window
+ * is made absent, but its start time is never filtered.
  */
 public class Cumulative extends AbstractConstraint {
 
@@ -38,7 +64,29 @@ public class Cumulative extends AbstractConstraint {
     private final IntVar[] end;
     private final int[] demand;
     private final int capa;
+    private final BoolVar[] present; // null if all the activities are present
     private final boolean postMirror;
+    private final int n;
+
+    // compulsory part [lst, ect) of each activity included in the profile, empty if lst == ect
+    private final int[] lst, ect;
+    private boolean profileValid = false;
+    // sorted events: time in the 32 high bits, 2*activity (+1 for an end) in the low bits
+    private final long[] events;
+    // profile as a contiguous sequence of rectangles from Integer.MIN_VALUE to Integer.MAX_VALUE
+    private final int[] rectStart, rectEnd, rectHeight;
+    private int nRect;
+    private int maxHeight;
+
+    // energetic reasoning is performed at every energeticPeriod-th search node, never if 0
+    private final int energeticPeriod;
+    private final StateInt nodeLevel; // level of the last propagation, reset on backtrack
+    private int nodeCount;
+    private final int[] est, lct;
+    private final int[] t1s, t2s; // candidate bounds of the intervals
+    // slope changes of the minimal energy in [t1,t2) as a function of t2:
+    // time in the 32 high bits, 2*activity (+1 for a decrease) in the low bits
+    private final long[] slopeEvents;
 
 
     /**
@@ -52,17 +100,68 @@ public class Cumulative extends AbstractConstraint {
      * @param capa the capacity of the constraint
      */
     public Cumulative(IntVar[] start, int[] duration, int[] requirement, int capa) {
-        this(start, duration, requirement, capa, true);
+        this(start, duration, requirement, capa, null, 0, true);
+    }
+
+    /**
+     * Creates a cumulative constraint with a time-table filtering
+     * over optional activities.
+     * At any time-point t, the sum of the demands
+     * of the present activities overlapping t do not overlap the capacity.
+     *
+     * @param start the start time of each activity
+     * @param duration the duration of each activity (non negative)
+     * @param requirement the requirement of each activity, non negative
+     * @param capa the capacity of the constraint
+     * @param present the presence of each activity,
+     *                an absent activity is not constrained
+     */
+    public Cumulative(IntVar[] start, int[] duration, int[] requirement, int capa, BoolVar[] present) {
+        this(start, duration, requirement, capa, present, 0, true);
+    }
+
+    /**
+     * Creates a cumulative constraint with a time-table filtering
+     * strengthened by energetic reasoning.
+     *
+     * @param start the start time of each activity
+     * @param duration the duration of each activity (non negative)
+     * @param requirement the requirement of each activity, non negative
+     * @param capa the capacity of the constraint
+     * @param energeticPeriod the energetic reasoning is performed at every
+     *                        energeticPeriod-th search node (1 for every node),
+     *                        0 to disable it
+     */
+    public Cumulative(IntVar[] start, int[] duration, int[] requirement, int capa, int energeticPeriod) {
+        this(start, duration, requirement, capa, null, energeticPeriod, true);
     }
 
-    private Cumulative(IntVar[] start, int[] duration, int[] requirement, int capa, boolean postMirror) {
+    private Cumulative(IntVar[] start, int[] duration, int[] requirement, int capa, BoolVar[] present,
+                       int energeticPeriod, boolean postMirror) {
         super(start[0].getSolver());
         this.start = start;
         this.duration = duration;
         this.end = Factory.makeIntVarArray(start.length, i -> plus(start[i], duration[i]));
         this.demand = requirement;
         this.capa = capa;
+        this.present = present;
         this.postMirror = postMirror;
+        this.n = start.length;
+        if (present != null && present.length != n) throw new IllegalArgumentException("one presence variable per activity");
+        this.lst = new int[n];
+        this.ect = new int[n];
+        this.events = new long[2 * n];
+        this.rectStart = new int[2 * n + 1];
+        this.rectEnd = new int[2 * n + 1];
+        this.rectHeight = new int[2 * n + 1];
+        if (energeticPeriod < 0) throw new IllegalArgumentException("energeticPeriod must be non negative");
+        this.energeticPeriod = energeticPeriod;
+        this.nodeLevel = getSolver().getStateManager().makeStateInt(-1);
+        this.est = new int[n];
+        this.lct = new int[n];
+        this.t1s = new int[n];
+        this.t2s = new int[2 * n];
+        this.slopeEvents = new long[2 * n];
     }
 
 
@@ -70,11 +169,12 @@ public class Cumulative extends AbstractConstraint {
     public void post() {
         for (int i = 0; i < start.length; i++) {
             start[i].propagateOnBoundChange(this);
+            if (present != null) present[i].propagateOnFix(this);
         }
 
         if (postMirror) {
             IntVar[] startMirror = Factory.makeIntVarArray(start.length, i -> minus(end[i]));
-            getSolver().post(new Cumulative(startMirror, duration, demand, capa, false), false);
+            getSolver().post(new Cumulative(startMirror, duration, demand, capa, present, energeticPeriod, false), false);
         }
 
         propagate();
@@ -82,75 +182,247 @@ public class Cumulative extends AbstractConstraint {
 
     @Override
     public void propagate() {
-        Profile profile = buildProfile();
-        // TODO 2: check that the profile is not exceeding the capa otherwise throw an INCONSISTENCY
-        for (int i = 0; i < profile.size(); i++) {
-            if (profile.get(i).height() > capa) {
-                throw InconsistencyException.INCONSISTENCY;
-            }
+        updateProfile();
+        if (maxHeight > capa) {
+            throw InconsistencyException.INCONSISTENCY;
         }
 
-        for (int i = 0; i < start.length; i++) {
-            if (!start[i].isFixed()) {
-                // j is the index of the profile rectangle overlapping t
-                // int j = profile.rectangleIndex(start[i].min());
-                // TODO 3: postpone i to a later point in time
-                // hint:
-                // Check that at every point in the interval
-                // [start[i].getMin() ... start[i].getMin()+duration[i]-1]
-                // there is enough remaining capacity.
-                // You may also have to check the following profile rectangle(s).
-                // Note that the activity you are currently postponing
-                // may have contributed to the profile.
-
-                int mandStart = start[i].max();
-                int mandEnd   = start[i].min() + duration[i];
-                int t         = start[i].min();
-
-                while (true) {
-                    boolean fits = true;
-                    int tEnd = t + duration[i];
-
-                    // index of the rectangle that overlaps t
-                    int j = profile.rectangleIndex(t);
-
-                    // scan successive rectangles until we cover
-                    while (j < profile.size() && profile.get(j).start() < tEnd) {
-                        Profile.Rectangle rect = profile.get(j);
-                        int rectHeight = rect.height();
-
-                        // subtract i's demand if its mandatory part is already counted in this rectangle
-                        if (mandStart < rect.end() && mandEnd > rect.start()) {
-                            rectHeight -= demand[i];
-                        }
-                        // not enough remaining capacity
-                        if (rectHeight + demand[i] > capa) {
-                            t = rect.end();
-                            fits = false;
-                            break;
-                        }
-                        j++;
+        for (int i = 0; i < n; i++) {
+            boolean isPresent = isPresent(i);
+            if (isPresent ? !start[i].isFixed() : !present[i].isFixed()) {
+                // only the present activities are in the profile
+                int mandStart = isPresent ? start[i].max() : Integer.MAX_VALUE;
+                int mandEnd = start[i].min() + duration[i];
+                int t = start[i].min();
+                // push t after every rectangle overlapping [t, t+duration[i])
+                // without enough remaining capacity for i
+                for (int j = rectangleIndex(t); j < nRect && rectStart[j] < t + duration[i]; j++) {
+                    int rectHeight = this.rectHeight[j];
+                    // the mandatory part of i is already counted in this rectangle
+                    if (mandStart < rectEnd[j] && mandEnd > rectStart[j]) {
+                        rectHeight -= demand[i];
+                    }
+                    if (rectHeight + demand[i] > capa) {
+                        t = rectEnd[j];
                     }
-                    if (fits) break;   // the whole interval fits
                 }
-                // tighten the lower bound
-                if (t > start[i].min()) {
+                if (!isPresent) {
+                    if (t > start[i].max()) {
+                        present[i].fix(false);
+                    }
+                } else if (t > start[i].min()) {
                     start[i].removeBelow(t);
                 }
+            }
+        }
+
+        if (energeticPeriod > 0 && isEnergeticNode()) {
+            energeticReasoning();
+        }
+    }
+
+    private boolean isPresent(int i) {
+        return present == null || present[i].isTrue();
+    }
+
+    /**
+     * Tells if the energetic reasoning must be performed at the current search node.
+     * A new node is detected when the level of the state manager differs
+     * from the one recorded at the last propagation, which is restored
+     * to the one of the parent node upon backtrack.
+     */
+    private boolean isEnergeticNode() {
+        int level = getSolver().getStateManager().getLevel();
+        if (nodeLevel.value() != level) {
+            nodeLevel.setValue(level);
+            nodeCount++;
+        }
+        return (nodeCount - 1) % energeticPeriod == 0;
+    }
+
+    /**
+     * Minimal intersection of activity i with [t1,t2) given its
+     * earliest start and latest completion time.
+     */
+    private long minIntersection(int i, long t1, long t2) {
+        long p = duration[i];
+        long left = est[i] + p - t1; // when left-shifted
+        long right = t2 - (lct[i] - p); // when right-shifted
+        return Math.max(0, Math.min(Math.min(t2 - t1, p), Math.min(left, right)));
+    }
 
+    /**
+     * Energetic reasoning over the intervals [t1,t2) with t1 an earliest start
+     * and t2 a latest completion time or an earliest completion time.
+     * Fails if the minimal energy required in an interval exceeds
+     * the capacity, and pushes the earliest start of an activity if starting
+     * at its earliest start consumes more than the energy left in an interval.
+     */
+    private void energeticReasoning() {
+        int maxDemand = 0;
+        for (int i = 0; i < n; i++) {
+            est[i] = start[i].min();
+            lct[i] = start[i].max() + duration[i];
+            t1s[i] = est[i];
+            t2s[2 * i] = lct[i];
+            t2s[2 * i + 1] = est[i] + duration[i];
+            if (duration[i] > 0 && isPresent(i)) maxDemand = Math.max(maxDemand, demand[i]);
+        }
+        int n1 = sortDistinct(t1s, n);
+        int n2 = sortDistinct(t2s, 2 * n);
+        for (int a = 0; a < n1; a++) {
+            long t1 = t1s[a];
+            // minIntersection(i, t1, t2) = clamp(t2 - b, 0, k) with
+            // b = max(t1, lst) and k = max(0, min(p, ect - t1))
+            int nEvents = 0;
+            for (int i = 0; i < n; i++) {
+                long k = Math.min(duration[i], est[i] + duration[i] - t1);
+                if (k > 0 && demand[i] > 0 && isPresent(i)) {
+                    long b = Math.max(t1, lct[i] - duration[i]);
+                    slopeEvents[nEvents++] = (b << 32) | (2 * i);
+                    slopeEvents[nEvents++] = ((b + k) << 32) | (2 * i + 1);
+                }
+            }
+            Arrays.sort(slopeEvents, 0, nEvents);
+            long energy = 0, slope = 0, time = t1;
+            int e = 0;
+            for (int b = 0; b < n2; b++) {
+                long t2 = t2s[b];
+                if (t2 <= t1) continue;
+                while (e < nEvents && (slopeEvents[e] >> 32) <= t2) {
+                    long t = slopeEvents[e] >> 32;
+                    int ev = (int) slopeEvents[e];
+                    energy += slope * (t - time);
+                    time = t;
+                    slope += (ev & 1) == 0 ? demand[ev >> 1] : -demand[ev >> 1];
+                    e++;
+                }
+                energy += slope * (t2 - time);
+                time = t2;
+                long delta = t2 - t1;
+                long slack = capa * delta - energy;
+                if (slack < 0) {
+                    throw InconsistencyException.INCONSISTENCY;
+                }
+                if (slack >= maxDemand * delta) {
+                    continue; // no activity can consume more than the slack in this interval
+                }
+                for (int i = 0; i < n; i++) {
+                    if (demand[i] == 0 || duration[i] == 0 || start[i].isFixed() || !isPresent(i)) continue;
+                    // energy left to i in the interval, its minimal intersection is included in energy
+                    long avail = (slack + demand[i] * minIntersection(i, t1, t2)) / demand[i];
+                    long leftShift = Math.max(0, Math.min(Math.min(delta, duration[i]),
+                            Math.min(est[i] + duration[i] - t1, t2 - est[i])));
+                    if (leftShift > avail && t2 - avail > est[i]) {
+                        // i cannot start at its earliest start, it must end after t2
+                        // with at most avail units in the interval
+                        start[i].removeBelow((int) (t2 - avail));
+                        est[i] = start[i].min();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Sorts the first size values and removes the duplicates.
+     *
+     * @return the number of distinct values, at the beginning of values
+     */
+    private static int sortDistinct(int[] values, int size) {
+        if (size == 0) return 0;
+        Arrays.sort(values, 0, size);
+        int k = 1;
+        for (int i = 1; i < size; i++) {
+            if (values[i] != values[k - 1]) values[k++] = values[i];
+        }
+        return k;
+    }
+
+    /**
+     * Rebuilds the profile of the compulsory parts
+     * if one of them has changed since it was last built.
+     * The profile only depends on the compulsory parts, such that it
+     * remains valid upon backtrack as long as they are the same.
+     */
+    private void updateProfile() {
+        boolean changed = !profileValid;
+        for (int i = 0; i < n; i++) {
+            int mandStart = start[i].max();
+            int mandEnd = start[i].min() + duration[i];
+            if (mandStart >= mandEnd || !isPresent(i)) {
+                mandStart = 0;
+                mandEnd = 0;
+            }
+            if (mandStart != lst[i] || mandEnd != ect[i]) {
+                lst[i] = mandStart;
+                ect[i] = mandEnd;
+                changed = true;
+            }
+        }
+        if (!changed) return;
+
+        int nEvents = 0;
+        for (int i = 0; i < n; i++) {
+            if (lst[i] < ect[i]) {
+                events[nEvents++] = ((long) lst[i] << 32) | (2 * i);
+                events[nEvents++] = ((long) ect[i] << 32) | (2 * i + 1);
             }
         }
+        Arrays.sort(events, 0, nEvents);
+
+        nRect = 0;
+        maxHeight = 0;
+        int sweepHeight = 0;
+        int sweepTime = Integer.MIN_VALUE;
+        for (int k = 0; k < nEvents; k++) {
+            int t = (int) (events[k] >> 32);
+            int e = (int) events[k];
+            if (t != sweepTime) {
+                addRectangle(sweepTime, t, sweepHeight);
+                sweepTime = t;
+            }
+            sweepHeight += (e & 1) == 0 ? demand[e >> 1] : -demand[e >> 1];
+        }
+        if (sweepTime != Integer.MAX_VALUE) {
+            addRectangle(sweepTime, Integer.MAX_VALUE, sweepHeight);
+        }
+        profileValid = true;
+    }
+
+    private void addRectangle(int s, int e, int height) {
+        rectStart[nRect] = s;
+        rectEnd[nRect] = e;
+        rectHeight[nRect] = height;
+        nRect++;
+        maxHeight = Math.max(maxHeight, height);
+    }
+
+    /**
+     * Retrieves the rectangle of the profile overlapping a given time.
+     *
+     * @param t the time at which we want to retrieve the overlapping rectangle
+     * @return the rectangle index j such that {@code rectStart[j] <= t < rectEnd[j]}
+     */
+    private int rectangleIndex(int t) {
+        int lo = 0, hi = nRect - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (rectStart[mid] <= t) lo = mid;
+            else hi = mid - 1;
+        }
+        return lo;
     }
 
     public Profile buildProfile() {
         ArrayList<Rectangle> mandatoryParts = new ArrayList<Rectangle>();
         for (int i = 0; i < start.length; i++) {
-            // TODO 1: add mandatory part of activity i if any
             int mandStart = start[i].max();                 // latest start in current domain
             int mandEnd   = start[i].min() + duration[i];   // earliest end  (exclusive)
-            if (mandStart < mandEnd) {                      // activity really has a mandatory part
+            if (mandStart < mandEnd && isPresent(i)) {      // activity really has a mandatory part
                 mandatoryParts.add(new Rectangle(mandStart, mandEnd, demand[i]));
-            }        }
+            }
+        }
         return new Profile(mandatoryParts.toArray(new Rectangle[0]));
     }
 
@@ -21,7 +21,6 @@ import minicp.engine.core.AbstractConstraint;
 import minicp.engine.core.BoolVar;
 import minicp.engine.core.IntVar;
 import minicp.engine.core.Solver;
-import minicp.util.exception.NotImplementedException;
 
 import java.util.Arrays;
 
@@ -29,6 +28,10 @@ import static minicp.cp.Factory.*;
 
 /**
  * Cumulative constraint with sum decomposition (very slow).
+ * <p>
+ * At each time point, the overlap of each activity is reified with
+ * native reified inequalities, and the demands of the overlapping
+ * activities are bounded by a single linear inequality.
  */
 public class CumulativeDecomposition extends AbstractConstraint {
 
@@ -63,38 +66,27 @@ public class CumulativeDecomposition extends AbstractConstraint {
         int min = Arrays.stream(start).map(s -> s.min()).min(Integer::compare).get();
         int max = Arrays.stream(end).map(e -> e.max()).max(Integer::compare).get();
 
+        Solver cp = getSolver();
+        BoolVar[] overlaps = new BoolVar[start.length];
+        int[] heights = new int[start.length];
         for (int t = min; t < max; t++) {
 
-            BoolVar[] overlaps = new BoolVar[start.length];
+            // only the activities that can overlap t
+            int k = 0;
             for (int i = 0; i < start.length; i++) {
-                overlaps[i] = makeBoolVar(getSolver());
-                // TODO
-                // post the constraints to enforce
-                // that overlaps[i] is true iff start[i] <= t && t < start[i] + duration[i]
-                // hint: use IsLessOrEqual, introduce BoolVar, use views minus, plus, etc.
-                //       logical constraints (such as logical and can be modeled with sum)
-
-                Solver cp = getSolver();
-
-                // b1 (start[i] ≤ t)
+                if (start[i].min() > t || start[i].max() + duration[i] <= t)
+                    continue;
+                // overlaps is true iff start[i] <= t && t < start[i] + duration[i],
+                // that is b1 + b2 >= 2 with b1 = (start[i] <= t) and b2 = (-start[i] <= duration[i] - 1 - t)
                 BoolVar b1 = isLessOrEqual(start[i], t);
-
-                // b2 (t < start[i] + duration[i]), t ≤ end[i] − 1
-                IntVar  constT     = makeIntVar(cp, t, t);
-                IntVar  endMinus1  = minus(end[i], 1);
-                BoolVar b2         = makeBoolVar(cp);
-                cp.post(new IsLessOrEqualVar(b2, constT, endMinus1));
-
-                // overlaps[i] = b1 ∧ b2
-                cp.post(lessOrEqual(overlaps[i], b1));   // overlaps  b1
-                cp.post(lessOrEqual(overlaps[i], b2));   // overlaps  b2
-                IntVar sum12 = sum(b1, b2);              // b1 + b2
-                cp.post(lessOrEqual(sum12, plus(overlaps[i], 1)));  // if b1 & b2 then overlaps = 1
+                BoolVar b2 = isLinearLeq(new int[]{-1}, new IntVar[]{start[i]}, duration[i] - 1 - t);
+                overlaps[k] = isLinearLeq(new int[]{-1, -1}, new IntVar[]{b1, b2}, -2);
+                heights[k] = demand[i];
+                k++;
             }
 
-            IntVar[] overlapHeights = Factory.makeIntVarArray(start.length, i -> mul(overlaps[i], demand[i]));
-            IntVar cumHeight = sum(overlapHeights);
-            cumHeight.removeAbove(capa);
+            if (k > 0)
+                cp.post(linearLeq(Arrays.copyOf(heights, k), Arrays.copyOf(overlaps, k, IntVar[].class), capa));
 
         }
 
@@ -21,31 +21,60 @@ import minicp.engine.core.AbstractConstraint;
 import minicp.engine.core.BoolVar;
 import minicp.engine.core.IntVar;
 import minicp.util.exception.InconsistencyException;
-import minicp.util.exception.NotImplementedException;
 
 import java.util.Arrays;
-import java.util.Comparator;
 
 import static minicp.cp.Factory.*;
 
 /**
  * Disjunctive Scheduling Constraint:
  * Any two pairs of activities cannot overlap in time.
+ * <p>
+ * The filtering relies on the theta-tree algorithms of
+ * <i>Global Constraints in Scheduling</i>, Petr Vilim, PhD thesis, 2007:
+ * overload checking, detectable precedences, not-last and edge-finding
+ * (with a {@link ThetaLambdaTree}), each in O(n log n). They are applied on the activities
+ * and on their mirror (to obtain not-first and the symmetrical
+ * detectable precedences).
+ * By default, a capacity-one {@link Cumulative} and the binary decomposition
+ * ({@link DisjunctiveBinary}) are also posted.
+ * They can be omitted to obtain a standalone constraint with
+ * a constant number of propagators, which pays off on machines with many activities.
+ * <p>
+ * The bounds of the activities are read once per iteration of the
+ * propagation loop and the permutations sorting them are kept from
+ * one call to the next, such that they are nearly sorted and
+ * an insertion sort is fast.
+ * <p>
+ * The activities can be optional, with a presence variable
+ * (Vilim, Bartak, Cepek, <i>Extension of O(n log n) filtering algorithms
+ * for the unary resource constraint to optional activities</i>, Constraints 2005).
+ * Only the activities surely present are used to filter the others.
+ * An optional activity that would overload the resource or that
+ * cannot be scheduled in its time window is made absent,
+ * but its start time is never filtered.
  */
 public class Disjunctive extends AbstractConstraint {
 
     private final IntVar[] start;
     private final int[] duration;
     private final IntVar[] end;
+    private final int n;
 
-
-    private final Integer[] permLct;
-    private final Integer[] permEst;
+    // activities sorted by increasing est, lct, lst and ect
+    private final int[] permEst;
+    private final int[] permLct;
+    private final int[] permLst;
+    private final int[] permEct;
     private final int[] rankEst;
-    private final int[] startMin;
-    private final int[] endMax;
+    private final int[] est, ect, lst, lct;
+    private final int[] newBound; // bounds computed by a filtering algorithm before being applied
+    private final BoolVar[] present; // null if all the activities are present
+    private final boolean[] isPresent, isOptional; // presence status, updated with the bounds
 
     private final ThetaTree thetaTree;
+    private final ThetaLambdaTree thetaLambdaTree;
+    private final boolean decomposition;
     private final boolean postMirror;
 
 
@@ -61,24 +90,68 @@ public class Disjunctive extends AbstractConstraint {
         this(start, duration, true);
     }
 
+    /**
+     * Creates a disjunctive constraint that enforces
+     * that for any two pair i,j of activities we have
+     * {@code start[i]+duration[i] <= start[j] or start[j]+duration[j] <= start[i]}.
+     *
+     * @param start the start times of the activities
+     * @param duration the durations of the activities
+     * @param decomposition if true, a capacity-one cumulative constraint and
+     *                      the n(n-1)/2 binary disjunctive constraints are also posted,
+     *                      if false the theta-tree filtering alone enforces the constraint
+     */
+    public Disjunctive(IntVar[] start, int[] duration, boolean decomposition) {
+        this(start, duration, null, decomposition, true);
+    }
+
+    /**
+     * Creates a disjunctive constraint over optional activities that enforces
+     * that for any two pair i,j of present activities we have
+     * {@code start[i]+duration[i] <= start[j] or start[j]+duration[j] <= start[i]}.
+     *
+     * @param start the start times of the activities
+     * @param duration the durations of the activities
+     * @param present the presence of each activity,
+     *                an absent activity is not constrained
+     */
+    public Disjunctive(IntVar[] start, int[] duration, BoolVar[] present) {
+        this(start, duration, present, false, true);
+    }
 
-    private Disjunctive(IntVar[] start, int[] duration, boolean postMirror) {
+    private Disjunctive(IntVar[] start, int[] duration, BoolVar[] present, boolean decomposition, boolean postMirror) {
         super(start[0].getSolver());
+        if (present != null && present.length != start.length)
+            throw new IllegalArgumentException("one presence variable per activity");
+        this.present = present;
+        this.decomposition = decomposition;
         this.postMirror = postMirror;
         this.start = start;
         this.duration = duration;
         this.end = Factory.makeIntVarArray(start.length, i -> plus(start[i], duration[i]));
-
-        startMin = new int[start.length];
-        endMax = new int[start.length];
-        permEst = new Integer[start.length];
-        permLct = new Integer[start.length];
-        rankEst = new int[start.length];
-        for (int i = 0; i < start.length; i++) {
+        this.n = start.length;
+
+        est = new int[n];
+        ect = new int[n];
+        lst = new int[n];
+        lct = new int[n];
+        newBound = new int[n];
+        permEst = new int[n];
+        permLct = new int[n];
+        permLst = new int[n];
+        permEct = new int[n];
+        rankEst = new int[n];
+        isPresent = new boolean[n];
+        isOptional = new boolean[n];
+        Arrays.fill(isPresent, true);
+        for (int i = 0; i < n; i++) {
             permEst[i] = i;
             permLct[i] = i;
+            permLst[i] = i;
+            permEct[i] = i;
         }
-        thetaTree = new ThetaTree(start.length);
+        thetaTree = new ThetaTree(n);
+        thetaLambdaTree = new ThetaLambdaTree(n);
 
     }
 
@@ -86,28 +159,27 @@ public class Disjunctive extends AbstractConstraint {
     @Override
     public void post() {
 
-        for (int i = 0; i < start.length; i++) {
+        for (int i = 0; i < n; i++) {
             start[i].propagateOnBoundChange(this);
+            if (present != null) present[i].propagateOnFix(this);
         }
 
-        int[] demands = new int[start.length];
-        for (int i = 0; i < start.length; i++) {
-            demands[i] = 1;
-        }
-        getSolver().post(new Cumulative(start, duration, demands, 1), false);
-
+        if (decomposition) {
+            int[] demands = new int[n];
+            Arrays.fill(demands, 1);
+            getSolver().post(new Cumulative(start, duration, demands, 1), false);
 
-        // TODO 1: replace by posting binary decomposition (DisjunctiveBinary) using IsLessOrEqualVar
-        for (int i = 0; i < start.length; i++) {
-            for (int j = i + 1; j < start.length; j++) {
-                getSolver().post(new DisjunctiveBinary(start[i], duration[i], start[j], duration[j]), false);
+            for (int i = 0; i < n; i++) {
+                for (int j = i + 1; j < n; j++) {
+                    getSolver().post(new DisjunctiveBinary(start[i], duration[i], start[j], duration[j]), false);
+                }
             }
         }
 
-        // TODO 2: add the mirror filtering as done in the Cumulative Constraint
         if (postMirror) {
-            IntVar[] startMirror = Factory.makeIntVarArray(start.length, k -> minus(end[k]));
-            getSolver().post(new Disjunctive(startMirror, duration, false), false);
+            // the decomposition is symmetrical, only the theta-tree filtering is mirrored
+            IntVar[] startMirror = Factory.makeIntVarArray(n, k -> minus(end[k]));
+            getSolver().post(new Disjunctive(startMirror, duration, present, false, false), false);
         }
 
         propagate();
@@ -115,115 +187,250 @@ public class Disjunctive extends AbstractConstraint {
 
     @Override
     public void propagate() {
-        // HINT: for the TODO 3-6 you'll need the ThetaTree data-structure
-
-        // TODO 3: read and understand the OverLoadCheck algorithm implementation
-
-        // TODO 4: add the Detectable Precedences algorithm
-
-        // TODO 5: add the Not-Last algorithm
-
-        // TODO 6 (optional): implement the Lambda-Theta tree and implement the Edge-Finding
-
+        if (n < 2) return;
         boolean changed = true;
         while (changed) {
-            overLoadChecker();
-            changed = detectablePrecedence();
+            update();
+            checkOverLoad();
+            changed = filterDetectablePrecedence();
             // Java has short-circuit evaluation: notLast will only be called if changed is false.
-            changed = changed || notLast();
+            // In this case the bounds did not change since the update.
+            changed = changed || filterNotLast();
+            changed = changed || filterEdgeFinding();
         }
-
     }
 
+    /**
+     * Reads the bounds of the activities and sorts them.
+     */
     private void update() {
-        Arrays.sort(permEst, Comparator.comparingInt(i -> start[i].min()));
-        for (int i = 0; i < start.length; i++) {
+        for (int i = 0; i < n; i++) {
+            est[i] = start[i].min();
+            lst[i] = start[i].max();
+            ect[i] = est[i] + duration[i];
+            lct[i] = lst[i] + duration[i];
+            if (present != null) {
+                isPresent[i] = present[i].isTrue();
+                isOptional[i] = !present[i].isFixed();
+            }
+        }
+        BoundsUtil.sortByKey(permEst, est);
+        BoundsUtil.sortByKey(permLct, lct);
+        BoundsUtil.sortByKey(permLst, lst);
+        BoundsUtil.sortByKey(permEct, ect);
+        for (int i = 0; i < n; i++) {
             rankEst[permEst[i]] = i;
-            startMin[i] = start[i].min();
-            endMax[i] = end[i].max();
         }
     }
 
+    /**
+     * Fails if a subset of activities cannot be completed before its
+     * latest completion time.
+     */
     public void overLoadChecker() {
         update();
-        Arrays.sort(permLct, Comparator.comparingInt(i -> end[i].max()));
+        checkOverLoad();
+    }
+
+    private void checkOverLoad() {
+        if (present != null) {
+            checkOverLoadOptional();
+            return;
+        }
         thetaTree.reset();
-        for (int i = 0; i < start.length; i++) {
-            int activity = permLct[i];
-            thetaTree.insert(rankEst[activity], end[activity].min(), duration[activity]);
-            if (thetaTree.getECT() > end[activity].max()) {
+        for (int idx = 0; idx < n; idx++) {
+            int i = permLct[idx];
+            thetaTree.insert(rankEst[i], ect[i], duration[i]);
+            if (thetaTree.getECT() > lct[i]) {
                 throw new InconsistencyException();
             }
         }
     }
 
     /**
+     * Overload checking where the optional activities are gray
+     * in a theta-lambda tree: an optional activity overloading the
+     * present ones is made absent.
+     */
+    private void checkOverLoadOptional() {
+        thetaLambdaTree.reset();
+        for (int idx = 0; idx < n; idx++) {
+            int i = permLct[idx];
+            if (isPresent[i]) {
+                thetaLambdaTree.insertTheta(rankEst[i], ect[i], duration[i]);
+                if (thetaLambdaTree.getECT() > lct[i]) {
+                    throw new InconsistencyException();
+                }
+            } else if (isOptional[i]) {
+                thetaLambdaTree.insertLambda(rankEst[i], ect[i], duration[i]);
+            } else {
+                continue;
+            }
+            while (thetaLambdaTree.getECTBar() > lct[i]) {
+                int k = permEst[thetaLambdaTree.getResponsibleECTBar()];
+                present[k].fix(false);
+                isOptional[k] = false;
+                thetaLambdaTree.remove(rankEst[k]);
+            }
+        }
+    }
+
+    /**
+     * Pushes the earliest start of each activity i after the
+     * earliest completion time of the activities j that must precede it
+     * because {@code ect(i) > lst(j)}.
+     *
      * @return true if one domain was changed by the detectable precedence algo
      */
     public boolean detectablePrecedence() {
         update();
-        Arrays.sort(permLct, Comparator.comparingInt(i -> end[i].max()));
+        return filterDetectablePrecedence();
+    }
+
+    private boolean filterDetectablePrecedence() {
         thetaTree.reset();
         int k = 0;
-        boolean changed = false;
-
-        for (int idx = 0; idx < start.length; idx++) {
-            int j = permLct[idx];
-
-            while (k < start.length && startMin[permEst[k]] + duration[permEst[k]] <= end[j].max()) {
-                int a = permEst[k];
-                if (a != j) {
-                    thetaTree.insert(rankEst[a], startMin[a] + duration[a], duration[a]);
-                }
+        for (int idx = 0; idx < n; idx++) {
+            int i = permEct[idx];
+            while (k < n && ect[i] > lst[permLst[k]]) {
+                int j = permLst[k];
+                if (isPresent[j]) thetaTree.insert(rankEst[j], ect[j], duration[j]);
                 k++;
             }
-
-            thetaTree.remove(rankEst[j]);
-            int ect = thetaTree.getECT();
-            if (ect > start[j].min()) {
-                start[j].removeBelow(ect);
-                startMin[j] = start[j].min();
-                changed = true;
-            }
-            thetaTree.insert(rankEst[j], startMin[j] + duration[j], duration[j]);
+            // i is in the tree iff it is present and its own lst is smaller than its ect
+            boolean inserted = isPresent[i] && lst[i] < ect[i];
+            if (inserted) thetaTree.remove(rankEst[i]);
+            newBound[i] = Math.max(est[i], thetaTree.getECT());
+            if (inserted) thetaTree.insert(rankEst[i], ect[i], duration[i]);
         }
-
-        return changed;
+        return applyNewEst();
     }
 
     /**
+     * Decreases the latest completion time of each activity i
+     * that cannot be the last one of a set of activities to the
+     * largest latest start of this set.
+     *
      * @return true if one domain was changed by the not-last algo
      */
     public boolean notLast() {
         update();
-        Arrays.sort(permEst, Comparator.comparingInt(i -> start[i].min()));
-        Arrays.sort(permLct, Comparator.comparingInt(i -> end[i].max()));
+        return filterNotLast();
+    }
 
+    private boolean filterNotLast() {
         thetaTree.reset();
-        int k = start.length - 1;
+        int k = 0;
+        int lstTheta = Integer.MIN_VALUE; // largest lst in the tree
+        for (int idx = 0; idx < n; idx++) {
+            int i = permLct[idx];
+            newBound[i] = lct[i];
+            while (k < n && lct[i] > lst[permLst[k]]) {
+                int j = permLst[k];
+                if (isPresent[j]) {
+                    thetaTree.insert(rankEst[j], ect[j], duration[j]);
+                    lstTheta = lst[j];
+                }
+                k++;
+            }
+            // the activities in the tree (but i) all have a latest start smaller than lct(i)
+            boolean inserted = isPresent[i] && lst[i] < lct[i];
+            if (inserted) thetaTree.remove(rankEst[i]);
+            if (thetaTree.getECT() > lst[i]) {
+                // i must end before the start of at least one of them
+                newBound[i] = Math.min(lct[i], lstTheta);
+            }
+            if (inserted) thetaTree.insert(rankEst[i], ect[i], duration[i]);
+        }
         boolean changed = false;
-
-        for (int idx = start.length - 1; idx >= 0; idx--) {
-            int j = permEst[idx];
-
-            while (k >= 0 && end[permLct[k]].max() > startMin[j]) {
-                int a = permLct[k];
-                if (a != j) {
-                    thetaTree.insert(rankEst[a], endMax[a] - duration[a], duration[a]);
+        for (int i = 0; i < n; i++) {
+            if (newBound[i] < lct[i]) {
+                if (isPresent[i]) {
+                    end[i].removeAbove(newBound[i]);
+                    changed = true;
+                } else if (isOptional[i] && newBound[i] < ect[i]) {
+                    present[i].fix(false);
+                    changed = true;
                 }
-                k--;
             }
+        }
+        return changed;
+    }
 
-            thetaTree.remove(rankEst[j]);
-            int ect = thetaTree.getECT();
-            if (ect > endMax[j] - duration[j]) {
-                end[j].removeAbove(ect);
-                endMax[j] = end[j].max();
-                changed = true;
+    /**
+     * Pushes the earliest start of each activity i after the
+     * earliest completion time of a set of activities that must
+     * all end before i because i cannot complete before their
+     * latest completion time otherwise.
+     *
+     * @return true if one domain was changed by the edge-finding algo
+     */
+    public boolean edgeFinding() {
+        update();
+        return filterEdgeFinding();
+    }
+
+    private boolean filterEdgeFinding() {
+        thetaLambdaTree.reset();
+        for (int i = 0; i < n; i++) {
+            if (isPresent[i]) thetaLambdaTree.insertTheta(rankEst[i], ect[i], duration[i]);
+            newBound[i] = est[i];
+        }
+        // Theta is made of the present activities with the smallest lct,
+        // the activities are moved from Theta to Lambda by decreasing lct
+        int idx = previousPresent(n);
+        if (idx < 0) return false;
+        if (thetaLambdaTree.getECT() > lct[permLct[idx]]) {
+            throw new InconsistencyException();
+        }
+        int prev = previousPresent(idx);
+        while (prev >= 0) {
+            int j = permLct[idx];
+            thetaLambdaTree.insertLambda(rankEst[j], ect[j], duration[j]);
+            int lctTheta = lct[permLct[prev]];
+            if (thetaLambdaTree.getECT() > lctTheta) {
+                throw new InconsistencyException();
+            }
+            while (thetaLambdaTree.getECTBar() > lctTheta) {
+                // the gray activity responsible must be processed after all the activities of Theta
+                int i = permEst[thetaLambdaTree.getResponsibleECTBar()];
+                newBound[i] = Math.max(newBound[i], thetaLambdaTree.getECT());
+                thetaLambdaTree.remove(rankEst[i]);
             }
-            thetaTree.insert(rankEst[j], endMax[j] - duration[j], duration[j]);
+            idx = prev;
+            prev = previousPresent(idx);
         }
+        return applyNewEst();
+    }
 
+    /**
+     * @return the largest index smaller than idx of a present activity in permLct, -1 if none
+     */
+    private int previousPresent(int idx) {
+        idx--;
+        while (idx >= 0 && !isPresent[permLct[idx]]) idx--;
+        return idx;
+    }
+
+    /**
+     * Applies the earliest starts in newBound to the present activities,
+     * and makes absent the optional ones that cannot start before their latest start.
+     *
+     * @return true if one domain was changed
+     */
+    private boolean applyNewEst() {
+        boolean changed = false;
+        for (int i = 0; i < n; i++) {
+            if (newBound[i] > est[i]) {
+                if (isPresent[i]) {
+                    start[i].removeBelow(newBound[i]);
+                    changed = true;
+                } else if (isOptional[i] && newBound[i] > lst[i]) {
+                    present[i].fix(false);
+                    changed = true;
+                }
+            }
+        }
         return changed;
     }
 }
@@ -16,14 +16,11 @@
 
 package minicp.engine.constraints;
 
-import minicp.cp.Factory;
 import minicp.engine.core.AbstractConstraint;
-import minicp.engine.core.Constraint;
 import minicp.engine.core.IntVar;
 import minicp.state.StateInt;
 import minicp.state.StateManager;
 import minicp.util.exception.InconsistencyException;
-import minicp.util.exception.NotImplementedException;
 
 import java.util.Arrays;
 import java.util.Comparator;
@@ -31,14 +28,19 @@ import java.util.Comparator;
 /**
  *
  * Element Constraint modeling {@code array[y] = z}
+ * <p>
+ * The indices of the array are sorted by increasing value.
+ * The indices in the domain of y whose value is between the bounds of z
+ * lie between the reversible positions {@code low} and {@code up}
+ * in this order, which only move inwards: each propagation only visits
+ * the indices crossing the bounds of z since the last one.
  *
  */
 public class Element1D extends AbstractConstraint {
 
     private final int[] t;
 
-
-    private final Integer[] sortedPerm;
+    private final int[] sortedPerm; // indices of t by increasing value
     private final StateInt low;
     private final StateInt up;
 
@@ -57,11 +59,15 @@ public class Element1D extends AbstractConstraint {
         super(y.getSolver());
         this.t = array;
 
-        sortedPerm = new Integer[t.length];
+        Integer[] perm = new Integer[t.length];
+        for (int i = 0; i < t.length; i++) {
+            perm[i] = i;
+        }
+        Arrays.sort(perm, Comparator.comparingInt(i -> t[i]));
+        sortedPerm = new int[t.length];
         for (int i = 0; i < t.length; i++) {
-            sortedPerm[i] = i;
+            sortedPerm[i] = perm[i];
         }
-        Arrays.sort(sortedPerm,Comparator.comparingInt(i -> t[i]));
 
         StateManager sm = getSolver().getStateManager();
         low = sm.makeStateInt(0);
@@ -73,40 +79,37 @@ public class Element1D extends AbstractConstraint {
 
     @Override
     public void post() {
+        y.removeBelow(0);
+        y.removeAbove(t.length - 1);
         propagate();
 
         // re-propagate
         y.propagateOnDomainChange(this);
-        z.propagateOnDomainChange(this);   // z loses an interior value
-        z.propagateOnBoundChange(this);    // z.min()/max() tighten
+        z.propagateOnBoundChange(this);
     }
 
     @Override
     public void propagate() {
-        // 1. prune indices that are out of range or unsupported
-        int[] domY = new int[y.size()];
-        int m = y.fillArray(domY);
-
-        int newMin = Integer.MAX_VALUE;
-        int newMax = Integer.MIN_VALUE;
-
-        for (int k = 0; k < m; k++) {
-            int idx = domY[k];
-            // remove impossible indices
-            if (idx < 0 || idx >= t.length || !z.contains(t[idx])) {
-                y.remove(idx);
-                continue;
-            }
-            // still feasible -> contribute to bounds for z
-            int v = t[idx];
-            if (v < newMin) newMin = v;
-            if (v > newMax) newMax = v;
+        int l = low.value();
+        int u = up.value();
+        int zMin = z.min();
+        int zMax = z.max();
+        // 1. skip the indices removed from y and remove those below or above the bounds of z
+        while (l <= u && (!y.contains(sortedPerm[l]) || t[sortedPerm[l]] < zMin)) {
+            y.remove(sortedPerm[l]);
+            l++;
+        }
+        while (l <= u && (!y.contains(sortedPerm[u]) || t[sortedPerm[u]] > zMax)) {
+            y.remove(sortedPerm[u]);
+            u--;
         }
+        if (l > u)
+            throw InconsistencyException.INCONSISTENCY;
+        low.setValue(l);
+        up.setValue(u);
 
         // 2. tighten bounds of z
-        if (newMin == Integer.MAX_VALUE)
-            throw new InconsistencyException();
-        z.removeBelow(newMin);
-        z.removeAbove(newMax);
+        z.removeBelow(t[sortedPerm[l]]);
+        z.removeAbove(t[sortedPerm[u]]);
     }
 }
@@ -17,84 +17,178 @@ package minicp.engine.constraints;
 
 import minicp.engine.core.AbstractConstraint;
 import minicp.engine.core.IntVar;
-import minicp.util.exception.NotImplementedException;
+import minicp.state.StateInt;
+import minicp.state.StateManager;
 
+/**
+ *
+ * Domain consistent Element Constraint modeling {@code array[y] = z}
+ * with an array of variables
+ * <p>
+ * For each value v of z, the number of indices i of y
+ * such that {@code array[i]} contains v is kept in a reversible counter,
+ * and for each index i of y, the number of values of z contained in {@code array[i]}.
+ * A value of z (resp. index of y) is removed when its counter reaches zero.
+ * Once y is fixed to i, {@code array[i]} is restricted to the values of z.
+ * <p>
+ * Each variable has its own propagator that only processes the values
+ * removed from its domain since its last call, found with {@link SeenValues},
+ * and the propagator of {@code array[i]} returns immediately once i is removed from y.
+ *
+ */
 public class Element1DVar extends AbstractConstraint {
 
     private final IntVar[] array;
     private final IntVar y;
     private final IntVar z;
+    private final int n;
+
+    // values of the domains at the last call of their propagator
+    private SeenValues seenY;
+    private SeenValues seenZ;
+    private SeenValues[] seenX;
 
-    private int[] bufY = new int[0];
+    private StateInt[] supportZ; // supportZ[v - zOfs] = number of indices of y whose variable contains v
+    private StateInt[] supportY; // supportY[i] = number of values of z in array[i]
+    private int[] removed;
 
     public Element1DVar(IntVar[] array, IntVar y, IntVar z) {
         super(y.getSolver());
         this.array = array;
         this.y = y;
         this.z = z;
-
-    }
-
-    private static int[] ensure(int[] a, int need) {
-        return (a.length >= need) ? a : new int[need];
+        this.n = array.length;
     }
 
     @Override
     public void post() {
-        y.propagateOnDomainChange(this);
-        z.propagateOnDomainChange(this);
-        for (IntVar v : array)
-            v.propagateOnDomainChange(this);
+        y.removeBelow(0);
+        y.removeAbove(n - 1);
+        StateManager sm = getSolver().getStateManager();
+        seenY = new SeenValues(sm, y);
+        seenZ = new SeenValues(sm, z);
+        seenX = new SeenValues[n];
+        int maxSize = Math.max(y.size(), z.size());
+        for (int i = 0; i < n; i++) {
+            seenX[i] = new SeenValues(sm, array[i]);
+            maxSize = Math.max(maxSize, array[i].size());
+        }
+        removed = new int[maxSize];
+
+        // initial supports
+        int[] countZ = new int[seenZ.range()];
+        supportY = new StateInt[n];
+        for (int i = 0; i < n; i++) {
+            int count = 0;
+            if (seenY.contains(i)) {
+                int s = array[i].fillArray(removed);
+                for (int k = 0; k < s; k++) {
+                    if (seenZ.contains(removed[k])) {
+                        countZ[removed[k] - seenZ.ofs]++;
+                        count++;
+                    }
+                }
+            }
+            supportY[i] = sm.makeStateInt(count);
+        }
+        supportZ = new StateInt[countZ.length];
+        for (int k = 0; k < countZ.length; k++)
+            supportZ[k] = sm.makeStateInt(countZ[k]);
+
+        y.whenDomainChange(this::propagateY);
+        z.whenDomainChange(this::propagateZ);
+        for (int i = 0; i < n; i++) {
+            final int idx = i;
+            array[i].whenDomainChange(() -> propagateX(idx));
+        }
 
-        propagate();
+        for (int i = 0; i < n; i++)
+            if (supportY[i].value() == 0)
+                y.remove(i);
+        int s = z.fillArray(removed);
+        for (int k = 0; k < s; k++)
+            if (supportZ[removed[k] - seenZ.ofs].value() == 0)
+                z.remove(removed[k]);
+        filterFixedIndex();
     }
 
+    /**
+     * Processes the values removed from all the variables since the last call of their propagator.
+     */
     @Override
     public void propagate() {
-        // 1) Gather all current indices of y
-        bufY = ensure(bufY, y.size());
-        int ny = y.fillArray(bufY);
-
-        // We'll track the overall min/max of array[idx] among surviving idx
-        int newMin = Integer.MAX_VALUE;
-        int newMax = Integer.MIN_VALUE;
-
-        for (int k = 0; k < ny; k++) {
-            int idx = bufY[k];
-            // out-of-range
-            if (idx < 0 || idx >= array.length) {
-                y.remove(idx);
-                continue;
-            }
-            IntVar xi = array[idx];
-            // no interval overlap ⇒ no support
-            if (xi.max() < z.min() || xi.min() > z.max()) {
-                y.remove(idx);
-                continue;
+        propagateZ();
+        for (int i = 0; i < n; i++)
+            propagateX(i);
+        propagateY();
+    }
+
+    /**
+     * Removes the supports of the indices removed from y.
+     */
+    private void propagateY() {
+        int r = seenY.collectRemoved(y, removed);
+        for (int k = 0; k < r; k++) {
+            int i = removed[k];
+            SeenValues xi = seenX[i];
+            for (int j = 0; j < xi.size.value(); j++) {
+                int v = xi.values[j];
+                if (seenZ.contains(v))
+                    decrementZ(v);
             }
-            // record for tightening z
-            newMin = Math.min(newMin, xi.min());
-            newMax = Math.max(newMax, xi.max());
         }
+        filterFixedIndex();
+    }
 
+    /**
+     * Removes the supports of the values removed from z.
+     */
+    private void propagateZ() {
+        int r = seenZ.collectRemoved(z, removed);
+        for (int k = 0; k < r; k++) {
+            int v = removed[k];
+            for (int j = 0; j < seenY.size.value(); j++) {
+                int i = seenY.values[j];
+                if (seenX[i].contains(v))
+                    decrementY(i);
+            }
+        }
+        filterFixedIndex();
+    }
 
-        // 2) Tighten z to the gathered [newMin..newMax]
-        z.removeBelow(newMin);
-        z.removeAbove(newMax);
-
-        // 3) Bound-consistency on each array[idx] still reachable
-        int zmin = z.min();
-        int zmax = z.max();
-        int ny2  = y.fillArray(bufY);
-        for (int k = 0; k < ny2; k++) {
-            IntVar xi = array[bufY[k]];
-            xi.removeBelow(zmin);
-            xi.removeAbove(zmax);
+    /**
+     * Removes the supports of the values removed from {@code array[i]}.
+     */
+    private void propagateX(int i) {
+        if (!y.contains(i))
+            return; // array[i] does not matter anymore in this subtree
+        int r = seenX[i].collectRemoved(array[i], removed);
+        for (int k = 0; k < r; k++) {
+            int v = removed[k];
+            if (seenZ.contains(v)) {
+                decrementY(i);
+                decrementZ(v);
+            }
         }
+        filterFixedIndex();
+    }
+
+    private void decrementZ(int v) {
+        if (supportZ[v - seenZ.ofs].decrement() == 0)
+            z.remove(v);
+    }
 
-        // 4) If everything is fixed, we can sleep
-        if (y.isFixed() && z.isFixed() && array[y.min()].isFixed())
-            setActive(false);
+    private void decrementY(int i) {
+        if (supportY[i].decrement() == 0)
+            y.remove(i);
     }
 
+    private void filterFixedIndex() {
+        if (y.isFixed()) {
+            IntVar x = array[y.min()];
+            for (int v = x.min(); v <= x.max(); v++)
+                if (!z.contains(v))
+                    x.remove(v);
+        }
+    }
 }
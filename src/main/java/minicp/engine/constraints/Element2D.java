@@ -21,45 +21,123 @@ import minicp.state.StateInt;
 import minicp.state.StateManager;
 import minicp.util.exception.InconsistencyException;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.stream.IntStream;
 
 
 /**
  *
  * Element Constraint modeling {@code matrix[x][y] = z}
+ * <p>
+ * By default, the bounds of z are propagated: the cells of the matrix are sorted
+ * by increasing value, and the cells of the rows and columns still in the domains
+ * of x and y whose value is between the bounds of z lie between the reversible
+ * positions {@code low} and {@code up} in this order.
+ * The sorted {@link Cells} only depend on the matrix: they are computed
+ * for each constraint, or once and shared by all the constraints given the same cells.
+ * <p>
+ * In the domain consistent mode, intended for small domains,
+ * every value of x, y and z is checked to have a support
+ * by scanning the cells of the rows and columns in the domains of x and y.
  *
  */
 public class Element2D extends AbstractConstraint {
 
-    private final int[][] matrix;
-    private final IntVar x, y, z;
-    private int n, m;
-    private final StateInt[] nRowsSup;
-    private final StateInt[] nColsSup;
-
-    private final StateInt low;
-    private final StateInt up;
-    private final ArrayList<Triple> xyz;
+    /**
+     * The cells of a matrix by increasing value,
+     * cell k is at row {@code row[k]} and column {@code col[k]} and has value {@code val[k]}.
+     * They are computed from a copy of the matrix, so that they can be shared
+     * by several constraints and are not affected if the matrix is modified later.
+     *
+     * @see minicp.cp.Factory#element(Cells, IntVar, IntVar)
+     */
+    public static final class Cells {
+        private final int[][] matrix;
+        private final int[] row;
+        private final int[] col;
+        private final int[] val;
 
-    private static final class Triple implements Comparable<Triple> {
-        private final int x, y, z;
+        /**
+         * Sorts the cells of a matrix.
+         *
+         * @param mat the 2d array representing a matrix, copied
+         */
+        public Cells(int[][] mat) {
+            matrix = new int[mat.length][];
+            for (int i = 0; i < mat.length; i++)
+                matrix[i] = mat[i].clone();
+            int size = 0;
+            for (int[] r : matrix)
+                size += r.length;
+            // sort the cells by value, then by position
+            long[] keys = new long[size];
+            int k = 0;
+            for (int i = 0; i < matrix.length; i++)
+                for (int j = 0; j < matrix[i].length; j++, k++)
+                    keys[k] = ((long) matrix[i][j] << 32) | k;
+            Arrays.sort(keys);
+            int[] rowOf = new int[size];
+            int[] colOf = new int[size];
+            k = 0;
+            for (int i = 0; i < matrix.length; i++)
+                for (int j = 0; j < matrix[i].length; j++, k++) {
+                    rowOf[k] = i;
+                    colOf[k] = j;
+                }
+            row = new int[size];
+            col = new int[size];
+            val = new int[size];
+            for (k = 0; k < size; k++) {
+                int cell = (int) keys[k];
+                row[k] = rowOf[cell];
+                col[k] = colOf[cell];
+                val[k] = matrix[row[k]][col[k]];
+            }
+        }
 
-        private Triple(int x, int y, int z) {
-            this.x = x;
-            this.y = y;
-            this.z = z;
+        /**
+         * Returns the smallest value of the matrix.
+         *
+         * @return the smallest value of the matrix
+         */
+        public int min() {
+            return val[0];
         }
 
-        @Override
-        public int compareTo(Triple t) {
-            return z - t.z;
+        /**
+         * Returns the largest value of the matrix.
+         *
+         * @return the largest value of the matrix
+         */
+        public int max() {
+            return val[val.length - 1];
         }
     }
 
+    private final int[][] matrix;
+    private final IntVar x, y, z;
+    private int n, m;
+    private final boolean domainConsistent;
+
+    // bound consistent mode
+    private StateInt[] nRowsSup;
+    private StateInt[] nColsSup;
+    private StateInt low;
+    private StateInt up;
+    private final Cells cells;
+
+    // domain consistent mode
+    private int[] domX;
+    private int[] domY;
+    private int[] domZ;
+    private boolean[] supportedX;
+    private boolean[] supportedY;
+    private boolean[] supportedZ; // supportedZ[v - zOfs]
+    private int zOfs;
+
     /**
      * Creates an element constraint {@code mat[x][y] = z}
+     * propagating the bounds of z.
      *
      * @param mat the 2d array representing a matrix to index
      * @param x the first dimension index variable
@@ -67,23 +145,60 @@ public class Element2D extends AbstractConstraint {
      * @param z the result variable
      */
     public Element2D(int[][] mat, IntVar x, IntVar y, IntVar z) {
+        this(mat, x, y, z, false);
+    }
+
+    /**
+     * Creates an element constraint {@code mat[x][y] = z}
+     *
+     * @param mat the 2d array representing a matrix to index
+     * @param x the first dimension index variable
+     * @param y the second dimention index variable
+     * @param z the result variable
+     * @param domainConsistent true to remove every unsupported value of x, y and z,
+     *                         false to only propagate the bounds of z
+     */
+    public Element2D(int[][] mat, IntVar x, IntVar y, IntVar z, boolean domainConsistent) {
+        this(mat, domainConsistent ? null : new Cells(mat), x, y, z);
+    }
+
+    /**
+     * Creates an element constraint {@code mat[x][y] = z}
+     * propagating the bounds of z, over cells sorted once
+     * and shared with other constraints.
+     *
+     * @param cells the sorted cells of the matrix to index
+     * @param x the first dimension index variable
+     * @param y the second dimention index variable
+     * @param z the result variable
+     */
+    public Element2D(Cells cells, IntVar x, IntVar y, IntVar z) {
+        this(cells.matrix, cells, x, y, z);
+    }
+
+    private Element2D(int[][] mat, Cells cells, IntVar x, IntVar y, IntVar z) {
         super(x.getSolver());
         this.matrix = mat;
+        this.cells = cells;
+        boolean domainConsistent = cells == null;
         this.x = x;
         this.y = y;
         this.z = z;
+        this.domainConsistent = domainConsistent;
         n = matrix.length;
         this.m = matrix[0].length;
-        this.xyz = new ArrayList<Triple>();
-        for (int i = 0; i < matrix.length; i++)
-            for (int j = 0; j < matrix[i].length; j++)
-                xyz.add(new Triple(i, j, matrix[i][j]));
-        Collections.sort(xyz);
-        StateManager sm = getSolver().getStateManager();
-        low = sm.makeStateInt(0);
-        up = sm.makeStateInt(xyz.size() - 1);
-        nColsSup = IntStream.range(0, n).mapToObj(i -> sm.makeStateInt(this.m)).toArray(StateInt[]::new);
-        nRowsSup = IntStream.range(0, this.m).mapToObj(i -> sm.makeStateInt(n)).toArray(StateInt[]::new);
+        if (domainConsistent) {
+            domX = new int[n];
+            domY = new int[m];
+            supportedX = new boolean[n];
+            supportedY = new boolean[m];
+        } else {
+            StateManager sm = getSolver().getStateManager();
+            low = sm.makeStateInt(0);
+            up = sm.makeStateInt(cells.val.length - 1);
+            nColsSup = IntStream.range(0, n).mapToObj(i -> sm.makeStateInt(this.m)).toArray(StateInt[]::new);
+            nRowsSup = IntStream.range(0, this.m).mapToObj(i -> sm.makeStateInt(n)).toArray(StateInt[]::new);
+        }
     }
 
     @Override
@@ -94,33 +209,84 @@ public class Element2D extends AbstractConstraint {
         y.removeAbove(m - 1);
         x.propagateOnDomainChange(this);
         y.propagateOnDomainChange(this);
-        z.propagateOnBoundChange(this);
+        if (domainConsistent) {
+            z.propagateOnDomainChange(this);
+            domZ = new int[z.size()];
+            zOfs = z.min();
+            supportedZ = new boolean[z.max() - zOfs + 1];
+        } else {
+            z.propagateOnBoundChange(this);
+        }
         propagate();
     }
 
     private void updateSupports(int lostPos) {
-        if (nColsSup[xyz.get(lostPos).x].decrement() == 0)
-            x.remove(xyz.get(lostPos).x);
-        if (nRowsSup[xyz.get(lostPos).y].decrement() == 0)
-            y.remove(xyz.get(lostPos).y);
+        if (nColsSup[cells.row[lostPos]].decrement() == 0)
+            x.remove(cells.row[lostPos]);
+        if (nRowsSup[cells.col[lostPos]].decrement() == 0)
+            y.remove(cells.col[lostPos]);
     }
 
     @Override
     public void propagate() {
+        if (domainConsistent) {
+            propagateDomains();
+            return;
+        }
+        final int[] row = cells.row;
+        final int[] col = cells.col;
+        final int[] val = cells.val;
         int l = low.value(), u = up.value();
         int zMin = z.min(), zMax = z.max();
 
-        while (xyz.get(l).z < zMin || !x.contains(xyz.get(l).x) || !y.contains(xyz.get(l).y)) {
+        while (val[l] < zMin || !x.contains(row[l]) || !y.contains(col[l])) {
             updateSupports(l++);
             if (l > u) throw new InconsistencyException();
         }
-        while (xyz.get(u).z > zMax || !x.contains(xyz.get(u).x) || !y.contains(xyz.get(u).y)) {
+        while (val[u] > zMax || !x.contains(row[u]) || !y.contains(col[u])) {
             updateSupports(u--);
             if (l > u) throw new InconsistencyException();
         }
-        z.removeBelow(xyz.get(l).z);
-        z.removeAbove(xyz.get(u).z);
+        z.removeBelow(val[l]);
+        z.removeAbove(val[u]);
         low.setValue(l);
         up.setValue(u);
     }
+
+    /**
+     * Removes the rows, columns and values without a cell
+     * in the domains of x, y and z.
+     * Removed rows and columns have no cell with a value in z,
+     * and removed values are in no cell, so a single pass reaches the fix-point.
+     */
+    private void propagateDomains() {
+        int nX = x.fillArray(domX);
+        int nY = y.fillArray(domY);
+        Arrays.fill(supportedX, false);
+        Arrays.fill(supportedY, false);
+        Arrays.fill(supportedZ, z.min() - zOfs, z.max() - zOfs + 1, false);
+        for (int a = 0; a < nX; a++) {
+            int i = domX[a];
+            int[] rowI = matrix[i];
+            for (int b = 0; b < nY; b++) {
+                int j = domY[b];
+                int v = rowI[j];
+                if (z.contains(v)) {
+                    supportedX[i] = true;
+                    supportedY[j] = true;
+                    supportedZ[v - zOfs] = true;
+                }
+            }
+        }
+        for (int a = 0; a < nX; a++)
+            if (!supportedX[domX[a]])
+                x.remove(domX[a]);
+        for (int b = 0; b < nY; b++)
+            if (!supportedY[domY[b]])
+                y.remove(domY[b]);
+        int nZ = z.fillArray(domZ);
+        for (int c = 0; c < nZ; c++)
+            if (!supportedZ[domZ[c] - zOfs])
+                z.remove(domZ[c]);
+    }
 }
@@ -0,0 +1,297 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.core.AbstractConstraint;
+import minicp.engine.core.IntVar;
+import minicp.util.GraphUtil;
+import minicp.util.exception.InconsistencyException;
+
+import java.security.InvalidParameterException;
+
+/**
+ * Arc Consistent Global Cardinality Constraint
+ *
+ * Algorithm described in
+ * "Generalized arc consistency for global cardinality constraint" J-C. Régin, AAAI-96
+ * <p>
+ * Each value {@code values[k]} must be taken by at least {@code low[k]}
+ * and at most {@code up[k]} variables, the other values are not restricted.
+ * <p>
+ * As in {@link AllDifferentDC}, a feasible flow (each variable is assigned a value,
+ * each value is taken between its bounds) is kept from one call to the next and repaired
+ * with augmenting paths, and the values that do not belong to the strongly
+ * connected component of their variable in the residual graph are removed.
+ * The graphs are stored in flat arrays allocated once at construction,
+ * the variable-value graph being the transposed {@link VarValueGraph} of {@link AllDifferentDC}.
+ */
+public class GlobalCardinality extends AbstractConstraint {
+
+    private static final int NONE = -1;
+
+    private final IntVar[] x;
+    private final int nVar;
+    private final int nVal;
+    private final int minVal;
+    private final int[] low; // indexed by value - minVal
+    private final int[] up;
+
+    // variable-value graph and its transpose
+    private final VarValueGraph graph;
+    private final int[] adj;
+    private final int[] adjStart;
+    private final int[] valAdj;
+    private final int[] valStart;
+
+    // flow: value taken by each variable, number of variables taking each value
+    private final int[] match;
+    private final int[] count;
+
+    // augmenting path search
+    private final int[] queue;
+    private final int[] varSeen;
+    private final int[] valSeen;
+    private int magic;
+    private final int[] parentVar; // the variable taking the value of the variable
+    private final int[] viaVar; // the variable leaving the value
+    private final int[] prevValue; // the value taken by viaVar
+
+    // residual graph: variables 0..nVar-1, values nVar..nVar+nVal-1 and the sink
+    private final int nNodes;
+    private final int sink;
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] scc;
+    private final GraphUtil.Buffers buffers;
+
+    /**
+     * Creates a global cardinality constraint.
+     * <p> This constraint holds iff
+     * {@code low[k] <= |{i | x[i] == values[k]}| <= up[k]} for each k.
+     *
+     * @param x the variables
+     * @param values the distinct constrained values
+     * @param low the minimum number of occurrences of each value, same length as values
+     * @param up the maximum number of occurrences of each value, same length as values
+     */
+    public GlobalCardinality(IntVar[] x, int[] values, int[] low, int[] up) {
+        super(x[0].getSolver());
+        if (values.length != low.length || values.length != up.length)
+            throw new InvalidParameterException("values, low and up must have the same length");
+        this.x = x;
+        this.nVar = x.length;
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (IntVar xi : x) {
+            min = Math.min(min, xi.min());
+            max = Math.max(max, xi.max());
+        }
+        for (int v : values) {
+            min = Math.min(min, v);
+            max = Math.max(max, v);
+        }
+        minVal = min;
+        nVal = max - min + 1;
+        this.low = new int[nVal];
+        this.up = new int[nVal];
+        for (int v = 0; v < nVal; v++)
+            this.up[v] = nVar;
+        for (int k = 0; k < values.length; k++) {
+            if (low[k] < 0 || low[k] > up[k])
+                throw new InvalidParameterException("the bounds must satisfy 0 <= low <= up");
+            this.low[values[k] - minVal] = low[k];
+            this.up[values[k] - minVal] = Math.min(up[k], nVar);
+        }
+
+        graph = new VarValueGraph(x, minVal, nVal, true);
+        adj = graph.adj;
+        adjStart = graph.adjStart;
+        valAdj = graph.valAdj;
+        valStart = graph.valStart;
+
+        match = new int[nVar];
+        for (int i = 0; i < nVar; i++)
+            match[i] = NONE;
+        count = new int[nVal];
+
+        queue = new int[Math.max(nVar, nVal)];
+        varSeen = new int[nVar];
+        valSeen = new int[nVal];
+        parentVar = new int[nVar];
+        viaVar = new int[nVal];
+        prevValue = new int[nVal];
+
+        nNodes = nVar + nVal + 1;
+        sink = nNodes - 1;
+        offsets = new int[nNodes + 1];
+        targets = new int[graph.maxEdges() + nVar + 2 * nVal];
+        scc = new int[nNodes];
+        buffers = new GraphUtil.Buffers(nNodes);
+    }
+
+    @Override
+    public void post() {
+        for (int i = 0; i < nVar; i++) {
+            x[i].propagateOnDomainChange(this);
+        }
+        propagate();
+    }
+
+    @Override
+    public void propagate() {
+        graph.update();
+        repairFlow();
+        updateResidualGraph();
+        GraphUtil.stronglyConnectedComponents(nNodes, offsets, targets, scc, buffers);
+        graph.removeUnsupported(match, scc);
+    }
+
+    /**
+     * Removes from the previous flow the assignments whose value is no longer
+     * in the domain, and completes it into a feasible flow.
+     *
+     * @throws InconsistencyException if there is no feasible flow
+     */
+    private void repairFlow() {
+        for (int i = 0; i < nVar; i++) {
+            if (match[i] != NONE && !x[i].contains(match[i] + minVal)) {
+                count[match[i]]--;
+                match[i] = NONE;
+            }
+        }
+        for (int v = 0; v < nVal; v++) {
+            while (count[v] < low[v]) {
+                if (!increaseCount(v))
+                    throw InconsistencyException.INCONSISTENCY;
+            }
+        }
+        for (int i = 0; i < nVar; i++) {
+            if (match[i] == NONE && !assign(i))
+                throw InconsistencyException.INCONSISTENCY;
+        }
+    }
+
+    /**
+     * Breadth first search of an alternating path giving one more variable to value v0,
+     * from a variable not assigned or assigned to a value taken more than its lower bound.
+     *
+     * @param v0 a value taken less than its lower bound
+     * @return true if the count of v0 has been increased
+     */
+    private boolean increaseCount(int v0) {
+        magic++;
+        int head = 0, tail = 0;
+        queue[tail++] = v0;
+        valSeen[v0] = magic;
+        while (head < tail) {
+            int w = queue[head++];
+            for (int k = valStart[w]; k < valStart[w + 1]; k++) {
+                int i = valAdj[k];
+                if (varSeen[i] == magic || match[i] == w) continue;
+                varSeen[i] = magic;
+                int w2 = match[i];
+                if (w2 == NONE || count[w2] > low[w2]) {
+                    if (w2 != NONE) count[w2]--;
+                    count[v0]++;
+                    // i moves to w, the variable that left w to reach it moves to the previous value, ...
+                    int y = i;
+                    int val = w;
+                    while (true) {
+                        match[y] = val;
+                        if (val == v0) break;
+                        y = viaVar[val];
+                        val = prevValue[val];
+                    }
+                    return true;
+                }
+                if (valSeen[w2] != magic) {
+                    valSeen[w2] = magic;
+                    viaVar[w2] = i;
+                    prevValue[w2] = w;
+                    queue[tail++] = w2;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Breadth first search of an alternating path assigning variable i0
+     * and ending at a value taken less than its upper bound.
+     *
+     * @param i0 a variable not assigned
+     * @return true if i0 has been assigned
+     */
+    private boolean assign(int i0) {
+        magic++;
+        int head = 0, tail = 0;
+        queue[tail++] = i0;
+        varSeen[i0] = magic;
+        while (head < tail) {
+            int i = queue[head++];
+            for (int k = adjStart[i]; k < adjStart[i + 1]; k++) {
+                int v = adj[k];
+                if (v == match[i] || valSeen[v] == magic) continue;
+                valSeen[v] = magic;
+                if (count[v] < up[v]) {
+                    count[v]++;
+                    // i takes v, the variable that reached i takes the previous value of i, ...
+                    int y = i;
+                    int val = v;
+                    while (true) {
+                        int old = match[y];
+                        match[y] = val;
+                        if (y == i0) break;
+                        val = old;
+                        y = parentVar[y];
+                    }
+                    return true;
+                }
+                for (int e = valStart[v]; e < valStart[v + 1]; e++) {
+                    int j = valAdj[e];
+                    if (match[j] == v && varSeen[j] != magic) {
+                        varSeen[j] = magic;
+                        parentVar[j] = i;
+                        queue[tail++] = j;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Builds the residual graph: each variable points to its values not taken,
+     * a value points to the variables taking it, to the sink if it can be taken
+     * more and is pointed by the sink if it can be taken less.
+     */
+    private void updateResidualGraph() {
+        int k = graph.fillVariableArcs(match, offsets, targets);
+        for (int v = 0; v < nVal; v++) {
+            offsets[nVar + v] = k;
+            for (int e = valStart[v]; e < valStart[v + 1]; e++)
+                if (match[valAdj[e]] == v)
+                    targets[k++] = valAdj[e];
+            if (count[v] < up[v])
+                targets[k++] = sink;
+        }
+        offsets[sink] = k;
+        for (int v = 0; v < nVal; v++)
+            if (count[v] > low[v])
+                targets[k++] = nVar + v;
+        offsets[nNodes] = k;
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.constraints.BoundsUtil.SortedBounds;
+import minicp.engine.core.AbstractConstraint;
+import minicp.engine.core.IntVar;
+import minicp.util.exception.InconsistencyException;
+
+import java.security.InvalidParameterException;
+
+import static minicp.engine.constraints.BoundsUtil.pathMax;
+import static minicp.engine.constraints.BoundsUtil.pathMin;
+import static minicp.engine.constraints.BoundsUtil.pathSet;
+
+/**
+ * Bound Consistent Global Cardinality Constraint
+ * <p>
+ * The upper capacities are filtered with the algorithm described in
+ * "An efficient bounds consistency algorithm for the global cardinality constraint"
+ * C.-G. Quimper, P. van Beek, A. López-Ortiz, A. Golynski, S. B. Sadjad, CP-03:
+ * it is the one of {@link AllDifferentBC} where the width of an interval is replaced
+ * by the sum of the upper capacities of its values, computed with partial sums.
+ * The values with a null capacity are removed when the constraint is posted and the
+ * other ones are ranked, so that every interval of ranks has a positive capacity.
+ * <p>
+ * The lower capacities are only filtered by counting: a value that must be taken
+ * by {@code low} variables and is in the bounds of exactly {@code low} variables
+ * is assigned to them. This is weaker than {@link GlobalCardinality} but
+ * does not build any graph.
+ */
+public class GlobalCardinalityBC extends AbstractConstraint {
+
+    private static final int NONE = -1;
+
+    private final IntVar[] x;
+    private final int n;
+    private final int minVal;
+    private final int[] low; // indexed by value - minVal
+    private final int[] up;
+
+    // values with a positive upper capacity, by rank
+    private final int[] rankOf; // indexed by value - minVal, NONE if the capacity is null
+    private final int[] valueOf;
+    private final int nRanks;
+    // partialSum[r + 2] is the capacity of the ranks -2..r-1, the sentinel ranks have a capacity of 1
+    private final int[] partialSum;
+    private final int[] cover; // number of variables whose bounds contain each rank
+
+    // variables sorted by the ranks of their bounds, kept from one call to the next
+    private final SortedBounds sorted;
+    private final int[] minSorted;
+    private final int[] maxSorted;
+    private final int[] minRank;
+    private final int[] maxRank;
+    private final int[] bounds;
+
+    // union-find trees over the ranks of bounds:
+    // t for the critical capacity, h for the Hall intervals, d for the capacities
+    private final int[] t;
+    private final int[] d;
+    private final int[] h;
+
+    /**
+     * Creates a bound consistent global cardinality constraint.
+     * <p> This constraint holds iff
+     * {@code low[k] <= |{i | x[i] == values[k]}| <= up[k]} for each k.
+     *
+     * @param x the variables
+     * @param values the distinct constrained values
+     * @param low the minimum number of occurrences of each value, same length as values
+     * @param up the maximum number of occurrences of each value, same length as values
+     */
+    public GlobalCardinalityBC(IntVar[] x, int[] values, int[] low, int[] up) {
+        super(x[0].getSolver());
+        if (values.length != low.length || values.length != up.length)
+            throw new InvalidParameterException("values, low and up must have the same length");
+        this.x = x;
+        this.n = x.length;
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (IntVar xi : x) {
+            min = Math.min(min, xi.min());
+            max = Math.max(max, xi.max());
+        }
+        for (int v : values) {
+            min = Math.min(min, v);
+            max = Math.max(max, v);
+        }
+        minVal = min;
+        int nVal = max - min + 1;
+        this.low = new int[nVal];
+        this.up = new int[nVal];
+        for (int v = 0; v < nVal; v++)
+            this.up[v] = n;
+        for (int k = 0; k < values.length; k++) {
+            if (low[k] < 0 || low[k] > up[k])
+                throw new InvalidParameterException("the bounds must satisfy 0 <= low <= up");
+            this.low[values[k] - minVal] = low[k];
+            this.up[values[k] - minVal] = Math.min(up[k], n);
+        }
+
+        rankOf = new int[nVal];
+        valueOf = new int[nVal];
+        int r = 0;
+        for (int v = 0; v < nVal; v++) {
+            if (this.up[v] > 0) {
+                rankOf[v] = r;
+                valueOf[r++] = v + minVal;
+            } else {
+                rankOf[v] = NONE;
+            }
+        }
+        nRanks = r;
+        partialSum = new int[nRanks + 5];
+        for (int k = 0; k < nRanks + 4; k++) {
+            int rank = k - 2;
+            int cap = rank < 0 || rank >= nRanks ? 1 : this.up[valueOf[rank] - minVal];
+            partialSum[k + 1] = partialSum[k] + cap;
+        }
+        cover = new int[nRanks + 1];
+
+        sorted = new SortedBounds(n, v -> rankOf[v - minVal]);
+        minSorted = sorted.minSorted;
+        maxSorted = sorted.maxSorted;
+        minRank = sorted.minRank;
+        maxRank = sorted.maxRank;
+        bounds = sorted.bounds;
+        t = new int[2 * n + 2];
+        d = new int[2 * n + 2];
+        h = new int[2 * n + 2];
+    }
+
+    @Override
+    public void post() {
+        int sumLow = 0;
+        for (int v = 0; v < low.length; v++)
+            sumLow += low[v];
+        if (sumLow > n)
+            throw InconsistencyException.INCONSISTENCY;
+        for (int v = 0; v < up.length; v++) {
+            if (up[v] == 0) {
+                for (IntVar xi : x)
+                    xi.remove(v + minVal);
+            }
+        }
+        for (IntVar xi : x) {
+            xi.propagateOnBoundChange(this);
+        }
+        propagate();
+    }
+
+    @Override
+    public void propagate() {
+        sorted.sort(x);
+        filterLower();
+        filterUpper();
+        filterLowCapacities();
+    }
+
+    /**
+     * Capacity of the ranks a..b-1.
+     */
+    private int capacity(int a, int b) {
+        return partialSum[b + 2] - partialSum[a + 2];
+    }
+
+    private void filterLower() {
+        int nb = sorted.nb;
+        for (int i = 1; i <= nb + 1; i++) {
+            t[i] = h[i] = i - 1;
+            d[i] = capacity(bounds[i - 1], bounds[i]);
+        }
+        for (int i = 0; i < n; i++) {
+            int v = maxSorted[i];
+            int x0 = minRank[v];
+            int y = maxRank[v];
+            int z = pathMax(t, x0 + 1);
+            int j = t[z];
+            if (--d[z] == 0) {
+                t[z] = z + 1;
+                z = pathMax(t, t[z]);
+                t[z] = j;
+            }
+            pathSet(t, x0 + 1, z, z);
+            if (d[z] < capacity(bounds[y], bounds[z])) {
+                throw InconsistencyException.INCONSISTENCY;
+            }
+            if (h[x0] > x0) {
+                int w = pathMax(h, h[x0]);
+                x[v].removeBelow(valueOf[bounds[w]]);
+                pathSet(h, x0, w, w);
+            }
+            if (d[z] == capacity(bounds[y], bounds[z])) {
+                pathSet(h, h[y], j - 1, y); // mark the Hall interval
+                h[y] = j - 1;
+            }
+        }
+    }
+
+    private void filterUpper() {
+        int nb = sorted.nb;
+        for (int i = 0; i <= nb; i++) {
+            t[i] = h[i] = i + 1;
+            d[i] = capacity(bounds[i], bounds[i + 1]);
+        }
+        for (int i = n - 1; i >= 0; i--) {
+            int v = minSorted[i];
+            int x0 = maxRank[v];
+            int y = minRank[v];
+            int z = pathMin(t, x0 - 1);
+            int j = t[z];
+            if (--d[z] == 0) {
+                t[z] = z - 1;
+                z = pathMin(t, t[z]);
+                t[z] = j;
+            }
+            pathSet(t, x0 - 1, z, z);
+            if (d[z] < capacity(bounds[z], bounds[y])) {
+                throw InconsistencyException.INCONSISTENCY;
+            }
+            if (h[x0] < x0) {
+                int w = pathMin(h, h[x0]);
+                x[v].removeAbove(valueOf[bounds[w] - 1]);
+                pathSet(h, x0, w, w);
+            }
+            if (d[z] == capacity(bounds[z], bounds[y])) {
+                pathSet(h, h[y], j + 1, y); // mark the Hall interval
+                h[y] = j + 1;
+            }
+        }
+    }
+
+    /**
+     * Counts the variables whose bounds contain each value: the constraint fails if
+     * a value is contained less than its lower capacity and the variables are
+     * assigned to a value contained exactly its lower capacity.
+     */
+    private void filterLowCapacities() {
+        for (int r = 0; r <= nRanks; r++)
+            cover[r] = 0;
+        for (int i = 0; i < n; i++) {
+            cover[rankOf[x[i].min() - minVal]]++;
+            cover[rankOf[x[i].max() - minVal] + 1]--;
+        }
+        int c = 0;
+        for (int r = 0; r < nRanks; r++) {
+            c += cover[r];
+            int v = valueOf[r];
+            int l = low[v - minVal];
+            if (c < l)
+                throw InconsistencyException.INCONSISTENCY;
+            if (l > 0 && c == l) {
+                for (IntVar xi : x)
+                    if (xi.min() <= v && v <= xi.max())
+                        xi.fix(v);
+            }
+        }
+    }
+}
@@ -0,0 +1,333 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.core.AbstractConstraint;
+import minicp.engine.core.IntVar;
+import minicp.state.StateInt;
+import minicp.util.exception.InconsistencyException;
+
+import java.security.InvalidParameterException;
+
+/**
+ * Held-Karp lower bound on the length of a Hamiltonian circuit
+ * with a successor model.
+ * <p>
+ * This constraint only enforces {@code cost >= LB}, where LB is a lower
+ * bound on the length of any circuit compatible with the successor domains.
+ * It does not enforce the circuit itself and must be posted together with
+ * {@link Circuit} and the constraints linking the successors to the cost.
+ * <p>
+ * The bound is the Lagrangian relaxation of the 1-tree relaxation
+ * (a minimum spanning tree over the nodes {@code 1..n-1} plus the two cheapest edges of node 0)
+ * described in "The traveling-salesman problem and minimum spanning trees",
+ * M. Held, R. Karp, 1970.
+ * The relaxation is undirected: the cost of the edge {@code {i,j}} is
+ * {@code min(distances[i][j], distances[j][i])} and it can be used if
+ * j is a possible successor of i or i a possible successor of j.
+ * The multipliers are improved with subgradient iterations at each propagation,
+ * starting from the ones of the previous propagation.
+ * An edge is removed when the best 1-tree containing it exceeds {@code cost.max()}.
+ * <p>
+ * The 1-tree is not recomputed as long as its edges can still be used,
+ * since it remains a minimum one when other edges are removed.
+ */
+public class HeldKarp extends AbstractConstraint {
+
+    private static final double EPS = 1e-6;
+    private static final int ROOT_ITERATIONS_FACTOR = 10;
+
+    private final IntVar[] succ;
+    private final IntVar cost;
+    private final int n;
+    private final int iterations;
+
+    private final int[][] c; // symmetric cost of the edges
+    private final boolean[][] edge; // edges that can be used
+    private final int[] domain;
+
+    // Lagrangian multipliers, kept from one propagation to the next
+    private final double[] pi;
+    private final double[] bestPi;
+
+    // last computed 1-tree
+    private final int[] parent;
+    private final int[] order; // insertion order of the nodes 1..n-1 in the spanning tree
+    private final int[] degree;
+    private final double[] key;
+    private final int[] outside;
+    private final double[][] maxOnPath; // largest weight on the tree path between two nodes
+    private int first, second; // the two neighbors of node 0
+    private double lb; // the bound given by the last computed 1-tree
+
+    // the 1-tree is the one of the current node (or of an ancestor) iff treeStamp == stamp
+    private int stamp;
+    private final StateInt treeStamp;
+    // cost.max() used for the last edge filtering with the current 1-tree
+    private final StateInt filteredUb;
+
+    /**
+     * Creates a Held-Karp lower bound constraint.
+     *
+     * @param succ the successor variables, {@code succ[i]} is the node visited after node i
+     * @param distances the n x n matrix of distances, non negative
+     * @param cost the length of the circuit
+     */
+    public HeldKarp(IntVar[] succ, int[][] distances, IntVar cost) {
+        this(succ, distances, cost, 10);
+    }
+
+    /**
+     * Creates a Held-Karp lower bound constraint.
+     *
+     * @param succ the successor variables, {@code succ[i]} is the node visited after node i
+     * @param distances the n x n matrix of distances, non negative
+     * @param cost the length of the circuit
+     * @param iterations the number of subgradient iterations at each propagation,
+     *                   ten times more are done when the constraint is posted
+     */
+    public HeldKarp(IntVar[] succ, int[][] distances, IntVar cost, int iterations) {
+        super(cost.getSolver());
+        this.n = succ.length;
+        if (distances.length != n) throw new InvalidParameterException("distances must be a n x n matrix");
+        this.succ = succ;
+        this.cost = cost;
+        this.iterations = iterations;
+        c = new int[n][n];
+        for (int i = 0; i < n; i++) {
+            if (distances[i].length != n) throw new InvalidParameterException("distances must be a n x n matrix");
+            for (int j = 0; j < n; j++)
+                c[i][j] = Math.min(distances[i][j], distances[j][i]);
+        }
+        edge = new boolean[n][n];
+        domain = new int[n];
+        pi = new double[n];
+        bestPi = new double[n];
+        parent = new int[n];
+        order = new int[n];
+        degree = new int[n];
+        key = new double[n];
+        outside = new int[n];
+        maxOnPath = new double[n][n];
+        treeStamp = getSolver().getStateManager().makeStateInt(-1);
+        filteredUb = getSolver().getStateManager().makeStateInt(Integer.MIN_VALUE);
+    }
+
+    @Override
+    public void post() {
+        if (n < 3) return;
+        for (IntVar s : succ)
+            s.propagateOnDomainChange(this);
+        cost.propagateOnBoundChange(this);
+        filter(iterations * ROOT_ITERATIONS_FACTOR);
+    }
+
+    @Override
+    public void propagate() {
+        filter(iterations);
+    }
+
+    private void filter(int nIterations) {
+        if (treeStamp.value() != stamp || !treeEdgesAvailable()) {
+            stamp++; // the previous 1-tree is overwritten, even if the computation fails
+            updateEdges();
+            lb = optimizeMultipliers(nIterations);
+            computeMaxOnPath();
+            treeStamp.setValue(stamp);
+            filteredUb.setValue(Integer.MIN_VALUE);
+        }
+        cost.removeBelow((int) Math.ceil(lb - EPS));
+        if (filteredUb.value() == cost.max()) return; // same tree and bound, nothing new to remove
+        filteredUb.setValue(cost.max());
+        double ub = cost.max();
+        // replacement cost of each edge outside of the 1-tree
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                if (!edge[i][j] || parent[j] == i || parent[i] == j) continue;
+                double replaced;
+                if (i == 0) {
+                    if (j == first || j == second) continue;
+                    replaced = weight(0, second);
+                } else {
+                    replaced = maxOnPath[i][j];
+                }
+                if (lb + weight(i, j) - replaced > ub + EPS) {
+                    edge[i][j] = false;
+                    edge[j][i] = false;
+                    succ[i].remove(j);
+                    succ[j].remove(i);
+                }
+            }
+        }
+    }
+
+    private boolean treeEdgesAvailable() {
+        for (int v = 1; v < n; v++) {
+            int p = parent[v];
+            if (p != -1 && !available(v, p)) return false;
+        }
+        return available(0, first) && available(0, second);
+    }
+
+    private boolean available(int i, int j) {
+        return succ[i].contains(j) || succ[j].contains(i);
+    }
+
+    private void updateEdges() {
+        for (int i = 0; i < n; i++)
+            for (int j = 0; j < n; j++)
+                edge[i][j] = false;
+        for (int i = 0; i < n; i++) {
+            int s = succ[i].fillArray(domain);
+            for (int k = 0; k < s; k++) {
+                int j = domain[k];
+                if (j != i && j >= 0 && j < n) {
+                    edge[i][j] = true;
+                    edge[j][i] = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Subgradient optimization of the multipliers.
+     * On return, {@link #pi} holds the best multipliers found
+     * and the 1-tree is the one computed with them.
+     *
+     * @param nIterations the maximum number of iterations
+     * @return the best lower bound found
+     */
+    private double optimizeMultipliers(int nIterations) {
+        double ub = cost.max();
+        double best = Double.NEGATIVE_INFINITY;
+        double lambda = 2;
+        int noImprovement = 0;
+        for (int it = 0; it < nIterations; it++) {
+            double lb = oneTree();
+            if (lb > best + EPS) {
+                best = lb;
+                System.arraycopy(pi, 0, bestPi, 0, n);
+                noImprovement = 0;
+            } else if (++noImprovement >= 5) {
+                lambda /= 2;
+                noImprovement = 0;
+            }
+            if (best > ub + EPS) break; // the constraint fails
+            int norm = 0;
+            for (int i = 0; i < n; i++)
+                norm += (degree[i] - 2) * (degree[i] - 2);
+            if (norm == 0) break; // the 1-tree is a circuit, the bound is exact
+            double step = lambda * (ub - lb) / norm;
+            for (int i = 0; i < n; i++)
+                pi[i] += step * (degree[i] - 2);
+        }
+        if (best > Double.NEGATIVE_INFINITY)
+            System.arraycopy(bestPi, 0, pi, 0, n);
+        return oneTree();
+    }
+
+    private double weight(int i, int j) {
+        return c[i][j] + pi[i] + pi[j];
+    }
+
+    /**
+     * Computes the minimum 1-tree with the current multipliers (Prim's algorithm on a dense graph).
+     *
+     * @return the Lagrangian lower bound
+     * @throws InconsistencyException if no 1-tree exists
+     */
+    private double oneTree() {
+        for (int i = 0; i < n; i++) {
+            key[i] = Double.POSITIVE_INFINITY;
+            parent[i] = -1;
+            degree[i] = 0;
+        }
+        // the nodes not yet in the spanning tree are outside[0..nOutside-1]
+        int nOutside = n - 1;
+        for (int i = 0; i < nOutside; i++)
+            outside[i] = i + 1;
+        key[1] = 0;
+        double total = 0;
+        for (int k = 0; k < n - 1; k++) {
+            int best = 0;
+            for (int l = 1; l < nOutside; l++)
+                if (key[outside[l]] < key[outside[best]])
+                    best = l;
+            int u = outside[best];
+            outside[best] = outside[--nOutside];
+            if (key[u] == Double.POSITIVE_INFINITY)
+                throw InconsistencyException.INCONSISTENCY; // the nodes 1..n-1 are not connected
+            order[k] = u;
+            total += key[u];
+            if (parent[u] != -1) {
+                degree[u]++;
+                degree[parent[u]]++;
+            }
+            int[] cu = c[u];
+            boolean[] edgeU = edge[u];
+            double piU = pi[u];
+            for (int l = 0; l < nOutside; l++) {
+                int v = outside[l];
+                if (edgeU[v]) {
+                    double w = cu[v] + piU + pi[v];
+                    if (w < key[v]) {
+                        key[v] = w;
+                        parent[v] = u;
+                    }
+                }
+            }
+        }
+        // the two cheapest edges of node 0
+        first = -1;
+        second = -1;
+        for (int j = 1; j < n; j++) {
+            if (!edge[0][j]) continue;
+            if (first == -1 || weight(0, j) < weight(0, first)) {
+                second = first;
+                first = j;
+            } else if (second == -1 || weight(0, j) < weight(0, second)) {
+                second = j;
+            }
+        }
+        if (second == -1)
+            throw InconsistencyException.INCONSISTENCY;
+        degree[0] = 2;
+        degree[first]++;
+        degree[second]++;
+        total += weight(0, first) + weight(0, second);
+        for (int i = 0; i < n; i++)
+            total -= 2 * pi[i];
+        return total;
+    }
+
+    /**
+     * Computes the largest weight on the path between each pair of nodes of the spanning tree,
+     * each node being added after its parent.
+     */
+    private void computeMaxOnPath() {
+        for (int k = 1; k < n - 1; k++) {
+            int v = order[k];
+            int p = parent[v];
+            double w = weight(p, v);
+            for (int l = 0; l < k; l++) {
+                int u = order[l];
+                double m = u == p ? w : Math.max(maxOnPath[u][p], w);
+                maxOnPath[u][v] = m;
+                maxOnPath[v][u] = m;
+            }
+        }
+    }
+}
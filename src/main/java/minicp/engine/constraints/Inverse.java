@@ -0,0 +1,106 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.core.AbstractConstraint;
+import minicp.engine.core.IntVar;
+import minicp.state.StateManager;
+
+import java.security.InvalidParameterException;
+
+/**
+ * Inverse Constraint
+ * <p>
+ * {@code f[i] == j} if and only if {@code g[j] == i}.
+ * The domains of the variables are restricted to {@code 0..n-1}.
+ * <p>
+ * Each variable has its own propagator, so that a domain change
+ * only wakes up the channeling of this variable, and this propagator
+ * only processes the values removed since its last call, found with {@link SeenValues}.
+ */
+public class Inverse extends AbstractConstraint {
+
+    private final IntVar[] f;
+    private final IntVar[] g;
+    private final int n;
+
+    // values of the domains at the last call of their propagator
+    private SeenValues[] seenF;
+    private SeenValues[] seenG;
+    private int[] removed;
+
+    /**
+     * Creates an inverse constraint.
+     *
+     * @param f an array of variables
+     * @param g an array of variables of the same length
+     * @see minicp.cp.Factory#inverse(IntVar[], IntVar[])
+     */
+    public Inverse(IntVar[] f, IntVar[] g) {
+        super(f[0].getSolver());
+        if (f.length != g.length)
+            throw new InvalidParameterException("f and g must have the same length");
+        this.f = f;
+        this.g = g;
+        this.n = f.length;
+    }
+
+    @Override
+    public void post() {
+        for (int i = 0; i < n; i++) {
+            f[i].removeBelow(0);
+            f[i].removeAbove(n - 1);
+            g[i].removeBelow(0);
+            g[i].removeAbove(n - 1);
+        }
+        StateManager sm = getSolver().getStateManager();
+        seenF = new SeenValues[n];
+        seenG = new SeenValues[n];
+        for (int i = 0; i < n; i++) {
+            seenF[i] = new SeenValues(sm, f[i]);
+            seenG[i] = new SeenValues(sm, g[i]);
+        }
+        removed = new int[n];
+        // values already missing are not seen, so they are channeled here
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                if (!f[i].contains(j)) g[j].remove(i);
+                if (!g[i].contains(j)) f[j].remove(i);
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            final int k = i;
+            f[i].whenDomainChange(() -> channel(f[k], seenF[k], g, k));
+            g[i].whenDomainChange(() -> channel(g[k], seenG[k], f, k));
+        }
+        for (int i = 0; i < n; i++) {
+            channel(f[i], seenF[i], g, i);
+            channel(g[i], seenG[i], f, i);
+        }
+    }
+
+    /**
+     * Removes i from {@code other[j]} for each value j removed from x
+     * since its last call, and fixes {@code other[j]} to i if x is fixed to j.
+     */
+    private void channel(IntVar x, SeenValues seen, IntVar[] other, int i) {
+        int r = seen.collectRemoved(x, removed);
+        for (int k = 0; k < r; k++)
+            other[removed[k]].remove(i);
+        if (x.isFixed())
+            other[x.min()].fix(i);
+    }
+}
@@ -17,24 +17,20 @@ package minicp.engine.constraints;
 
 import minicp.engine.core.AbstractConstraint;
 import minicp.engine.core.BoolVar;
-import minicp.engine.core.Constraint;
 import minicp.engine.core.IntVar;
-import minicp.util.exception.NotImplementedException;
-
-import static minicp.cp.Factory.lessOrEqual;
-import static minicp.cp.Factory.plus;
 
 /**
- * Reified is less or equal constraint {@code b <=> x <= y}.
+ * Reified is less or equal constraint {@code b <=> x <= y + c}.
+ * <p>
+ * The bounds of x and y are filtered directly, without posting
+ * a less or equal constraint nor creating an offset view.
  */
 public class IsLessOrEqualVar extends AbstractConstraint {
 
     private final BoolVar b;
     private final IntVar x;
     private final IntVar y;
-
-    private final Constraint lEqC;
-    private final Constraint grC;
+    private final int c;
 
     /**
      * Creates a reified is less or equal constraint {@code b <=> x <= y}.
@@ -43,12 +39,23 @@ public class IsLessOrEqualVar extends AbstractConstraint {
      * @param y right hand side of less or equal operator
      */
     public IsLessOrEqualVar(BoolVar b, IntVar x, IntVar y) {
+        this(b, x, y, 0);
+    }
+
+    /**
+     * Creates a reified is less or equal constraint {@code b <=> x <= y + c}.
+     * @param b the truth value that will be set to true if {@code x <= y + c}, false otherwise
+     * @param x left hand side of less or equal operator
+     * @param y right hand side of less or equal operator
+     * @param c the offset added to y
+     * @see minicp.cp.Factory#isLessOrEqual(IntVar, IntVar, int)
+     */
+    public IsLessOrEqualVar(BoolVar b, IntVar x, IntVar y, int c) {
         super(x.getSolver());
         this.b = b;
         this.x = x;
         this.y = y;
-        lEqC = lessOrEqual(x, y);
-        grC = lessOrEqual(plus(y, 1), x);
+        this.c = c;
     }
 
     @Override
@@ -62,19 +69,23 @@ public class IsLessOrEqualVar extends AbstractConstraint {
     @Override
     public void propagate() {
         if (b.isTrue()) {
-            getSolver().post(lEqC, false);
-            setActive(false);
-        } else if (b.isFalse()) {
-            getSolver().post(grC, false);
-            setActive(false);
-        } else {
-            if (x.max() <= y.min()) {
-                b.fix(1);
+            // x <= y + c
+            x.removeAbove(y.max() + c);
+            y.removeBelow(x.min() - c);
+            if (x.max() <= y.min() + c)
                 setActive(false);
-            } else if (x.min() > y.max()) {
-                b.fix(0);
+        } else if (b.isFalse()) {
+            // x >= y + c + 1
+            x.removeBelow(y.min() + c + 1);
+            y.removeAbove(x.max() - c - 1);
+            if (x.min() > y.max() + c)
                 setActive(false);
-            }
+        } else if (x.max() <= y.min() + c) {
+            b.fix(true);
+            setActive(false);
+        } else if (x.min() > y.max() + c) {
+            b.fix(false);
+            setActive(false);
         }
     }
 }
@@ -0,0 +1,76 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.core.BoolVar;
+import minicp.engine.core.IntVar;
+import minicp.util.exception.InconsistencyException;
+
+/**
+ * Reified linear inequality constraint
+ * {@code b <=> a[0]*x[0]+...+a[n-1]*x[n-1] <= c}
+ * with bound consistent filtering.
+ * <p>
+ * The bounds of the weighted sum are maintained incrementally as for
+ * {@link LinearLessOrEqual}, so that b is fixed as soon as the inequality
+ * is entailed or violated, and once b is fixed the variables are filtered
+ * with {@code sum <= c} or {@code sum >= c + 1}, without creating
+ * any auxiliary variable or view.
+ */
+public class IsLinearLessOrEqual extends LinearLessOrEqual {
+
+    private final BoolVar b;
+
+    /**
+     * Creates a reified linear inequality constraint.
+     * <p> This constraint holds iff
+     * {@code b <=> a[0]*x[0]+a[1]*x[1]+...+a[n-1]*x[n-1] <= c}.
+     *
+     * @param b the truth value of the inequality
+     * @param a the coefficients
+     * @param x the non empty array of variables, same length as a
+     * @param c the right hand side
+     * @see minicp.cp.Factory#isLinearLeq(int[], IntVar[], int)
+     */
+    public IsLinearLessOrEqual(BoolVar b, int[] a, IntVar[] x, int c) {
+        super(a, x, c);
+        this.b = b;
+    }
+
+    @Override
+    public void post() {
+        if (!b.isFixed())
+            b.whenFixed(() -> getSolver().schedule(this));
+        super.post();
+    }
+
+    @Override
+    public void propagate() {
+        if (b.isTrue()) {
+            super.propagate();
+        } else if (b.isFalse()) {
+            long slackUp = sumMax.value() - (c + 1);
+            if (slackUp < 0)
+                throw InconsistencyException.INCONSISTENCY;
+            if (maxRange.value() > slackUp)
+                filter(-1, slackUp);
+        } else if (sumMax.value() <= c) {
+            b.fix(true);
+        } else if (sumMin.value() > c) {
+            b.fix(false);
+        }
+    }
+}
@@ -0,0 +1,329 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.core.AbstractConstraint;
+import minicp.engine.core.IntVar;
+
+import java.security.InvalidParameterException;
+import java.util.Arrays;
+
+/**
+ * Lane Separation Constraint
+ * <p>
+ * Plane i lands on lane {@code lane[i]} at time {@code time[i]}
+ * and two planes i and j landing on the same lane are separated
+ * by the sequence dependent delay of their types:
+ * {@code time[i] + delay[type[i]][type[j]] <= time[j]} or
+ * {@code time[j] + delay[type[j]][type[i]] <= time[i]}.
+ * <p>
+ * At each propagation, the planes surely assigned to each lane
+ * are grouped by lane with a counting sort and then sorted by time, so that
+ * each lane costs O(t k log k) for its k planes and t types. The filtering rules are:
+ * <ul>
+ *     <li>detectable precedences: if j cannot land before i
+ *     ({@code time[j].min() + delay[type[j]][type[i]] > time[i].max()}),
+ *     j lands after i and its earliest time is pushed after the earliest time of i
+ *     plus their delay (and the latest time of i symmetrically),
+ *     with a sweep for each type over the planes sorted by latest (resp. earliest) time
+ *     that keeps the largest (resp. smallest) bound;</li>
+ *     <li>a lane is removed from a plane that cannot land either before
+ *     or after one of the planes assigned to it, these planes being
+ *     found by a binary search over the planes sorted by earliest time.</li>
+ * </ul>
+ * Each variable has its own propagator that only marks its lane (or its plane
+ * if the lane is not fixed) to be filtered again, so that the lanes
+ * where nothing changed are not swept again.
+ */
+public class LaneSeparation extends AbstractConstraint {
+
+    private final IntVar[] lane;
+    private final IntVar[] time;
+    private final int[] type;
+    private final int[][] delay;
+    private final int n;
+    private final int nTypes;
+    private final int maxDelay;
+
+    private int nLanes;
+    private int[] laneStart; // planes assigned to lane l are planes[laneStart[l]..laneStart[l+1]-1]
+    private int[] laneNext;
+    private final int[] planes;
+    private final long[] byBound; // (bound, plane) packed for the sweeps
+    private final long[] byQuery;
+    private final long[] byMin; // planes of each lane sorted by earliest time
+    // lanes and planes whose filtering must be done again, marked by the variables that changed
+    private boolean[] dirtyLane;
+    private final boolean[] dirtyPlane;
+    private final int[] dirtyPlanes;
+    private int nDirtyPlanes;
+    // best bound in the sweeps, the plane giving it and the second best bound
+    private int best;
+    private int bestPlane;
+    private int second;
+
+    /**
+     * Creates a lane separation constraint.
+     *
+     * @param lane the lane of each plane
+     * @param time the landing time of each plane
+     * @param type the type of each plane, between 0 and {@code delay.length - 1}
+     * @param delay {@code delay[a][b]} is the minimum delay between a plane of type a
+     *              and a plane of type b landing after it on the same lane, non negative
+     * @see minicp.cp.Factory#laneSeparation(IntVar[], IntVar[], int[], int[][])
+     */
+    public LaneSeparation(IntVar[] lane, IntVar[] time, int[] type, int[][] delay) {
+        super(lane[0].getSolver());
+        n = lane.length;
+        if (time.length != n || type.length != n)
+            throw new InvalidParameterException("lane, time and type must have the same length");
+        nTypes = delay.length;
+        int max = 0;
+        for (int[] row : delay) {
+            if (row.length != nTypes)
+                throw new InvalidParameterException("delay must be a square matrix");
+            for (int d : row) {
+                if (d < 0)
+                    throw new InvalidParameterException("delays must be non negative");
+                max = Math.max(max, d);
+            }
+        }
+        this.lane = lane;
+        this.time = time;
+        this.type = type;
+        this.delay = delay;
+        this.maxDelay = max;
+        for (int i = 0; i < n; i++)
+            if (type[i] < 0 || type[i] >= nTypes)
+                throw new InvalidParameterException("the type of each plane must be a row of delay");
+        planes = new int[n];
+        byBound = new long[n];
+        byQuery = new long[n];
+        byMin = new long[n];
+        dirtyPlane = new boolean[n];
+        dirtyPlanes = new int[n];
+    }
+
+    @Override
+    public void post() {
+        nLanes = 0;
+        for (int i = 0; i < n; i++) {
+            lane[i].removeBelow(0);
+            nLanes = Math.max(nLanes, lane[i].max() + 1);
+        }
+        laneStart = new int[nLanes + 1];
+        laneNext = new int[nLanes];
+        dirtyLane = new boolean[nLanes];
+        Arrays.fill(dirtyLane, true);
+        for (int i = 0; i < n; i++) {
+            final int idx = i;
+            lane[i].whenFixed(() -> laneFixed(idx));
+            time[i].whenBoundChange(() -> timeChanged(idx));
+        }
+        propagate();
+    }
+
+    /**
+     * Marks the lane of plane i to be filtered again and schedules the filtering.
+     */
+    private void laneFixed(int i) {
+        dirtyLane[lane[i].min()] = true;
+        getSolver().schedule(this);
+    }
+
+    /**
+     * Marks the lane of plane i, or plane i if its lane is not fixed,
+     * to be filtered again and schedules the filtering.
+     */
+    private void timeChanged(int i) {
+        if (lane[i].isFixed()) {
+            dirtyLane[lane[i].min()] = true;
+        } else if (!dirtyPlane[i]) {
+            dirtyPlane[i] = true;
+            dirtyPlanes[nDirtyPlanes++] = i;
+        }
+        getSolver().schedule(this);
+    }
+
+    @Override
+    public void propagate() {
+        // counting sort of the planes assigned to a lane
+        Arrays.fill(laneStart, 0);
+        for (int i = 0; i < n; i++)
+            if (lane[i].isFixed())
+                laneStart[lane[i].min() + 1]++;
+        for (int l = 0; l < nLanes; l++)
+            laneStart[l + 1] += laneStart[l];
+        System.arraycopy(laneStart, 0, laneNext, 0, nLanes);
+        for (int i = 0; i < n; i++)
+            if (lane[i].isFixed())
+                planes[laneNext[lane[i].min()]++] = i;
+
+        for (int l = 0; l < nLanes; l++) {
+            int from = laneStart[l];
+            int k = laneStart[l + 1] - from;
+            if (k >= 2 && dirtyLane[l]) {
+                pushEarliest(from, k);
+                pushLatest(from, k);
+            }
+            if (k >= 1 && (dirtyLane[l] || nDirtyPlanes > 0)) {
+                for (int a = 0; a < k; a++) {
+                    int j = planes[from + a];
+                    byMin[from + a] = pack(time[j].min(), j);
+                }
+                Arrays.sort(byMin, from, from + k);
+                if (dirtyLane[l]) {
+                    for (int i = 0; i < n; i++)
+                        filterLane(i, l, from, k);
+                } else {
+                    for (int d = 0; d < nDirtyPlanes; d++)
+                        filterLane(dirtyPlanes[d], l, from, k);
+                }
+            }
+        }
+        Arrays.fill(dirtyLane, false);
+        for (int d = 0; d < nDirtyPlanes; d++)
+            dirtyPlane[dirtyPlanes[d]] = false;
+        nDirtyPlanes = 0;
+    }
+
+    private void filterLane(int i, int l, int from, int k) {
+        if (!lane[i].isFixed() && lane[i].contains(l) && conflicts(i, from, k))
+            lane[i].remove(l);
+    }
+
+    /**
+     * Pushes the earliest time of each plane j of a lane after the planes i
+     * of type a it cannot land before, that is such that
+     * {@code time[i].max() < time[j].min() + delay[type[j]][a]}.
+     * The planes of type a are added by increasing latest time and
+     * the planes j visited by increasing {@code time[j].min() + delay[type[j]][a]},
+     * keeping the largest earliest time of the added planes.
+     */
+    private void pushEarliest(int from, int k) {
+        for (int t = 0; t < nTypes; t++) {
+            int nBound = 0;
+            for (int a = 0; a < k; a++) {
+                int i = planes[from + a];
+                if (type[i] == t)
+                    byBound[nBound++] = pack(time[i].max(), i);
+                byQuery[a] = pack(time[i].min() + delay[type[i]][t], i);
+            }
+            if (nBound == 0) continue;
+            Arrays.sort(byBound, 0, nBound);
+            Arrays.sort(byQuery, 0, k);
+            reset();
+            int a = 0;
+            for (int q = 0; q < k; q++) {
+                int j = plane(byQuery[q]);
+                int limit = value(byQuery[q]);
+                while (a < nBound && value(byBound[a]) < limit) {
+                    int i = plane(byBound[a++]);
+                    add(time[i].min(), i);
+                }
+                int bound = bestPlane == j ? second : best;
+                if (bound != Integer.MIN_VALUE)
+                    time[j].removeBelow(bound + delay[t][type[j]]);
+            }
+        }
+    }
+
+    /**
+     * Pushes the latest time of each plane i of a lane before the planes j
+     * of type b that cannot land before it, that is such that
+     * {@code time[j].min() > time[i].max() - delay[b][type[i]]}.
+     * The bounds are negated to visit the planes in the same way as {@link #pushEarliest(int, int)}
+     * and keep the smallest latest time of the added planes.
+     */
+    private void pushLatest(int from, int k) {
+        for (int t = 0; t < nTypes; t++) {
+            int nBound = 0;
+            for (int a = 0; a < k; a++) {
+                int j = planes[from + a];
+                if (type[j] == t)
+                    byBound[nBound++] = pack(-time[j].min(), j);
+                byQuery[a] = pack(delay[t][type[j]] - time[j].max(), j);
+            }
+            if (nBound == 0) continue;
+            Arrays.sort(byBound, 0, nBound);
+            Arrays.sort(byQuery, 0, k);
+            reset();
+            int a = 0;
+            for (int q = 0; q < k; q++) {
+                int i = plane(byQuery[q]);
+                int limit = value(byQuery[q]);
+                while (a < nBound && value(byBound[a]) < limit) {
+                    int j = plane(byBound[a++]);
+                    add(-time[j].max(), j);
+                }
+                int bound = bestPlane == i ? second : best;
+                if (bound != Integer.MIN_VALUE)
+                    time[i].removeAbove(-bound - delay[type[i]][t]);
+            }
+        }
+    }
+
+    private void reset() {
+        best = Integer.MIN_VALUE;
+        second = Integer.MIN_VALUE;
+        bestPlane = -1;
+    }
+
+    private void add(int bound, int plane) {
+        if (bound > best) {
+            second = best;
+            best = bound;
+            bestPlane = plane;
+        } else if (bound > second) {
+            second = bound;
+        }
+    }
+
+    /**
+     * Returns true if plane i can land neither before nor after one of the
+     * k planes of a lane sorted by earliest time in {@code byMin[from..from+k-1]}.
+     * Such a plane j has {@code time[i].max() - maxDelay < time[j].min() < time[i].min() + maxDelay}.
+     */
+    private boolean conflicts(int i, int from, int k) {
+        int lo = from;
+        int hi = from + k;
+        long key = pack(time[i].max() - maxDelay, Integer.MAX_VALUE);
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (byMin[mid] <= key) lo = mid + 1;
+            else hi = mid;
+        }
+        for (int a = lo; a < from + k && value(byMin[a]) < time[i].min() + maxDelay; a++) {
+            int j = plane(byMin[a]);
+            if (time[i].min() + delay[type[i]][type[j]] > time[j].max()
+                    && time[j].min() + delay[type[j]][type[i]] > time[i].max())
+                return true;
+        }
+        return false;
+    }
+
+    private static long pack(int value, int plane) {
+        return ((long) value << 32) | plane;
+    }
+
+    private static int value(long key) {
+        return (int) (key >> 32);
+    }
+
+    private static int plane(long key) {
+        return (int) key;
+    }
+}
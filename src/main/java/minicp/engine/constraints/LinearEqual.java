@@ -0,0 +1,51 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.core.IntVar;
+import minicp.util.exception.InconsistencyException;
+
+/**
+ * Linear equality constraint {@code a[0]*x[0]+...+a[n-1]*x[n-1] == c}
+ * with bound consistent filtering.
+ *
+ * @see LinearLessOrEqual
+ */
+public class LinearEqual extends LinearLessOrEqual {
+
+    /**
+     * Creates a linear equality constraint.
+     * <p> This constraint holds iff
+     * {@code a[0]*x[0]+a[1]*x[1]+...+a[n-1]*x[n-1] == c}.
+     *
+     * @param a the coefficients
+     * @param x the non empty array of variables, same length as a
+     * @param c the right hand side
+     */
+    public LinearEqual(int[] a, IntVar[] x, int c) {
+        super(a, x, c);
+    }
+
+    @Override
+    public void propagate() {
+        long slackLow = c - sumMin.value();
+        long slackUp = sumMax.value() - c;
+        if (slackLow < 0 || slackUp < 0)
+            throw InconsistencyException.INCONSISTENCY;
+        if (maxRange.value() > Math.min(slackLow, slackUp))
+            filter(slackLow, slackUp);
+    }
+}
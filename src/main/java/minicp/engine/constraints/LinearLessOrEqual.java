@@ -0,0 +1,187 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.core.AbstractConstraint;
+import minicp.engine.core.IntVar;
+import minicp.state.StateInt;
+import minicp.state.StateLong;
+import minicp.state.StateManager;
+import minicp.util.exception.InconsistencyException;
+
+import java.security.InvalidParameterException;
+import java.util.stream.IntStream;
+
+/**
+ * Linear inequality constraint {@code a[0]*x[0]+...+a[n-1]*x[n-1] <= c}
+ * with bound consistent filtering.
+ * <p>
+ * The coefficients are stored in an array (no multiplication view is created)
+ * and can be negative.
+ * As for {@link Sum}, the bounds of the weighted sum are maintained incrementally
+ * from the bound changes of the variables, and the filtering of the variables
+ * is only done when the slack is smaller than the largest
+ * range of a term.
+ */
+public class LinearLessOrEqual extends AbstractConstraint {
+
+    protected final int[] a;
+    protected final IntVar[] x;
+    protected final long c;
+    protected final int n;
+
+    // sum of the smallest (resp. largest) possible contribution a[i]*x[i] of each term
+    protected final StateLong sumMin, sumMax;
+    private final StateInt[] min, max; // last bounds of each variable included in sumMin, sumMax
+    protected final StateLong maxRange; // upper bound on the largest |a[i]|*(max-min) of the not-fixed terms
+    private final int[] fixed;
+    private final StateInt nFixed;
+
+    /**
+     * Creates a linear inequality constraint.
+     * <p> This constraint holds iff
+     * {@code a[0]*x[0]+a[1]*x[1]+...+a[n-1]*x[n-1] <= c}.
+     *
+     * @param a the coefficients
+     * @param x the non empty array of variables, same length as a
+     * @param c the right hand side
+     */
+    public LinearLessOrEqual(int[] a, IntVar[] x, int c) {
+        super(x[0].getSolver());
+        if (a.length != x.length) throw new InvalidParameterException("a and x must have the same length");
+        // terms with a zero coefficient are useless
+        int[] nonZero = IntStream.range(0, a.length).filter(i -> a[i] != 0).toArray();
+        this.n = nonZero.length;
+        this.a = new int[n];
+        this.x = new IntVar[n];
+        for (int k = 0; k < n; k++) {
+            this.a[k] = a[nonZero[k]];
+            this.x[k] = x[nonZero[k]];
+        }
+        this.c = c;
+        StateManager sm = getSolver().getStateManager();
+        min = new StateInt[n];
+        max = new StateInt[n];
+        for (int i = 0; i < n; i++) {
+            min[i] = sm.makeStateInt(0);
+            max[i] = sm.makeStateInt(0);
+        }
+        sumMin = sm.makeStateLong(0);
+        sumMax = sm.makeStateLong(0);
+        maxRange = sm.makeStateLong(Long.MAX_VALUE);
+        nFixed = sm.makeStateInt(0);
+        fixed = IntStream.range(0, n).toArray();
+    }
+
+    @Override
+    public void post() {
+        long sMin = 0, sMax = 0;
+        for (int i = 0; i < n; i++) {
+            min[i].setValue(x[i].min());
+            max[i].setValue(x[i].max());
+            sMin += lowContribution(i, x[i].min(), x[i].max());
+            sMax += highContribution(i, x[i].min(), x[i].max());
+        }
+        sumMin.setValue(sMin);
+        sumMax.setValue(sMax);
+        for (int i = 0; i < n; i++) {
+            final int idx = i;
+            x[i].whenBoundChange(() -> boundChanged(idx));
+        }
+        propagate();
+    }
+
+    private long lowContribution(int i, int xMin, int xMax) {
+        return a[i] > 0 ? (long) a[i] * xMin : (long) a[i] * xMax;
+    }
+
+    private long highContribution(int i, int xMin, int xMax) {
+        return a[i] > 0 ? (long) a[i] * xMax : (long) a[i] * xMin;
+    }
+
+    /**
+     * Updates the bounds of the weighted sum with the new bounds of x[i]
+     * and schedules the filtering.
+     *
+     * @param i the index of the variable whose bounds have changed
+     */
+    private void boundChanged(int i) {
+        int xMin = x[i].min(), xMax = x[i].max();
+        int oldMin = min[i].value(), oldMax = max[i].value();
+        sumMin.add(lowContribution(i, xMin, xMax) - lowContribution(i, oldMin, oldMax));
+        sumMax.add(highContribution(i, xMin, xMax) - highContribution(i, oldMin, oldMax));
+        min[i].setValue(xMin);
+        max[i].setValue(xMax);
+        getSolver().schedule(this);
+    }
+
+    @Override
+    public void propagate() {
+        long slackLow = c - sumMin.value();
+        if (slackLow < 0)
+            throw InconsistencyException.INCONSISTENCY;
+        if (maxRange.value() > slackLow)
+            filter(slackLow, -1);
+    }
+
+    /**
+     * Filters the not-fixed variables such that
+     * the contribution of each term can increase by at most slackLow
+     * from its smallest one, and decrease by at most slackUp from
+     * its largest one.
+     *
+     * @param slackLow the slack {@code c - sumMin}, non negative,
+     *                 or a negative value to filter only with slackUp
+     * @param slackUp the slack {@code sumMax - c}, non negative,
+     *                or a negative value to filter only with slackLow
+     */
+    protected void filter(long slackLow, long slackUp) {
+        int nF = nFixed.value();
+        long range = 0;
+        for (int k = nF; k < n; k++) {
+            int i = fixed[k];
+            int ai = a[i];
+            long abs = Math.abs((long) ai);
+            // the bounds included in sumMin and sumMax, possibly larger than the current ones
+            int xMin = min[i].value(), xMax = max[i].value();
+            if (slackLow >= 0) {
+                long maxIncr = slackLow / abs; // the value of a[i]*x[i] can increase by at most slackLow
+                if (ai > 0) {
+                    if (xMin + maxIncr < x[i].max()) x[i].removeAbove((int) (xMin + maxIncr));
+                } else {
+                    if (xMax - maxIncr > x[i].min()) x[i].removeBelow((int) (xMax - maxIncr));
+                }
+            }
+            if (slackUp >= 0) {
+                long maxDecr = slackUp / abs; // the value of a[i]*x[i] can decrease by at most slackUp
+                if (ai > 0) {
+                    if (xMax - maxDecr > x[i].min()) x[i].removeBelow((int) (xMax - maxDecr));
+                } else {
+                    if (xMin + maxDecr < x[i].max()) x[i].removeAbove((int) (xMin + maxDecr));
+                }
+            }
+            if (x[i].isFixed()) {
+                fixed[k] = fixed[nF]; // Swap the variables
+                fixed[nF] = i;
+                nF++;
+            } else {
+                range = Math.max(range, abs * ((long) x[i].max() - x[i].min()));
+            }
+        }
+        nFixed.setValue(nF);
+        maxRange.setValue(range);
+    }
+}
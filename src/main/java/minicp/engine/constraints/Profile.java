@@ -127,10 +127,15 @@ public class Profile {
      * @return the rectangle index r of the profile such that {@code r.start <= t} and {@code r.end > t}
      */
     public int rectangleIndex(int t) {
-        for (int i = 0; i < profileRectangles.length; i++) {
-            if (profileRectangles[i].start <= t && profileRectangles[i].end > t)
-                return i;
+        // the rectangles are contiguous and sorted: binary search on their start
+        int lo = 0, hi = profileRectangles.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (profileRectangles[mid].start <= t) lo = mid;
+            else hi = mid - 1;
         }
+        if (lo < profileRectangles.length && profileRectangles[lo].start <= t && profileRectangles[lo].end > t)
+            return lo;
         return -1;
     }
 
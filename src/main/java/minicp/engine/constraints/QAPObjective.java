@@ -0,0 +1,345 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.core.AbstractConstraint;
+import minicp.engine.core.IntVar;
+import minicp.util.exception.InconsistencyException;
+
+import java.security.InvalidParameterException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+/**
+ * Gilmore-Lawler lower bound on the cost of a Quadratic Assignment
+ * {@code cost = sum_{i,j} weights[i][j] * distances[x[i]][x[j]]}.
+ * <p>
+ * This constraint enforces {@code cost >= LB}, and {@code cost} equal to the
+ * total cost once all the facilities are placed.
+ * It assumes that x is a permutation and must be posted
+ * together with an all different constraint on x.
+ * <p>
+ * The bound is described in
+ * "Optimal and suboptimal algorithms for the quadratic assignment problem",
+ * P. C. Gilmore, 1962 and "The quadratic assignment problem", E. L. Lawler, 1963.
+ * The cost of the placed facilities is exact. Placing a facility i in a free location k
+ * costs its interactions with the placed facilities plus a lower bound on its
+ * interactions with the other facilities: the minimum scalar product of the weights
+ * of i with them and the distances of k to the other free locations,
+ * obtained by pairing the largest weights with the smallest distances.
+ * LB is the cost of the placed facilities plus the minimum cost assignment
+ * of the other facilities to the free locations in their domain,
+ * computed with the Hungarian algorithm.
+ * <p>
+ * The Hungarian algorithm starts from the dual values of the locations
+ * and the assignment of the previous propagation: the dual values of the facilities
+ * are set to the smallest reduced costs, the previous assignments still
+ * of null reduced cost are kept, and only the other facilities are assigned.
+ * With the reduced cost filtering, a location is removed from the domain of a
+ * facility when LB plus the reduced cost of this assignment exceeds {@code cost.max()}.
+ */
+public class QAPObjective extends AbstractConstraint {
+
+    private static final long INF = Long.MAX_VALUE / 4;
+
+    private final int[][] w;
+    private final int[][] d;
+    private final IntVar[] x;
+    private final IntVar cost;
+    private final int n;
+    private final boolean reducedCostFiltering;
+
+    private final int[][] wDecreasing; // wDecreasing[i] = facilities by decreasing weight w[i][.]
+    private final int[][] dIncreasing; // dIncreasing[k] = locations by increasing distance d[k][.]
+
+    private final boolean[] placed; // placed facilities
+    private final boolean[] taken; // locations of the placed facilities
+    private final int[] facilities; // facilities not placed
+    private final int[] locations; // free locations
+    private final int[] placedFacilities;
+    private final long[] weightsToOthers;
+    private final long[][] c; // assignment cost of facilities[r] to locations[s]
+
+    // Hungarian algorithm, rows and columns indexed from 1
+    private final long[] u;
+    private final long[] v;
+    private final long[] minv;
+    private final int[] p; // p[s] = row assigned to column s
+    private final int[] way;
+    private final boolean[] used;
+    private final boolean[] rowAssigned;
+
+    // dual values and assignment of the locations at the last propagation
+    private final long[] dualOfLocation;
+    private final int[] facilityOfLocation;
+    private final int[] rowOfFacility;
+
+    /**
+     * Creates a Gilmore-Lawler lower bound constraint with reduced cost filtering.
+     *
+     * @param weights the n x n matrix of weights between facilities
+     * @param distances the n x n matrix of distances between locations
+     * @param x the location of each facility
+     * @param cost the total cost of the assignment
+     */
+    public QAPObjective(int[][] weights, int[][] distances, IntVar[] x, IntVar cost) {
+        this(weights, distances, x, cost, true);
+    }
+
+    /**
+     * Creates a Gilmore-Lawler lower bound constraint.
+     *
+     * @param weights the n x n matrix of weights between facilities
+     * @param distances the n x n matrix of distances between locations
+     * @param x the location of each facility
+     * @param cost the total cost of the assignment
+     * @param reducedCostFiltering true to remove the locations whose
+     *                             reduced cost makes the bound exceed {@code cost.max()}
+     */
+    public QAPObjective(int[][] weights, int[][] distances, IntVar[] x, IntVar cost, boolean reducedCostFiltering) {
+        super(cost.getSolver());
+        this.n = x.length;
+        if (weights.length != n || distances.length != n)
+            throw new InvalidParameterException("weights and distances must be n x n matrices");
+        for (int i = 0; i < n; i++)
+            if (weights[i].length != n || distances[i].length != n)
+                throw new InvalidParameterException("weights and distances must be n x n matrices");
+        this.w = weights;
+        this.d = distances;
+        this.x = x;
+        this.cost = cost;
+        this.reducedCostFiltering = reducedCostFiltering;
+
+        wDecreasing = new int[n][];
+        dIncreasing = new int[n][];
+        for (int i = 0; i < n; i++) {
+            final int[] wi = w[i];
+            final int[] di = d[i];
+            wDecreasing[i] = IntStream.range(0, n).boxed()
+                    .sorted(Comparator.comparingInt(j -> -wi[j]))
+                    .mapToInt(Integer::intValue).toArray();
+            dIncreasing[i] = IntStream.range(0, n).boxed()
+                    .sorted(Comparator.comparingInt(l -> di[l]))
+                    .mapToInt(Integer::intValue).toArray();
+        }
+
+        placed = new boolean[n];
+        taken = new boolean[n];
+        facilities = new int[n];
+        locations = new int[n];
+        placedFacilities = new int[n];
+        weightsToOthers = new long[n];
+        c = new long[n][n];
+        u = new long[n + 1];
+        v = new long[n + 1];
+        minv = new long[n + 1];
+        p = new int[n + 1];
+        way = new int[n + 1];
+        used = new boolean[n + 1];
+        rowAssigned = new boolean[n];
+        dualOfLocation = new long[n];
+        facilityOfLocation = new int[n];
+        Arrays.fill(facilityOfLocation, -1);
+        rowOfFacility = new int[n];
+    }
+
+    @Override
+    public void post() {
+        for (IntVar xi : x) {
+            xi.removeBelow(0);
+            xi.removeAbove(n - 1);
+            xi.propagateOnDomainChange(this);
+        }
+        cost.propagateOnBoundChange(this);
+        propagate();
+    }
+
+    @Override
+    public void propagate() {
+        // placed facilities and free locations
+        Arrays.fill(taken, false);
+        int m = 0;
+        int nPlaced = 0;
+        for (int i = 0; i < n; i++) {
+            placed[i] = x[i].isFixed();
+            if (placed[i]) {
+                int k = x[i].min();
+                if (taken[k]) throw InconsistencyException.INCONSISTENCY;
+                taken[k] = true;
+                placedFacilities[nPlaced++] = i;
+                rowOfFacility[i] = -1;
+            } else {
+                rowOfFacility[i] = m;
+                facilities[m++] = i;
+            }
+        }
+        int nFree = 0;
+        for (int k = 0; k < n; k++)
+            if (!taken[k])
+                locations[nFree++] = k;
+
+        long fixedCost = 0;
+        for (int a = 0; a < nPlaced; a++) {
+            int i = placedFacilities[a];
+            for (int b = 0; b < nPlaced; b++) {
+                int j = placedFacilities[b];
+                fixedCost += (long) w[i][j] * d[x[i].min()][x[j].min()];
+            }
+        }
+        if (m == 0) {
+            if (fixedCost > cost.max()) throw InconsistencyException.INCONSISTENCY;
+            cost.fix((int) fixedCost);
+            return;
+        }
+
+        computeCosts(m, nPlaced);
+        long assignment = assign(m);
+        long lb = fixedCost + assignment;
+        if (lb > cost.max()) throw InconsistencyException.INCONSISTENCY;
+        cost.removeBelow((int) lb);
+
+        if (reducedCostFiltering) {
+            long gap = cost.max() - lb;
+            for (int r = 0; r < m; r++) {
+                IntVar xi = x[facilities[r]];
+                for (int s = 0; s < m; s++) {
+                    if (c[r][s] < INF && c[r][s] - u[r + 1] - v[s + 1] > gap)
+                        xi.remove(locations[s]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes the cost of placing each facility not placed in each free location.
+     */
+    private void computeCosts(int m, int nPlaced) {
+        for (int r = 0; r < m; r++) {
+            int i = facilities[r];
+            // weights of i to the other facilities not placed, by decreasing value
+            int nw = 0;
+            for (int j : wDecreasing[i])
+                if (!placed[j] && j != i)
+                    weightsToOthers[nw++] = w[i][j];
+            for (int s = 0; s < m; s++) {
+                int k = locations[s];
+                if (!x[i].contains(k)) {
+                    c[r][s] = INF;
+                    continue;
+                }
+                long ck = (long) w[i][i] * d[k][k];
+                for (int a = 0; a < nPlaced; a++) {
+                    int j = placedFacilities[a];
+                    int l = x[j].min();
+                    ck += (long) w[i][j] * d[k][l] + (long) w[j][i] * d[l][k];
+                }
+                // minimum scalar product with the distances to the other free locations
+                int t = 0;
+                for (int l : dIncreasing[k]) {
+                    if (t == nw) break;
+                    if (!taken[l] && l != k)
+                        ck += weightsToOthers[t++] * d[k][l];
+                }
+                c[r][s] = ck;
+            }
+        }
+    }
+
+    /**
+     * Minimum cost assignment of the m facilities not placed to the m free locations,
+     * starting from the dual values and assignment of the previous propagation.
+     *
+     * @return the cost of the assignment
+     */
+    private long assign(int m) {
+        // dual values: the previous ones for the locations,
+        // the smallest reduced cost for the facilities
+        for (int s = 1; s <= m; s++)
+            v[s] = dualOfLocation[locations[s - 1]];
+        for (int r = 1; r <= m; r++) {
+            long best = INF;
+            for (int s = 1; s <= m; s++)
+                if (c[r - 1][s - 1] < INF)
+                    best = Math.min(best, c[r - 1][s - 1] - v[s]);
+            if (best == INF) throw InconsistencyException.INCONSISTENCY;
+            u[r] = best;
+        }
+        // keep the previous assignments of null reduced cost
+        Arrays.fill(p, 0, m + 1, 0);
+        Arrays.fill(rowAssigned, 0, m, false);
+        for (int s = 1; s <= m; s++) {
+            int i = facilityOfLocation[locations[s - 1]];
+            if (i < 0 || rowOfFacility[i] < 0) continue;
+            int r = rowOfFacility[i] + 1;
+            if (!rowAssigned[r - 1] && c[r - 1][s - 1] < INF && c[r - 1][s - 1] - u[r] - v[s] == 0) {
+                p[s] = r;
+                rowAssigned[r - 1] = true;
+            }
+        }
+        // assign the other facilities along shortest augmenting paths
+        for (int r = 1; r <= m; r++) {
+            if (rowAssigned[r - 1]) continue;
+            p[0] = r;
+            int s0 = 0;
+            Arrays.fill(minv, 0, m + 1, INF);
+            Arrays.fill(used, 0, m + 1, false);
+            do {
+                used[s0] = true;
+                int r0 = p[s0];
+                long delta = INF;
+                int s1 = 0;
+                for (int s = 1; s <= m; s++) {
+                    if (!used[s]) {
+                        long cur = c[r0 - 1][s - 1] < INF ? c[r0 - 1][s - 1] - u[r0] - v[s] : INF;
+                        if (cur < minv[s]) {
+                            minv[s] = cur;
+                            way[s] = s0;
+                        }
+                        if (minv[s] < delta) {
+                            delta = minv[s];
+                            s1 = s;
+                        }
+                    }
+                }
+                if (delta >= INF / 2) throw InconsistencyException.INCONSISTENCY; // no augmenting path
+                for (int s = 0; s <= m; s++) {
+                    if (used[s]) {
+                        u[p[s]] += delta;
+                        v[s] -= delta;
+                    } else {
+                        minv[s] -= delta;
+                    }
+                }
+                s0 = s1;
+            } while (p[s0] != 0);
+            do {
+                int s1 = way[s0];
+                p[s0] = p[s1];
+                s0 = s1;
+            } while (s0 != 0);
+        }
+        // store the dual values and the assignment for the next propagation
+        long total = 0;
+        for (int s = 1; s <= m; s++) {
+            int k = locations[s - 1];
+            dualOfLocation[k] = v[s];
+            facilityOfLocation[k] = facilities[p[s] - 1];
+            total += c[p[s] - 1][s - 1];
+        }
+        return total;
+    }
+}
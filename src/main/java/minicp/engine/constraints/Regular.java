@@ -0,0 +1,309 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.core.AbstractConstraint;
+import minicp.engine.core.IntVar;
+import minicp.state.StateInt;
+import minicp.state.StateManager;
+import minicp.state.StateSparseSet;
+import minicp.util.Automaton;
+import minicp.util.exception.InconsistencyException;
+
+import java.util.Arrays;
+
+/**
+ * Regular constraint with the incremental layered graph
+ * filtering achieving domain consistency.
+ * <p><i>A Regular Language Membership Constraint for Finite Sequences of Variables</i>
+ * Gilles Pesant, CP 2004.
+ * <p>
+ * The layered graph has one layer of nodes per position (plus a final one)
+ * and one node per state of the automaton in each layer.
+ * An arc labelled v links node (i,q) to node (i+1,q') if
+ * v is in the domain of x[i] and the automaton goes from q to q' on v.
+ * Only nodes on a path from the initial node to an accepting node
+ * of the last layer are kept. For each node, the number of alive incoming and outgoing arcs
+ * and for each variable-value, the number of alive arcs labelled by it are
+ * reversible counters such that only the removed values
+ * (and the arcs they invalidate) need to be considered at each propagation.
+ */
+public class Regular extends AbstractConstraint {
+
+    private final IntVar[] x;
+    private final int n;
+    private final int nStates;
+    private final Automaton automaton;
+
+    private final int vMin; // smallest label of the automaton
+    private final int nVal; // number of labels in the range [vMin..vMax]
+    private final int[][] delta; // delta[q][v-vMin] = destination from q on v, -1 if none
+    private final int[][] outVal, outDest; // transitions leaving each state
+    private final int[][] inVal, inSrc; // transitions entering each state
+
+    // nbIn[i][q] = number of alive arcs entering node (i,q), -1 if the node is removed
+    private final StateInt[][] nbIn;
+    // nbOut[i][q] = number of alive arcs leaving node (i,q), -1 if the node is removed
+    private final StateInt[][] nbOut;
+    // nbSupport[i][v-vMin] = number of alive arcs labelled v between layers i and i+1
+    private final StateInt[][] nbSupport;
+    // supported values of x[i], always equal to the domain of x[i] at the end of propagate
+    private final StateSparseSet[] supported;
+
+    private final int[] queue; // nodes (i*nStates+q) whose in or out counter reached zero
+    private int qHead, qTail;
+    private final int[] values;
+
+    /**
+     * Creates a regular constraint.
+     * <p> This constraint holds iff
+     * the sequence {@code x[0],x[1],...,x[x.length-1]} is a word
+     * accepted by the automaton.
+     *
+     * @param x the non empty sequence of variables
+     * @param automaton a deterministic automaton
+     */
+    public Regular(IntVar[] x, Automaton automaton) {
+        super(x[0].getSolver());
+        this.x = x;
+        this.n = x.length;
+        this.automaton = automaton;
+        this.nStates = automaton.nStates();
+
+        int min = Integer.MAX_VALUE, max = Integer.MIN_VALUE;
+        for (int t = 0; t < automaton.nTransitions(); t++) {
+            min = Math.min(min, automaton.value(t));
+            max = Math.max(max, automaton.value(t));
+        }
+        if (automaton.nTransitions() == 0) {
+            min = 0;
+            max = 0;
+        }
+        vMin = min;
+        nVal = max - min + 1;
+
+        delta = new int[nStates][nVal];
+        for (int[] row : delta)
+            Arrays.fill(row, -1);
+        int[] nOut = new int[nStates];
+        int[] nIn = new int[nStates];
+        for (int t = 0; t < automaton.nTransitions(); t++) {
+            delta[automaton.from(t)][automaton.value(t) - vMin] = automaton.to(t);
+            nOut[automaton.from(t)]++;
+            nIn[automaton.to(t)]++;
+        }
+        outVal = new int[nStates][];
+        outDest = new int[nStates][];
+        inVal = new int[nStates][];
+        inSrc = new int[nStates][];
+        for (int q = 0; q < nStates; q++) {
+            outVal[q] = new int[nOut[q]];
+            outDest[q] = new int[nOut[q]];
+            inVal[q] = new int[nIn[q]];
+            inSrc[q] = new int[nIn[q]];
+        }
+        Arrays.fill(nOut, 0);
+        Arrays.fill(nIn, 0);
+        for (int t = 0; t < automaton.nTransitions(); t++) {
+            int from = automaton.from(t), to = automaton.to(t), v = automaton.value(t);
+            outVal[from][nOut[from]] = v;
+            outDest[from][nOut[from]++] = to;
+            inVal[to][nIn[to]] = v;
+            inSrc[to][nIn[to]++] = from;
+        }
+
+        StateManager sm = getSolver().getStateManager();
+        nbIn = new StateInt[n + 1][nStates];
+        nbOut = new StateInt[n + 1][nStates];
+        for (int i = 0; i <= n; i++) {
+            for (int q = 0; q < nStates; q++) {
+                nbIn[i][q] = sm.makeStateInt(0);
+                nbOut[i][q] = sm.makeStateInt(0);
+            }
+        }
+        nbSupport = new StateInt[n][nVal];
+        supported = new StateSparseSet[n];
+        for (int i = 0; i < n; i++) {
+            for (int v = 0; v < nVal; v++)
+                nbSupport[i][v] = sm.makeStateInt(0);
+            supported[i] = new StateSparseSet(sm, nVal, vMin);
+        }
+
+        queue = new int[2 * (n + 1) * nStates];
+        values = new int[Math.max(nVal, Arrays.stream(x).mapToInt(IntVar::size).max().getAsInt())];
+    }
+
+    @Override
+    public void post() {
+        for (IntVar var : x) {
+            var.removeBelow(vMin);
+            var.removeAbove(vMin + nVal - 1);
+        }
+        buildGraph();
+        for (IntVar var : x)
+            var.propagateOnDomainChange(this);
+    }
+
+    /**
+     * Computes the nodes reachable from the initial node
+     * that reach an accepting node of the last layer,
+     * initializes the counters and removes the unsupported values.
+     */
+    private void buildGraph() {
+        boolean[][] forward = new boolean[n + 1][nStates];
+        boolean[][] backward = new boolean[n + 1][nStates];
+        forward[0][automaton.initialState()] = true;
+        for (int i = 0; i < n; i++) {
+            for (int q = 0; q < nStates; q++) {
+                if (!forward[i][q]) continue;
+                for (int k = 0; k < outVal[q].length; k++) {
+                    if (x[i].contains(outVal[q][k]))
+                        forward[i + 1][outDest[q][k]] = true;
+                }
+            }
+        }
+        for (int q = 0; q < nStates; q++)
+            backward[n][q] = forward[n][q] && automaton.isAccepting(q);
+        for (int i = n - 1; i >= 0; i--) {
+            for (int q = 0; q < nStates; q++) {
+                if (!forward[i][q]) continue;
+                for (int k = 0; k < outVal[q].length; k++) {
+                    if (x[i].contains(outVal[q][k]) && backward[i + 1][outDest[q][k]])
+                        backward[i][q] = true;
+                }
+            }
+        }
+        if (!backward[0][automaton.initialState()])
+            throw InconsistencyException.INCONSISTENCY;
+
+        for (int i = 0; i <= n; i++) {
+            for (int q = 0; q < nStates; q++) {
+                if (!backward[i][q]) {
+                    nbIn[i][q].setValue(-1);
+                    nbOut[i][q].setValue(-1);
+                }
+            }
+        }
+        nbIn[0][automaton.initialState()].setValue(1);
+        for (int q = 0; q < nStates; q++)
+            if (backward[n][q]) nbOut[n][q].setValue(1);
+
+        for (int i = 0; i < n; i++) {
+            for (int q = 0; q < nStates; q++) {
+                if (!backward[i][q]) continue;
+                for (int k = 0; k < outVal[q].length; k++) {
+                    int v = outVal[q][k];
+                    int dest = outDest[q][k];
+                    if (x[i].contains(v) && backward[i + 1][dest]) {
+                        nbOut[i][q].increment();
+                        nbIn[i + 1][dest].increment();
+                        nbSupport[i][v - vMin].increment();
+                    }
+                }
+            }
+            for (int v = 0; v < nVal; v++) {
+                if (nbSupport[i][v].value() == 0) {
+                    supported[i].remove(v + vMin);
+                    x[i].remove(v + vMin);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void propagate() {
+        qHead = 0;
+        qTail = 0;
+        for (int i = 0; i < n; i++) {
+            if (supported[i].size() != x[i].size()) {
+                int s = supported[i].fillArray(values);
+                for (int k = 0; k < s; k++) {
+                    int v = values[k];
+                    if (!x[i].contains(v) && supported[i].remove(v))
+                        removeValue(i, v);
+                }
+            }
+        }
+        while (qHead < qTail) {
+            int node = queue[qHead++];
+            removeNode(node / nStates, node % nStates);
+        }
+    }
+
+    private boolean isRemoved(int i, int q) {
+        return nbIn[i][q].value() < 0;
+    }
+
+    /**
+     * Removes all the alive arcs labelled v between layers i and i+1
+     */
+    private void removeValue(int i, int v) {
+        for (int q = 0; q < nStates; q++) {
+            if (isRemoved(i, q)) continue;
+            int dest = delta[q][v - vMin];
+            if (dest >= 0 && !isRemoved(i + 1, dest)) {
+                decrementOut(i, q);
+                decrementIn(i + 1, dest);
+            }
+        }
+    }
+
+    /**
+     * Removes the node (i,q) and all its alive adjacent arcs
+     */
+    private void removeNode(int i, int q) {
+        if (isRemoved(i, q)) return;
+        nbIn[i][q].setValue(-1);
+        nbOut[i][q].setValue(-1);
+        if (i < n) {
+            for (int k = 0; k < outVal[q].length; k++) {
+                int v = outVal[q][k];
+                int dest = outDest[q][k];
+                if (supported[i].contains(v) && !isRemoved(i + 1, dest)) {
+                    decrementIn(i + 1, dest);
+                    decrementSupport(i, v);
+                }
+            }
+        }
+        if (i > 0) {
+            for (int k = 0; k < inVal[q].length; k++) {
+                int v = inVal[q][k];
+                int src = inSrc[q][k];
+                if (supported[i - 1].contains(v) && !isRemoved(i - 1, src)) {
+                    decrementOut(i - 1, src);
+                    decrementSupport(i - 1, v);
+                }
+            }
+        }
+    }
+
+    private void decrementOut(int i, int q) {
+        if (nbOut[i][q].decrement() == 0)
+            queue[qTail++] = i * nStates + q;
+    }
+
+    private void decrementIn(int i, int q) {
+        if (nbIn[i][q].decrement() == 0)
+            queue[qTail++] = i * nStates + q;
+    }
+
+    private void decrementSupport(int i, int v) {
+        if (nbSupport[i][v - vMin].decrement() == 0) {
+            supported[i].remove(v);
+            x[i].remove(v);
+        }
+    }
+}
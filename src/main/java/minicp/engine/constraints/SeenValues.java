@@ -0,0 +1,92 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.core.IntVar;
+import minicp.state.StateInt;
+import minicp.state.StateManager;
+
+import java.util.Arrays;
+
+/**
+ * Values of the domain of a variable at the last call of a propagator:
+ * {@code values[0..size-1]} with the position of each value in {@code index}.
+ * <p>
+ * The variables do not give the values removed since the last propagation,
+ * so a propagator that only wants to process those keeps one instance per variable.
+ * The number of removed values is the difference between the size
+ * and the current size of the domain. They are swapped behind the size
+ * as they are found, scanning from the end, and the rest of the array
+ * is not visited once all are found. The size is reversible,
+ * so that a backtrack restores the removed values without any work.
+ * <p>
+ * The values are taken from the domain when the instance is created,
+ * which should thus happen after the initial filtering of the domain.
+ */
+final class SeenValues {
+
+    final int ofs;
+    final int[] values;
+    private final int[] index;
+    final StateInt size;
+
+    SeenValues(StateManager sm, IntVar x) {
+        ofs = x.min();
+        values = new int[x.size()];
+        index = new int[x.max() - x.min() + 1];
+        Arrays.fill(index, values.length);
+        int s = x.fillArray(values);
+        for (int k = 0; k < s; k++)
+            index[values[k] - ofs] = k;
+        size = sm.makeStateInt(s);
+    }
+
+    int range() {
+        return index.length;
+    }
+
+    boolean contains(int v) {
+        int k = v - ofs;
+        return k >= 0 && k < index.length && index[k] < size.value();
+    }
+
+    /**
+     * Moves the values removed from x since the last call behind the size.
+     *
+     * @param x the variable
+     * @param dest the array where the removed values are copied
+     * @return the number of removed values
+     */
+    int collectRemoved(IntVar x, int[] dest) {
+        int s = size.value();
+        int r = s - x.size();
+        int c = 0;
+        for (int k = s - 1; k >= 0 && c < r; k--) {
+            int v = values[k];
+            if (!x.contains(v)) {
+                s--;
+                int last = values[s];
+                values[k] = last;
+                index[last - ofs] = k;
+                values[s] = v;
+                index[v - ofs] = s;
+                dest[c++] = v;
+            }
+        }
+        size.setValue(s);
+        return c;
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.core.AbstractConstraint;
+import minicp.engine.core.IntVar;
+import minicp.state.StateInt;
+import minicp.state.StateManager;
+
+import java.security.InvalidParameterException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Stable Marriage Constraint
+ *
+ * Algorithm described in
+ * "An n-ary constraint for the stable marriage problem"
+ * C. Unsworth, P. Prosser, IJCAI-05 Workshop on Modelling and Solving
+ * Problems with Constraints
+ * <p>
+ * {@code x[m]} is the woman of man m and {@code y[w]} the man of woman w,
+ * the matching is consistent ({@code x[m] == w} if and only if {@code y[w] == m})
+ * and stable: there is no man m and woman w that both prefer each other
+ * to the partner they are matched with.
+ * <p>
+ * The propagator is the extended Gale-Shapley algorithm, run in both directions:
+ * each man proposes to the woman he prefers in his domain, who then removes
+ * from her domain all the men she likes less than him, and each woman he
+ * prefers but lost must marry a man she likes more than him, and symmetrically
+ * for the women. The domains are then reduced to the GS-lists, so that
+ * the first value of each man (resp. woman) gives the man (resp. woman) optimal
+ * stable matching, and a search on these variables never fails.
+ * <p>
+ * The position of the preferred and the least preferred partner still possible
+ * of each person are kept in reversible integers that only move inwards,
+ * so that the total work along a branch is O(n^2).
+ */
+public class StableMarriage extends AbstractConstraint {
+
+    private final IntVar[] x;
+    private final IntVar[] y;
+    private final int n;
+
+    // prefX[m][k] is the k-th preferred woman of m, rankX[m][w] the position of w in prefX[m]
+    private final int[][] prefX;
+    private final int[][] rankX;
+    private final int[][] prefY;
+    private final int[][] rankY;
+
+    // positions in the preference lists of the preferred and least preferred partner still possible
+    private final StateInt[] firstX;
+    private final StateInt[] lastX;
+    private final StateInt[] firstY;
+    private final StateInt[] lastY;
+
+    /**
+     * Creates a stable marriage constraint.
+     *
+     * @param x the woman of each man
+     * @param y the man of each woman
+     * @param rankX {@code rankX[m][w]} is the rank of woman w for man m,
+     *              the lower the rank, the higher the preference
+     * @param rankY {@code rankY[w][m]} is the rank of man m for woman w
+     * @see minicp.cp.Factory#stableMarriage(IntVar[], IntVar[], int[][], int[][])
+     */
+    public StableMarriage(IntVar[] x, IntVar[] y, int[][] rankX, int[][] rankY) {
+        super(x[0].getSolver());
+        n = x.length;
+        if (y.length != n || rankX.length != n || rankY.length != n)
+            throw new InvalidParameterException("x, y and the rankings must have the same length");
+        this.x = x;
+        this.y = y;
+        prefX = new int[n][];
+        this.rankX = new int[n][n];
+        prefY = new int[n][];
+        this.rankY = new int[n][n];
+        preferences(rankX, prefX, this.rankX);
+        preferences(rankY, prefY, this.rankY);
+        StateManager sm = getSolver().getStateManager();
+        firstX = new StateInt[n];
+        lastX = new StateInt[n];
+        firstY = new StateInt[n];
+        lastY = new StateInt[n];
+        for (int i = 0; i < n; i++) {
+            firstX[i] = sm.makeStateInt(0);
+            lastX[i] = sm.makeStateInt(n - 1);
+            firstY[i] = sm.makeStateInt(0);
+            lastY[i] = sm.makeStateInt(n - 1);
+        }
+    }
+
+    /**
+     * Sorts the partners of each person by increasing rank.
+     */
+    private void preferences(int[][] rank, int[][] pref, int[][] position) {
+        for (int i = 0; i < n; i++) {
+            if (rank[i].length != n)
+                throw new InvalidParameterException("each ranking must rank the n persons");
+            final int[] r = rank[i];
+            pref[i] = new int[n];
+            Integer[] order = new Integer[n];
+            for (int k = 0; k < n; k++)
+                order[k] = k;
+            Arrays.sort(order, Comparator.comparingInt(k -> r[k]));
+            for (int k = 0; k < n; k++) {
+                pref[i][k] = order[k];
+                position[i][order[k]] = k;
+            }
+        }
+    }
+
+    @Override
+    public void post() {
+        getSolver().post(new Inverse(x, y), false);
+        for (int i = 0; i < n; i++) {
+            final int k = i;
+            x[i].whenDomainChange(() -> propose(k, x, firstX, prefX, y, lastY, prefY, rankY));
+            y[i].whenDomainChange(() -> propose(k, y, firstY, prefY, x, lastX, prefX, rankX));
+        }
+        for (int i = 0; i < n; i++) {
+            propose(i, x, firstX, prefX, y, lastY, prefY, rankY);
+            propose(i, y, firstY, prefY, x, lastX, prefX, rankX);
+        }
+    }
+
+    /**
+     * Person i of one side proposes to the partner j it prefers in its domain,
+     * and j removes from its domain the persons it likes less than i.
+     * Each partner that i preferred to j but lost must end with a person
+     * it prefers to i, so it also removes i and the persons it likes less.
+     */
+    private void propose(int i, IntVar[] from, StateInt[] firstFrom, int[][] prefFrom,
+                         IntVar[] to, StateInt[] lastTo, int[][] prefTo, int[][] rankTo) {
+        int first = firstFrom[i].value();
+        while (!from[i].contains(prefFrom[i][first])) {
+            int lost = prefFrom[i][first];
+            truncate(lost, rankTo[lost][i] - 1, from, to, lastTo, prefTo);
+            first++;
+        }
+        firstFrom[i].setValue(first);
+        int j = prefFrom[i][first];
+        truncate(j, rankTo[j][i], from, to, lastTo, prefTo);
+    }
+
+    /**
+     * Removes from the domain of {@code to[j]} the persons after
+     * position r in its preference list.
+     */
+    private void truncate(int j, int r, IntVar[] from, IntVar[] to, StateInt[] lastTo, int[][] prefTo) {
+        int last = lastTo[j].value();
+        if (r < last) {
+            for (int k = last; k > r; k--) {
+                int worse = prefTo[j][k];
+                to[j].remove(worse);
+                from[worse].remove(j);
+            }
+            lastTo[j].setValue(r);
+        }
+    }
+}
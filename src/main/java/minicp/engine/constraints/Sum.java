@@ -18,24 +18,33 @@ package minicp.engine.constraints;
 import minicp.cp.Factory;
 import minicp.engine.core.AbstractConstraint;
 import minicp.engine.core.IntVar;
-import minicp.state.State;
 import minicp.state.StateInt;
+import minicp.state.StateLong;
+import minicp.state.StateManager;
 import minicp.util.exception.InconsistencyException;
 import minicp.util.exception.NotImplementedException;
 
-import java.util.Arrays;
 import java.util.stream.IntStream;
 
 /**
  * Sum Constraint
+ * <p>
+ * The bounds of the sum are maintained incrementally:
+ * each variable notifies its bound changes to the constraint
+ * that only updates the sum with the difference with
+ * the previously seen bounds of this variable.
+ * The filtering of the variables is only done when the slack
+ * between the bounds of the sum and zero is smaller than
+ * the largest domain range of the variables.
  */
 public class Sum extends AbstractConstraint {
 
     private int[] fixed;
     private StateInt nFixed;
-    private State<Long> sumFixed;
+    private StateLong sumMin, sumMax;
+    private StateInt[] min, max; // last bounds of each variable included in sumMin, sumMax
+    private StateInt maxRange; // upper bound on the largest range max-min of the not-fixed variables
     private IntVar[] x;
-    private int[] min, max;
     private int n;
 
     /**
@@ -47,8 +56,7 @@ public class Sum extends AbstractConstraint {
      * @param y the right hand side of the sum
      */
     public Sum(IntVar[] x, IntVar y) {
-        this(Arrays.copyOf(x, x.length + 1));
-        this.x[x.length] = Factory.minus(y);
+        this(append(x, Factory.minus(y)));
     }
 
     /**
@@ -60,8 +68,7 @@ public class Sum extends AbstractConstraint {
      * @param y the right hand side of the sum
      */
     public Sum(IntVar[] x, int y) {
-        this(Arrays.copyOf(x, x.length + 1));
-        this.x[x.length] = Factory.makeIntVar(getSolver(), -y, -y);
+        this(append(x, Factory.makeIntVar(x[0].getSolver(), -y, -y)));
     }
 
     /**
@@ -73,51 +80,96 @@ public class Sum extends AbstractConstraint {
      */
     public Sum(IntVar[] x) {
         super(x[0].getSolver());
+        StateManager sm = getSolver().getStateManager();
         this.x = x;
         this.n = x.length;
-        min = new int[x.length];
-        max = new int[x.length];
-        nFixed = getSolver().getStateManager().makeStateInt(0);
-        sumFixed = getSolver().getStateManager().makeStateRef(Long.valueOf(0));
+        min = new StateInt[n];
+        max = new StateInt[n];
+        for (int i = 0; i < n; i++) {
+            min[i] = sm.makeStateInt(0);
+            max[i] = sm.makeStateInt(0);
+        }
+        nFixed = sm.makeStateInt(0);
+        sumMin = sm.makeStateLong(0);
+        sumMax = sm.makeStateLong(0);
+        maxRange = sm.makeStateInt(Integer.MAX_VALUE);
         fixed = IntStream.range(0, n).toArray();
     }
 
+    private static IntVar[] append(IntVar[] x, IntVar y) {
+        // not using Arrays.copyOf that would keep the runtime type of x (e.g. BoolVar[])
+        IntVar[] res = new IntVar[x.length + 1];
+        System.arraycopy(x, 0, res, 0, x.length);
+        res[x.length] = y;
+        return res;
+    }
+
     @Override
     public void post() {
-        for (IntVar var : x)
-            var.propagateOnBoundChange(this);
+        long sMin = 0, sMax = 0;
+        for (int i = 0; i < n; i++) {
+            min[i].setValue(x[i].min());
+            max[i].setValue(x[i].max());
+            sMin += x[i].min();
+            sMax += x[i].max();
+        }
+        sumMin.setValue(sMin);
+        sumMax.setValue(sMax);
+        for (int i = 0; i < n; i++) {
+            final int idx = i;
+            x[i].whenBoundChange(() -> boundChanged(idx));
+        }
         propagate();
     }
 
+    /**
+     * Updates the bounds of the sum with the new bounds of x[i]
+     * and schedules the filtering.
+     *
+     * @param i the index of the variable whose bounds have changed
+     */
+    private void boundChanged(int i) {
+        int xMin = x[i].min(), xMax = x[i].max();
+        sumMin.add(xMin - min[i].value());
+        sumMax.add(xMax - max[i].value());
+        min[i].setValue(xMin);
+        max[i].setValue(xMax);
+        getSolver().schedule(this);
+    }
+
     @Override
     public void propagate() {
-        // Filter the unfixed vars and update the partial sum
+        long sMin = sumMin.value(), sMax = sumMax.value();
+        if (sMin > 0 || sMax < 0) {
+            throw new InconsistencyException();
+        }
+        // a variable x[i] can only be filtered if max[i]-min[i] > min(-sumMin, sumMax)
+        if (maxRange.value() <= Math.min(-sMin, sMax)) {
+            return;
+        }
+        // iterate over not-fixed variables
         int nF = nFixed.value();
-        long sumMin = sumFixed.value(), sumMax = sumFixed.value();
-        // iterate over not-fixed variables and update partial sum
-        // if  one variable is detected as fixed
-        for (int i = nF; i < x.length; i++) {
+        int range = 0;
+        for (int i = nF; i < n; i++) {
             int idx = fixed[i];
-            min[idx] = x[idx].min();
-            max[idx] = x[idx].max();
-            sumMin += min[idx]; // Update partial sum
-            sumMax += max[idx];
-            if (x[idx].isFixed()) {
-                sumFixed.setValue(sumFixed.value() + x[idx].min());
+            int xMin = x[idx].min(), xMax = x[idx].max();
+            if (xMax - xMin > -sMin) {
+                x[idx].removeAbove((int) (xMin - sMin));
+                xMax = x[idx].max();
+            }
+            if (xMax - xMin > sMax) {
+                x[idx].removeBelow((int) (xMax - sMax));
+                xMin = x[idx].min();
+            }
+            if (xMin == xMax) {
                 fixed[i] = fixed[nF]; // Swap the variables
                 fixed[nF] = idx;
                 nF++;
+            } else {
+                range = Math.max(range, xMax - xMin);
             }
         }
         nFixed.setValue(nF);
-        if (sumMin > 0 || sumMax < 0) {
-            throw new InconsistencyException();
-        }
-        // iterate over not-fixed variables
-        for (int i = nF; i < x.length; i++) {
-            int idx = fixed[i];
-            x[idx].removeAbove(-((int) (sumMin - min[idx])));
-            x[idx].removeBelow(-((int) (sumMax - max[idx])));
-        }
+        maxRange.setValue(range);
     }
 }
@@ -0,0 +1,216 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import java.util.Arrays;
+
+/**
+ * Theta-Lambda tree described in
+ * Global Constraints in Scheduling, 2008 Petr Vilim, PhD thesis
+ * See <a href="http://vilim.eu/petr/disertace.pdf">The thesis.</a>
+ * <p>
+ * Extension of the {@link ThetaTree} with a set Lambda of gray activities.
+ * Besides the earliest completion time of Theta, it gives
+ * the largest earliest completion time obtained by adding at most
+ * one gray activity to Theta ({@link #getECTBar()}) and the gray activity
+ * responsible for it ({@link #getResponsibleECTBar()}).
+ */
+public class ThetaLambdaTree {
+
+    // node k stores the values of the activities in the leaves of its subtree:
+    // the total duration and the earliest completion time of the white ones,
+    // and the same values when including at most one gray activity
+    private final int[] sump;
+    private final int[] ect;
+    private final int[] sumpBar;
+    private final int[] ectBar;
+    // leaf position of the gray activity responsible for sumpBar (resp. ectBar), -1 if none
+    private final int[] respSumpBar;
+    private final int[] respEctBar;
+    private int isize; //number of internal nodes
+
+    /**
+     * Creates a theta-lambda-tree able to store
+     * the specified number of activities, each identified
+     * as a number between 0 and size-1.
+     * The activities inserted in the tree are assumed
+     * to be of increasing earliest start time.
+     * That is activity identified as i must possibly start earlier than
+     * activity i+1.
+     *
+     * @param size the number of activities that can possibly be inserted in the tree
+     */
+    public ThetaLambdaTree(int size) {
+        isize = 1;
+        while (isize < size) {
+            isize <<= 1;
+        }
+        int nNodes = (isize << 1) - 1;
+        sump = new int[nNodes];
+        ect = new int[nNodes];
+        sumpBar = new int[nNodes];
+        ectBar = new int[nNodes];
+        respSumpBar = new int[nNodes];
+        respEctBar = new int[nNodes];
+        isize--;
+        reset();
+    }
+
+    /**
+     * Remove all the activities from this tree
+     */
+    public void reset() {
+        Arrays.fill(sump, 0);
+        Arrays.fill(ect, Integer.MIN_VALUE);
+        Arrays.fill(sumpBar, 0);
+        Arrays.fill(ectBar, Integer.MIN_VALUE);
+        Arrays.fill(respSumpBar, -1);
+        Arrays.fill(respEctBar, -1);
+    }
+
+    /**
+     * Insert an activity in Theta (a white activity)
+     * at the given leaf position.
+     *
+     * @param pos the index of the leaf node (assumed to start at 0 from left to right)
+     * @param ect earliest completion time
+     * @param dur duration
+     */
+    public void insertTheta(int pos, int ect, int dur) {
+        int currPos = isize + pos;
+        this.sump[currPos] = dur;
+        this.ect[currPos] = ect;
+        this.sumpBar[currPos] = dur;
+        this.ectBar[currPos] = ect;
+        this.respSumpBar[currPos] = -1;
+        this.respEctBar[currPos] = -1;
+        reCompute(getFather(currPos));
+    }
+
+    /**
+     * Insert an activity in Lambda (a gray activity)
+     * at the given leaf position, possibly moving it from Theta.
+     *
+     * @param pos the index of the leaf node (assumed to start at 0 from left to right)
+     * @param ect earliest completion time
+     * @param dur duration
+     */
+    public void insertLambda(int pos, int ect, int dur) {
+        int currPos = isize + pos;
+        this.sump[currPos] = 0;
+        this.ect[currPos] = Integer.MIN_VALUE;
+        this.sumpBar[currPos] = dur;
+        this.ectBar[currPos] = ect;
+        this.respSumpBar[currPos] = pos;
+        this.respEctBar[currPos] = pos;
+        reCompute(getFather(currPos));
+    }
+
+    /**
+     * Remove the activity at given position from Theta or Lambda.
+     *
+     * @param pos the index of the leaf nodes, assumed to start at 0 from left to right
+     */
+    public void remove(int pos) {
+        int currPos = isize + pos;
+        sump[currPos] = 0;
+        ect[currPos] = Integer.MIN_VALUE;
+        sumpBar[currPos] = 0;
+        ectBar[currPos] = Integer.MIN_VALUE;
+        respSumpBar[currPos] = -1;
+        respEctBar[currPos] = -1;
+        reCompute(getFather(currPos));
+    }
+
+    /**
+     * The earliest completion time of the activities in Theta
+     *
+     * @return the earliest completion time of the activities in Theta
+     */
+    public int getECT() {
+        return ect[0];
+    }
+
+    /**
+     * The largest earliest completion time of Theta
+     * with at most one activity of Lambda
+     *
+     * @return the earliest completion time of Theta with at most one activity of Lambda
+     */
+    public int getECTBar() {
+        return ectBar[0];
+    }
+
+    /**
+     * The activity of Lambda responsible for {@link #getECTBar()}
+     *
+     * @return the leaf position of the gray activity responsible for {@link #getECTBar()},
+     *         -1 if it does not exceed {@link #getECT()}
+     */
+    public int getResponsibleECTBar() {
+        return respEctBar[0];
+    }
+
+    private int getFather(int pos) {
+        return (pos - 1) >> 1;
+    }
+
+    private int getLeft(int pos) {
+        return (pos << 1) + 1;
+    }
+
+    private int getRight(int pos) {
+        return (pos + 1) << 1;
+    }
+
+    private void reCompute(int pos) {
+        // pos is -1 if the root is a leaf (tree of size 1)
+        while (pos >= 0) {
+            int l = getLeft(pos);
+            int r = getRight(pos);
+            sump[pos] = sump[l] + sump[r];
+            ect[pos] = Math.max(ect[r], ect[l] + sump[r]);
+
+            // gray activity in the left or in the right subtree
+            int pLeft = sumpBar[l] + sump[r];
+            int pRight = sump[l] + sumpBar[r];
+            if (pLeft >= pRight) {
+                sumpBar[pos] = pLeft;
+                respSumpBar[pos] = respSumpBar[l];
+            } else {
+                sumpBar[pos] = pRight;
+                respSumpBar[pos] = respSumpBar[r];
+            }
+
+            // gray activity completing the right subtree, processed in the right subtree
+            // after the white ones of the left subtree, or completing the left subtree
+            int eRight = ectBar[r];
+            int eMiddle = ect[l] + sumpBar[r];
+            int eLeft = ectBar[l] + sump[r];
+            if (eRight >= eMiddle && eRight >= eLeft) {
+                ectBar[pos] = eRight;
+                respEctBar[pos] = respEctBar[r];
+            } else if (eMiddle >= eLeft) {
+                ectBar[pos] = eMiddle;
+                respEctBar[pos] = respSumpBar[r];
+            } else {
+                ectBar[pos] = eLeft;
+                respEctBar[pos] = respEctBar[l];
+            }
+            pos = getFather(pos);
+        }
+    }
+}
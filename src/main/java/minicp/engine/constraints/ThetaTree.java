@@ -15,6 +15,8 @@
 
 package minicp.engine.constraints;
 
+import java.util.Arrays;
+
 /**
  * Data Structure described in
  * Global Constraints in Scheduling, 2008 Petr Vilim, PhD thesis
@@ -22,39 +24,10 @@ package minicp.engine.constraints;
  */
 public class ThetaTree {
 
-    private static class Node {
-
-        private int sump;
-        private int ect;
-
-        Node() {
-            reset();
-        }
-
-        public void reset() {
-            setECT(Integer.MIN_VALUE);
-            setSUMP(0);
-        }
-
-        public int getECT() {
-            return ect;
-        }
-
-        public int getSUMP() {
-            return sump;
-        }
-
-        public void setECT(int ect) {
-            this.ect = ect;
-        }
-
-        public void setSUMP(int sump) {
-            this.sump = sump;
-        }
-
-    }
-
-    private Node[] nodes;
+    // node k stores the total duration and the earliest completion time
+    // of the activities in the leaves of its subtree
+    private final int[] sump;
+    private final int[] ect;
     private int isize; //number of internal nodes
     private int size;
 
@@ -78,20 +51,18 @@ public class ThetaTree {
             isize <<= 1; //shift the pattern to the left by 1 (i.e. multiplies by 2)
         }
         //number of nodes in a complete  binary tree with isize leaf nodes is (isize*2)-1
-        nodes = new Node[(isize << 1) - 1];
-        for (int i = 0; i < nodes.length; i++) {
-            nodes[i] = new Node();
-        }
+        sump = new int[(isize << 1) - 1];
+        ect = new int[(isize << 1) - 1];
         isize--;
+        reset();
     }
 
     /**
      * Remove all the activities from this theta-tree
      */
     public void reset() {
-        for (Node n : nodes) {
-            n.reset();
-        }
+        Arrays.fill(sump, 0);
+        Arrays.fill(ect, Integer.MIN_VALUE);
     }
 
     /**
@@ -106,9 +77,8 @@ public class ThetaTree {
     public void insert(int pos, int ect, int dur) {
         //the last size nodes are the leaf nodes so the first one is isize (the number of internal nodes)
         int currPos = isize + pos;
-        Node node = nodes[currPos];
-        node.setECT(ect);
-        node.setSUMP(dur);
+        this.ect[currPos] = ect;
+        this.sump[currPos] = dur;
         reCompute(getFather(currPos));
     }
 
@@ -120,25 +90,17 @@ public class ThetaTree {
      */
     public void remove(int pos) {
         int currPos = isize + pos;
-        Node node = nodes[currPos];
-        node.reset();
+        ect[currPos] = Integer.MIN_VALUE;
+        sump[currPos] = 0;
         reCompute(getFather(currPos));
     }
 
-    private int getECT(int pos) {
-        return nodes[pos].getECT();
-    }
-
     /**
      * The earliest completion time of the activities present in the theta-tree
      * @return the earliest completion time of the activities present in the theta-tree
      */
     public int getECT() {
-        return getECT(0);
-    }
-
-    private int getSUMP(int pos) {
-        return nodes[pos].getSUMP();
+        return ect[0];
     }
 
     private int getFather(int pos) {
@@ -156,36 +118,16 @@ public class ThetaTree {
         return (pos + 1) << 1;
     }
 
-    private void reComputeAux(int pos) {
-        int pl = getSUMP(getLeft(pos));
-        int pr = getSUMP(getRight(pos));
-        nodes[pos].setSUMP(pl + pr);
-
-        int el = getECT(getLeft(pos));
-        int er = getECT(getRight(pos));
-        int en = Math.max(er, el + pr);
-        nodes[pos].setECT(en);
-    }
-
-
     private void reCompute(int pos) {
-        while (pos > 0) {
-            reComputeAux(pos);
+        // pos is -1 if the root is a leaf (tree of size 1)
+        while (pos >= 0) {
+            int l = getLeft(pos);
+            int r = getRight(pos);
+            sump[pos] = sump[l] + sump[r];
+            ect[pos] = Math.max(ect[r], ect[l] + sump[r]);
             pos = getFather(pos);
         }
-        // Fast recompute the top node. We do not need all info.
-        nodes[0].setECT(Math.max(nodes[2].getECT(),
-                nodes[1].getECT() + nodes[2].getSUMP()));
     }
 
 
 }
-
-
-
-
-
-
-
-
-
@@ -0,0 +1,147 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.core.IntVar;
+
+/**
+ * Variable-value graph of the matching and flow based constraints,
+ * stored in flat arrays allocated once and refilled with {@link IntVar#fillArray(int[])}:
+ * the values (offset by {@code minVal}) of x[i] are {@code adj[adjStart[i]..adjStart[i+1]-1]}.
+ * If it is transposed, the variables that can take value v are also
+ * {@code valAdj[valStart[v]..valStart[v+1]-1]}.
+ * <p>
+ * In the residual graphs built from it, variable i is node i and
+ * value v is node {@code nVar + v}.
+ */
+final class VarValueGraph {
+
+    final int nVar;
+    final int nVal;
+    final int minVal;
+    final int[] adj;
+    final int[] adjStart;
+    final int[] valAdj; // null if not transposed
+    final int[] valStart;
+
+    private final IntVar[] x;
+    private final int[] domain;
+
+    /**
+     * Creates the graph, the values of the variables must stay
+     * in {@code minVal..minVal+nVal-1}.
+     *
+     * @param x the variables
+     * @param minVal the smallest value
+     * @param nVal the number of values
+     * @param transposed true if the variables of each value are also needed
+     */
+    VarValueGraph(IntVar[] x, int minVal, int nVal, boolean transposed) {
+        this.x = x;
+        this.nVar = x.length;
+        this.nVal = nVal;
+        this.minVal = minVal;
+        int nEdges = 0;
+        int maxSize = 0;
+        for (IntVar xi : x) {
+            nEdges += xi.size();
+            maxSize = Math.max(maxSize, xi.size());
+        }
+        adj = new int[nEdges];
+        adjStart = new int[nVar + 1];
+        valAdj = transposed ? new int[nEdges] : null;
+        valStart = transposed ? new int[nVal + 1] : null;
+        domain = new int[maxSize];
+    }
+
+    /**
+     * Returns the maximum number of edges, that is the sum of the initial domain sizes.
+     */
+    int maxEdges() {
+        return adj.length;
+    }
+
+    /**
+     * Copies the current domains into the graph.
+     */
+    void update() {
+        int nEdges = 0;
+        for (int i = 0; i < nVar; i++) {
+            adjStart[i] = nEdges;
+            int s = x[i].fillArray(domain);
+            for (int j = 0; j < s; j++)
+                adj[nEdges++] = domain[j] - minVal;
+        }
+        adjStart[nVar] = nEdges;
+        if (valAdj != null)
+            transpose();
+    }
+
+    private void transpose() {
+        for (int v = 0; v <= nVal; v++)
+            valStart[v] = 0;
+        for (int k = 0; k < adjStart[nVar]; k++)
+            valStart[adj[k] + 1]++;
+        // valStart[v + 1] is first the end of the slice of value v,
+        // and is decremented down to its start while the slice is filled
+        for (int v = 0; v < nVal; v++)
+            valStart[v + 1] += valStart[v];
+        for (int i = nVar - 1; i >= 0; i--)
+            for (int k = adjStart[i]; k < adjStart[i + 1]; k++)
+                valAdj[--valStart[adj[k] + 1]] = i;
+        for (int v = 0; v < nVal; v++)
+            valStart[v] = valStart[v + 1];
+        valStart[nVal] = adjStart[nVar];
+    }
+
+    /**
+     * Fills the successors of the variables in a residual graph:
+     * each variable points to its values it does not take.
+     *
+     * @param match the value (offset by minVal) taken by each variable
+     * @param offsets the start of the successors of each node
+     * @param targets the successors of the nodes
+     * @return the start of the successors of the next node
+     */
+    int fillVariableArcs(int[] match, int[] offsets, int[] targets) {
+        int k = 0;
+        for (int i = 0; i < nVar; i++) {
+            offsets[i] = k;
+            for (int e = adjStart[i]; e < adjStart[i + 1]; e++)
+                if (adj[e] != match[i])
+                    targets[k++] = nVar + adj[e];
+        }
+        return k;
+    }
+
+    /**
+     * Removes the values not taken that are not in the strongly connected
+     * component of their variable in the residual graph.
+     *
+     * @param match the value (offset by minVal) taken by each variable
+     * @param scc the component of each node of the residual graph
+     */
+    void removeUnsupported(int[] match, int[] scc) {
+        for (int i = 0; i < nVar; i++) {
+            for (int k = adjStart[i]; k < adjStart[i + 1]; k++) {
+                int v = adj[k];
+                if (v != match[i] && scc[i] != scc[nVar + v]) {
+                    x[i].remove(v + minVal); // unsupported value
+                }
+            }
+        }
+    }
+}
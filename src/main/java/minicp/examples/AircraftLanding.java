@@ -16,7 +16,6 @@ import static minicp.cp.Factory.*;
 import static minicp.cp.BranchingScheme.*;
 import minicp.search.DFSearch;
 import minicp.search.SearchStatistics;
-import minicp.util.exception.InconsistencyException;
 import minicp.util.io.InputReader;
 import java.util.*;
 import minicp.engine.constraints.Absolute;
@@ -64,15 +63,11 @@ public class AircraftLanding {
         IntVar[] cost = new IntVar[n];
         for (int i = 0; i < n; i++) {
             cost[i] = makeIntVar(cp, 0, P[i].deadline);
-            cp.post(new Absolute(minus(time[i], P[i].wantedTime), cost[i]));
+            cp.post(new Absolute(minus(time[i], P[i].wantedTime), cost[i], false));
         }
 
-        for (int i = 0; i < n; i++)
-            for (int j = i + 1; j < n; j++) {
-                int sepIJ = instance.switchDelay[P[i].type][P[j].type];
-                int sepJI = instance.switchDelay[P[j].type][P[i].type];
-                cp.post(new Separation(lane[i], lane[j], time[i], time[j], sepIJ, sepJI));
-            }
+        int[] type = Arrays.stream(P).mapToInt(p -> p.type).toArray();
+        cp.post(laneSeparation(lane, time, type, instance.switchDelay));
 
         Objective obj = cp.minimize(sum(cost));
 
@@ -131,17 +126,14 @@ public class AircraftLanding {
         for (int i = 0; i < n; i++) {
             absCost[i] = makeIntVar(cp, 0, P[i].deadline);          // upper bound is safe
             IntVar diff = plus(time[i], -P[i].wantedTime);   // diff = time[i] - wantedTime
-            cp.post(new Absolute(diff, absCost[i]));
+            cp.post(new Absolute(diff, absCost[i], false));
         }
         IntVar totalCost = sum(absCost);                // |t-wanted|
         Objective obj    = cp.minimize(totalCost);      // we will give this to DFS
 
-        // pairwise separation constraints
-        for (int i = 0; i < n; i++) for (int j = i + 1; j < n; j++) {
-            int sepIJ = ins.switchDelay[P[i].type][P[j].type];
-            int sepJI = ins.switchDelay[P[j].type][P[i].type];
-            cp.post(new Separation(lane[i], lane[j], time[i], time[j], sepIJ, sepJI));
-        }
+        // separation of the planes landing on the same lane
+        int[] type = Arrays.stream(P).mapToInt(p -> p.type).toArray();
+        cp.post(laneSeparation(lane, time, type, ins.switchDelay));
 
         DFSearch dfs = new DFSearch(cp.getStateManager(), () -> {
             IntVar best = null; int bestSize = Integer.MAX_VALUE;
@@ -164,47 +156,6 @@ public class AircraftLanding {
         log("Enumeration finished – nodes=%d solutions=%d", st.numberOfNodes(), st.numberOfSolutions());
         return out;
     }
-    /* constraint class for separation*/
-    private static class Separation extends AbstractConstraint {
-        private final IntVar li, lj;   // lane vars for i and j
-        private final IntVar ti, tj;   // time vars for i and j
-        private final int sepIJ, sepJI;
-
-        Separation(IntVar li, IntVar lj, IntVar ti, IntVar tj,
-                   int sepIJ, int sepJI) {
-            super(li.getSolver());
-            this.li = li; this.lj = lj;
-            this.ti = ti; this.tj = tj;
-            this.sepIJ = sepIJ; this.sepJI = sepJI;
-        }
-
-        @Override public void post() {
-            // Wake when lanes get bound or times get tighter
-            li.propagateOnBoundChange(this);
-            lj.propagateOnBoundChange(this);
-            ti.propagateOnBoundChange(this);
-            tj.propagateOnBoundChange(this);
-            propagate();
-        }
-
-        @Override public void propagate() throws InconsistencyException {
-            // If lanes are already proven different, nothing to do.
-            if (li.max() < lj.min() || lj.max() < li.min())
-                return; // cannot be equal, separation irrelevant
-
-            // If both lanes are fixed and equal, we must enforce precedence timings
-            if (li.isFixed() && lj.isFixed() && li.min() == lj.min()
-                    && ti.isFixed() && tj.isFixed()) {
-                int d = tj.min() - ti.min();
-                if (d >= 0) {
-                    if (d < sepIJ) throw new InconsistencyException();
-                } else {
-                    if (-d < sepJI) throw new InconsistencyException();
-                }
-            }
-        }
-    }
-
     private static void backtrack(int k,
                                   Integer[] order,
                                   AircraftLandingInstance instance,
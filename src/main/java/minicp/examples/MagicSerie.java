@@ -22,6 +22,7 @@ import minicp.search.DFSearch;
 import minicp.search.SearchStatistics;
 
 import java.util.Arrays;
+import java.util.stream.IntStream;
 
 import static minicp.cp.BranchingScheme.*;
 import static minicp.cp.Factory.*;
@@ -43,8 +44,8 @@ public class MagicSerie {
             cp.post(sum(Factory.makeIntVarArray(n, j -> isEqual(s[j], fi)), s[i]));
         }
         cp.post(sum(s, n));
-        cp.post(sum(Factory.makeIntVarArray(n, i -> mul(s[i], i)), n));
-        cp.post(sum(makeIntVarArray(n - 1, i -> mul(s[i], i - 1)), 0));
+        cp.post(linearEq(IntStream.range(0, n).toArray(), s, n));
+        cp.post(linearEq(IntStream.range(0, n - 1).map(i -> i - 1).toArray(), Arrays.copyOf(s, n - 1), 0));
 
         long t0 = System.currentTimeMillis();
         DFSearch dfs = makeDfs(cp, () -> {
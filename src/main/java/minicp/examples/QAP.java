@@ -15,6 +15,7 @@
 
 package minicp.examples;
 
+import minicp.engine.constraints.Element2D;
 import minicp.engine.core.IntVar;
 import minicp.engine.core.Solver;
 import minicp.search.DFSearch;
@@ -58,7 +59,7 @@ public class QAP extends OptimizationProblem {
     public final int[][] weights;
     public final int[][] distances;
     public IntVar[] x;
-    public IntVar[] weightedDistances;
+    public IntVar[] pairDistances;
     public IntVar totCost;
     String instance;
 
@@ -94,14 +95,17 @@ public class QAP extends OptimizationProblem {
         cp.post(allDifferent(x));
 
         // build the objective function
-        weightedDistances = new IntVar[n * n];
+        pairDistances = new IntVar[n * n];
+        int[] pairWeights = new int[n * n];
+        Element2D.Cells distanceCells = new Element2D.Cells(distances); // sorted once for the n^2 elements
         for (int k = 0, i = 0; i < n; i++) {
             for (int j = 0; j < n; j++) {
-                weightedDistances[k] = mul(element(distances, x[i], x[j]), weights[i][j]);
+                pairDistances[k] = element(distanceCells, x[i], x[j]);
+                pairWeights[k] = weights[i][j];
                 k++;
             }
         }
-        totCost = sum(weightedDistances);
+        totCost = scalarProduct(pairWeights, pairDistances);
         objective = cp.minimize(totCost);
 
         Pair[] pairs = IntStream.range(0, n)
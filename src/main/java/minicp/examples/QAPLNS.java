@@ -15,12 +15,14 @@
 
 package minicp.examples;
 
+import minicp.engine.constraints.QAPObjective;
 import minicp.engine.core.IntVar;
 import minicp.engine.core.Solver;
 import minicp.search.DFSearch;
 import minicp.search.Objective;
 import minicp.util.io.InputReader;
 
+import java.util.Arrays;
 import java.util.Random;
 import java.util.stream.IntStream;
 
@@ -70,17 +72,11 @@ public class QAPLNS {
         cp.post(allDifferent(x));
 
 
-        // build the objective function
-        IntVar[] weightedDist = new IntVar[n * n];
-        int ind = 0;
-        for (int i = 0; i < n; i++) {
-            for (int j = 0; j < n; j++) {
-                IntVar distXiXj = element(d, x[i], x[j]);
-                weightedDist[ind] = mul(distXiXj, w[i][j]);
-                ind++;
-            }
-        }
-        IntVar totCost = sum(weightedDist);
+        // build the objective function, bounded by the Gilmore-Lawler bound
+        int maxD = Arrays.stream(d).flatMapToInt(Arrays::stream).max().getAsInt();
+        int ub = Arrays.stream(w).flatMapToInt(Arrays::stream).sum() * maxD;
+        IntVar totCost = makeIntVar(cp, 0, ub);
+        cp.post(new QAPObjective(w, d, x, totCost));
         Objective obj = cp.minimize(totCost);
 
         DFSearch dfs = makeDfs(cp, firstFail(x));
@@ -16,6 +16,7 @@
 package minicp.examples;
 
 import minicp.cp.Factory;
+import minicp.engine.constraints.Element2D;
 import minicp.engine.core.IntVar;
 import minicp.engine.core.Solver;
 import minicp.search.DFSearch;
@@ -68,10 +69,11 @@ public class QAPPaper {
 
         cp.post(allDifferent(x));
         IntVar[] weightedDist = new IntVar[n * n];
+        Element2D.Cells dCells = new Element2D.Cells(d);
         int k = 0;
         for (int i = 0; i < n; i++) 
             for (int j = 0; j < n; j++) {
-                IntVar dij = element(d, x[i], x[j]);
+                IntVar dij = element(dCells, x[i], x[j]);
                 weightedDist[k++] = mul(dij,w[i][j]);
             }
         IntVar totCost  = sum(weightedDist);
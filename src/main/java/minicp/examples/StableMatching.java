@@ -16,8 +16,6 @@
 package minicp.examples;
 
 import minicp.engine.constraints.Element1D;
-import minicp.engine.constraints.Element1DVar;
-import minicp.engine.core.BoolVar;
 import minicp.engine.core.IntVar;
 import minicp.engine.core.Solver;
 import minicp.search.DFSearch;
@@ -82,17 +80,11 @@ public class StableMatching extends SatisfactionProblem {
         studentPref = makeIntVarArray(cp, n, 1, n);
 
 
-        for (int s = 0; s < n; s++) {
-            // TODO: model this with Element1DVar: the student of the company of student s is s
-            
-            // TODO: model this with Element1D: rankCompanies[s][company[s]] = companyPref[s]
-
-            // student[ company[s] ] = s
-            cp.post(new Element1DVar(
-                    student,
-                    company[s],
-                    makeIntVar(cp, s, s)));
+        // student[ company[s] ] = s, company[ student[c] ] = c,
+        // and no student and company both prefer each other over their matched ones
+        cp.post(stableMarriage(company, student, rankCompanies, rankStudents));
 
+        for (int s = 0; s < n; s++) {
             // companyPref[s] = rankCompanies[s][ company[s] ]
             cp.post(new Element1D(
                     rankCompanies[s],
@@ -101,16 +93,6 @@ public class StableMatching extends SatisfactionProblem {
         }
 
         for (int c = 0; c < n; c++) {
-            // TODO: model this with Element1DVar: the company of the student of company c is c
-            
-            // TODO: model this with Element1D: rankStudents[c][student[c]] = studentPref[c]
-
-            // company[ student[c] ] = c
-            cp.post(new Element1DVar(
-                    company,
-                    student[c],
-                    makeIntVar(cp, c, c)));
-
             // studentPref[c] = rankStudents[c][ student[c] ]
             cp.post(new Element1D(
                     rankStudents[c],
@@ -118,28 +100,7 @@ public class StableMatching extends SatisfactionProblem {
                     studentPref[c]));
         }
 
-        for (int s = 0; s < n; s++) {
-            for (int c = 0; c < n; c++) {
-                // if student s prefers company c over the chosen company, then the opposite is not true: c prefers their chosen student over s
-                // (companyPref[s] > rankCompanies[s][c]) => (studentPref[c] < rankStudents[c][s])
-
-                BoolVar sPrefersC = isLarger(companyPref[s], rankCompanies[s][c]);
-                BoolVar cDoesnot = isLess(studentPref[c], rankStudents[c][s]);
-                cp.post(implies(sPrefersC, cDoesnot));
-
-                // if company c prefers student s over their chosen student, then the opposite is not true: s prefers the chosen company over c
-                // (studentPref[c] > rankStudents[c][s]) => (companyPref[s] < rankCompanies[s][c])
-                // TODO: model this constraint
-
-                BoolVar cPrefersS = isLarger(studentPref[c], rankStudents[c][s]);
-                BoolVar sOk       = isLess   (companyPref[s], rankCompanies[s][c]);
-                cp.post(implies(cPrefersS, sOk));
-
-            }
-        }
-
         dfs = makeDfs(cp, and(firstFail(company), firstFail(student)));
-        // TODO add the constraints to the model and remove the NotImplementedException
     }
 
     public SearchStatistics solve(boolean verbose, Predicate<SearchStatistics> limit) {
@@ -155,17 +116,6 @@ public class StableMatching extends SatisfactionProblem {
         return "StableMatching(" + instance + ')';
     }
 
-    /**
-     * Model the reified logical implication constraint
-     * @param b1 left-hand side of the implication
-     * @param b2 right-hand side of the implication
-     * @return a boolean variable that is true if and only if
-     *         the relation "b1 implies b2" is true, and false otherwise.
-     */
-    private static BoolVar implies(BoolVar b1, BoolVar b2) {
-        return isLargerOrEqual(sum(not(b1), b2), 1);
-    }
-
     public static void main(String[] args) {
 
         // also use the instances at data/stable_matching/
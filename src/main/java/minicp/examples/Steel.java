@@ -33,7 +33,6 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.function.Predicate;
-import java.util.stream.IntStream;
 import minicp.engine.constraints.IsOr;
 
 import static minicp.cp.BranchingScheme.*;
@@ -66,7 +65,7 @@ public class Steel extends OptimizationProblem {
     public Solver cp;
     public IntVar[] x;          // x[i] = j if order i is placed in slab j
     public IntVar[] l;          // l[j] = load within slab j
-    public BoolVar[][] inSlab;  // inSlab[j][i] = 1 if order i is placed in slab j
+    public BoolVar[][] inSlab;  // inSlab[j][i] = 1 if order i is placed in slab j, used by the colour constraints
     public IntVar totLoss;      // sum of the losses: the objective to minimize
 
     public Steel(String instancePath) {
@@ -142,19 +141,10 @@ public class Steel extends OptimizationProblem {
             }
 
             // bin packing constraint
-            for (int j = 0; j < nSlab; j++) {
-                IntVar[] wj = new IntVar[nOrder];
-                for (int i = 0; i < nOrder; i++) {
-                    wj[i] = mul(inSlab[j][i], w[i]);
-                }
-                cp.post(sum(wj, l[j]));
-                cp.post(lessOrEqual(l[j], maxCapa));
-            }
+            cp.post(binPacking(x, w, l));
 
-            // TODO 4: add the redundant constraint that the sum of the loads is equal to the sum of elements
-            int totalWeight = IntStream.of(w).sum();
-            IntVar totalLoad = sum(l);         // build the Sum view once
-            cp.post(equal(totalLoad, totalWeight));
+            // TODO 4: the redundant constraint that the sum of the loads is equal to the sum of elements
+            // is enforced by the total weight rule of the bin packing constraint
 
 
             // TODO 1: model the objective function using element constraint + a sum constraint
@@ -196,12 +186,12 @@ public class Steel extends OptimizationProblem {
                 for (int v = 0; v <= limit; v++) {
                     if (x[fixedIdx].contains(v)) { // use fixedIdx instead of idx
                         final int vv = v;
-                        branches.add(() -> x[fixedIdx].fix(vv));  // capture fixedIdx & vv
+                        branches.add(() -> cp.post(equal(x[fixedIdx], vv)));  // capture fixedIdx & vv
                     }
                 }
                 if (branches.isEmpty()) {
                     int vv = x[fixedIdx].min();
-                    branches.add(() -> x[fixedIdx].fix(vv));
+                    branches.add(() -> cp.post(equal(x[fixedIdx], vv)));
                 }
                 return branches.toArray(new Procedure[0]);
             });
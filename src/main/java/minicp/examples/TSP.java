@@ -17,6 +17,7 @@ package minicp.examples;
 
 import minicp.engine.constraints.Circuit;
 import minicp.engine.constraints.Element1D;
+import minicp.engine.constraints.HeldKarp;
 import minicp.engine.core.IntVar;
 import minicp.engine.core.Solver;
 import minicp.util.io.InputReader;
@@ -42,8 +43,21 @@ public class TSP extends OptimizationProblem {
     public IntVar[] succ;
     public IntVar totalDist;
     String instance;
+    private final boolean heldKarp;
 
     public TSP(String instancePath) {
+        this(instancePath, false);
+    }
+
+    /**
+     * Creates a TSP model
+     *
+     * @param instancePath the path of the instance
+     * @param heldKarp true to bound the total distance with {@link HeldKarp}.
+     *                 It is worth it to prove optimality, but it slows down the LNS.
+     */
+    public TSP(String instancePath, boolean heldKarp) {
+        this.heldKarp = heldKarp;
         InputReader reader = new InputReader(instancePath);
         instance = reader.getFilename();
         n = reader.getInt();
@@ -60,6 +74,8 @@ public class TSP extends OptimizationProblem {
         }
 
         totalDist = sum(distSucc);
+        if (heldKarp)
+            cp.post(new HeldKarp(succ, distanceMatrix, totalDist));
         objective = cp.minimize(totalDist);
 
         // simple first-fail strategy
@@ -160,7 +176,7 @@ public class TSP extends OptimizationProblem {
         // instance p01 (adapted from) https://people.sc.fsu.edu/~jburkardt/datasets/tsp/p01_d.txt
         // the other instances are located at data/tsp/ and adapted from https://lopez-ibanez.eu/tsptw-instances
         String instance = "data/tsp/tsp_61.txt";
-        TSP tsp = new TSP(instance);
+        TSP tsp = new TSP(instance, true);
         tsp.buildModel();
         // stops at the first solutions using the exact search
         SearchStatistics stats = tsp.solve(true);
@@ -2,6 +2,7 @@ package minicp.examples;
 
 import minicp.engine.constraints.Circuit;
 import minicp.engine.constraints.Element1D;
+import minicp.engine.constraints.HeldKarp;
 import minicp.engine.core.IntVar;
 import minicp.engine.core.Solver;
 import minicp.search.SearchStatistics;
@@ -22,8 +23,22 @@ public class VRP extends OptimizationProblem{
     public IntVar totalDist;
     public int n;
     String instance;
+    private final boolean heldKarp;
 
     public VRP(String instancePath, int nVehicle) {
+        this(instancePath, nVehicle, false);
+    }
+
+    /**
+     * Creates a VRP model
+     *
+     * @param instancePath the path of the instance
+     * @param nVehicle the number of vehicles
+     * @param heldKarp true to bound the total distance with {@link HeldKarp}.
+     *                 It is worth it to prove optimality, but it slows down the search for first solutions.
+     */
+    public VRP(String instancePath, int nVehicle, boolean heldKarp) {
+        this.heldKarp = heldKarp;
         InputReader reader = new InputReader(instancePath);
         this.nVehicle = nVehicle;
         instance = reader.getFilename();
@@ -66,6 +81,8 @@ public class VRP extends OptimizationProblem{
             cp.post(new Element1D(distanceMatrix[i], succ[i], distSucc[i]));
         }
         totalDist = sum(distSucc);
+        if (heldKarp)
+            cp.post(new HeldKarp(succ, distanceMatrix, totalDist));
         objective = cp.minimize(totalDist);
 
         // simple first-fail strategy. You can optionally change it, but it is not required to pass the exercise
@@ -97,7 +114,7 @@ public class VRP extends OptimizationProblem{
         // instance fri26 https://people.sc.fsu.edu/~jburkardt/datasets/tsp/fri26_d.txt
         // instance p01 (adapted from) https://people.sc.fsu.edu/~jburkardt/datasets/tsp/p01_d.txt
         // the other instances are located at data/tsp/ and adapted from https://lopez-ibanez.eu/tsptw-instances
-        VRP vrp = new VRP("data/tsp/tsp_15.txt", 1);
+        VRP vrp = new VRP("data/tsp/tsp_15.txt", 1, true);
         vrp.buildModel();
         SearchStatistics stats = vrp.solve(true, s -> s.numberOfSolutions() == 1);
         System.out.println(stats);
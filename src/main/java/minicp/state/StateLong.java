@@ -0,0 +1,54 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.state;
+
+/**
+ * Object that wraps a long value
+ * that can be saved and restored through
+ * the {@link StateManager#saveState()} / {@link StateManager#restoreState()}
+ * methods.
+ * <p>
+ * Unlike {@link StateInt}, the value is a primitive field that is read,
+ * written and saved without boxing, since it is updated on every bound
+ * change of the variables of the incremental sums.
+ *
+ * @see StateManager#makeStateLong(long) for the creation.
+ */
+public interface StateLong {
+
+    /**
+     * Set the value
+     * @param v the value to set
+     * @return the new value that was set
+     */
+    long setValue(long v);
+
+    /**
+     * Retrieves the value
+     * @return the value
+     */
+    long value();
+
+    /**
+     * Adds a quantity to the value
+     * @param delta the quantity to add
+     * @return the new value
+     */
+    default long add(long delta) {
+        return setValue(value() + delta);
+    }
+
+}
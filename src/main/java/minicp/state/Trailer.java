@@ -119,6 +119,11 @@ public class Trailer implements StateManager {
         return new TrailInt(this,initValue);
     }
 
+    @Override
+    public StateLong makeStateLong(long initValue) {
+        return new TrailLong(this,initValue);
+    }
+
     @Override
     public StateMap makeStateMap() {
         return new TrailMap(this);
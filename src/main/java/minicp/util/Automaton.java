@@ -0,0 +1,193 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.util;
+
+import java.security.InvalidParameterException;
+import java.util.Arrays;
+
+/**
+ * Deterministic finite automaton over integer values.
+ * States are identified from 0 to {@link #nStates()}-1.
+ *
+ * @see minicp.engine.constraints.Regular
+ */
+public class Automaton {
+
+    private final int nStates;
+    private final int initial;
+    private final boolean[] accepting;
+
+    private int nTransitions = 0;
+    private int[] from = new int[8];
+    private int[] value = new int[8];
+    private int[] to = new int[8];
+
+    /**
+     * Creates an automaton without any transition.
+     *
+     * @param nStates the number of states
+     * @param initial the initial state
+     * @param finals the accepting states
+     */
+    public Automaton(int nStates, int initial, int[] finals) {
+        if (nStates <= 0) throw new InvalidParameterException("at least one state");
+        checkState(nStates, initial);
+        this.nStates = nStates;
+        this.initial = initial;
+        this.accepting = new boolean[nStates];
+        for (int q : finals) {
+            checkState(nStates, q);
+            accepting[q] = true;
+        }
+    }
+
+    /**
+     * Creates an automaton.
+     *
+     * @param nStates the number of states
+     * @param initial the initial state
+     * @param finals the accepting states
+     * @param transitions the transitions given as triples {@code {from, value, to}}
+     */
+    public Automaton(int nStates, int initial, int[] finals, int[][] transitions) {
+        this(nStates, initial, finals);
+        for (int[] t : transitions)
+            addTransition(t[0], t[1], t[2]);
+    }
+
+    private static void checkState(int nStates, int q) {
+        if (q < 0 || q >= nStates) throw new InvalidParameterException("invalid state " + q);
+    }
+
+    /**
+     * Adds the transition {@code from --value--> to}.
+     *
+     * @param from the origin state
+     * @param value the label of the transition
+     * @param to the destination state
+     */
+    public void addTransition(int from, int value, int to) {
+        checkState(nStates, from);
+        checkState(nStates, to);
+        if (transition(from, value) != -1)
+            throw new InvalidParameterException("automaton must be deterministic: state " + from + " has two transitions on " + value);
+        if (nTransitions == this.from.length) {
+            this.from = Arrays.copyOf(this.from, nTransitions * 2);
+            this.value = Arrays.copyOf(this.value, nTransitions * 2);
+            this.to = Arrays.copyOf(this.to, nTransitions * 2);
+        }
+        this.from[nTransitions] = from;
+        this.value[nTransitions] = value;
+        this.to[nTransitions] = to;
+        nTransitions++;
+    }
+
+    /**
+     * Returns the destination of the transition from a state on a value.
+     *
+     * @param state the origin state
+     * @param v the label
+     * @return the destination state or -1 if there is no such transition
+     */
+    public int transition(int state, int v) {
+        for (int t = 0; t < nTransitions; t++)
+            if (from[t] == state && value[t] == v)
+                return to[t];
+        return -1;
+    }
+
+    /**
+     * Returns the number of states.
+     *
+     * @return the number of states
+     */
+    public int nStates() {
+        return nStates;
+    }
+
+    /**
+     * Returns the initial state.
+     *
+     * @return the initial state
+     */
+    public int initialState() {
+        return initial;
+    }
+
+    /**
+     * Tells if a state is accepting.
+     *
+     * @param state the state
+     * @return true if the state is an accepting one
+     */
+    public boolean isAccepting(int state) {
+        return accepting[state];
+    }
+
+    /**
+     * Returns the number of transitions.
+     *
+     * @return the number of transitions
+     */
+    public int nTransitions() {
+        return nTransitions;
+    }
+
+    /**
+     * Returns the origin of the t-th transition.
+     *
+     * @param t the transition index between 0 and {@link #nTransitions()}-1
+     * @return the origin state of transition t
+     */
+    public int from(int t) {
+        return from[t];
+    }
+
+    /**
+     * Returns the label of the t-th transition.
+     *
+     * @param t the transition index between 0 and {@link #nTransitions()}-1
+     * @return the value labelling transition t
+     */
+    public int value(int t) {
+        return value[t];
+    }
+
+    /**
+     * Returns the destination of the t-th transition.
+     *
+     * @param t the transition index between 0 and {@link #nTransitions()}-1
+     * @return the destination state of transition t
+     */
+    public int to(int t) {
+        return to[t];
+    }
+
+    /**
+     * Tells if a sequence of values is accepted by this automaton.
+     *
+     * @param word the sequence of values
+     * @return true if reading word from the initial state ends in an accepting state
+     */
+    public boolean accepts(int... word) {
+        int q = initial;
+        for (int v : word) {
+            q = transition(q, v);
+            if (q == -1) return false;
+        }
+        return accepting[q];
+    }
+}
@@ -16,12 +16,15 @@
 package minicp.util;
 
 import java.util.Arrays;
-import java.util.Stack;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.function.BiConsumer;
 
 /**
  * Algorithms and Graph interface
+ * <p>
+ * The algorithms work on primitive graphs in compressed sparse row form:
+ * the successors of node {@code u} are {@code targets[offsets[u]..offsets[u+1]-1]}.
+ * The work arrays are kept in {@link Buffers} owned by the caller, such that
+ * a constraint calling them at each propagation does not allocate anything.
+ * The methods taking a {@link Graph} convert it first.
  */
 public class GraphUtil {
 
@@ -77,6 +80,41 @@ public class GraphUtil {
     }
 
 
+    /**
+     * Work arrays of the graph algorithms, that can be reused from one call to the next.
+     * They grow when a larger graph is given.
+     */
+    public static final class Buffers {
+        private int[] index;
+        private int[] low;
+        private int[] stack;
+        private int[] callStack;
+        private int[] cursor;
+        private boolean[] onStack;
+
+        /**
+         * Creates buffers for graphs with at most n nodes.
+         *
+         * @param n the initial capacity in number of nodes
+         */
+        public Buffers(int n) {
+            allocate(n);
+        }
+
+        private void allocate(int n) {
+            index = new int[n];
+            low = new int[n];
+            stack = new int[n];
+            callStack = new int[n];
+            cursor = new int[n];
+            onStack = new boolean[n];
+        }
+
+        private void ensureCapacity(int n) {
+            if (index.length < n) allocate(n);
+        }
+    }
+
     /**
      * Computes the strongly connected components of the graph
      * @param graph the input graph on which to compute the strongly
@@ -85,62 +123,80 @@ public class GraphUtil {
      *          components it belongs to
      */
     public static int[] stronglyConnectedComponents(Graph graph) {
-        //Compute the suffix order
-        Stack<Integer> firstOrder = new Stack<>();
-        int[] visited = new int[graph.n()];
-        Arrays.fill(visited, 0);
-        for (int i = 0; i < graph.n(); i++) {
-            if (visited[i] == 0) {
-                dfsNode(graph, (suffix, b) -> {
-                    if (suffix) firstOrder.push(b);
-                }, visited, i);
-            }
-        }
-
-        //Reverse the order, and do the dfs of the transposed graph
-        Arrays.fill(visited, 0);
-        int[] scc = new int[graph.n()];
-        AtomicInteger cpt = new AtomicInteger(0);
-        Graph tranposed = GraphUtil.transpose(graph);
-
-        while (!firstOrder.empty()) {
-            int next = firstOrder.pop();
-            if (visited[next] == 0) {
-                cpt.incrementAndGet();
-                dfsNode(tranposed, (suffix, x) -> {
-                    if (!suffix) scc[x] = cpt.get();
-                }, visited, next);
-            }
-        }
+        int n = graph.n();
+        int[] offsets = new int[n + 1];
+        int[] targets = toCSR(graph, offsets);
+        int[] scc = new int[n];
+        stronglyConnectedComponents(n, offsets, targets, scc, new Buffers(n));
         return scc;
     }
 
-    private static void dfsNode(Graph graph, BiConsumer<Boolean, Integer> action, int[] visited, int start) {
-        Stack<Integer> todo = new Stack<>();
-        todo.add(start);
-
-        // seen = 1
-        // visited = 2
-        // closed = 3
-        while (!todo.isEmpty()) {
-            int cur = todo.peek();
-            if (visited[cur] == 0) {
-                visited[cur] = 1; //seen
-                action.accept(false, cur);
-                for (int next : graph.out(cur)) {
-                    if (visited[next] == 0) {
-                        todo.add(next);
+    /**
+     * Computes the strongly connected components of a graph
+     * with the iterative version of Tarjan's algorithm.
+     * The components are numbered in reverse topological order:
+     * if there is an edge from u to v, then {@code scc[u] >= scc[v]}.
+     *
+     * @param n the number of nodes
+     * @param offsets the successors of node u start at {@code offsets[u]}, of size n+1
+     * @param targets the successors of the nodes
+     * @param scc the array of size at least n, filled with the id of the component of each node
+     * @param buffers the work arrays
+     * @return the number of strongly connected components
+     */
+    public static int stronglyConnectedComponents(int n, int[] offsets, int[] targets, int[] scc, Buffers buffers) {
+        buffers.ensureCapacity(n);
+        int[] index = buffers.index;
+        int[] low = buffers.low;
+        int[] stack = buffers.stack;
+        int[] callStack = buffers.callStack;
+        int[] cursor = buffers.cursor;
+        boolean[] onStack = buffers.onStack;
+        for (int u = 0; u < n; u++)
+            index[u] = -1;
+        int time = 0;
+        int nScc = 0;
+        int top = 0;
+        for (int root = 0; root < n; root++) {
+            if (index[root] != -1) continue;
+            int depth = 0;
+            callStack[0] = root;
+            index[root] = low[root] = time++;
+            cursor[root] = offsets[root];
+            stack[top++] = root;
+            onStack[root] = true;
+            while (depth >= 0) {
+                int u = callStack[depth];
+                if (cursor[u] < offsets[u + 1]) {
+                    int w = targets[cursor[u]++];
+                    if (index[w] == -1) {
+                        index[w] = low[w] = time++;
+                        cursor[w] = offsets[w];
+                        stack[top++] = w;
+                        onStack[w] = true;
+                        callStack[++depth] = w;
+                    } else if (onStack[w]) {
+                        low[u] = Math.min(low[u], index[w]);
+                    }
+                } else {
+                    if (low[u] == index[u]) {
+                        // u is the root of a component
+                        int w;
+                        do {
+                            w = stack[--top];
+                            onStack[w] = false;
+                            scc[w] = nScc;
+                        } while (w != u);
+                        nScc++;
+                    }
+                    if (--depth >= 0) {
+                        int parent = callStack[depth];
+                        low[parent] = Math.min(low[parent], low[u]);
                     }
                 }
-                visited[cur] = 2; //visited
-            } else if (visited[cur] == 2) {
-                action.accept(true, cur);
-                visited[cur] = 3; //closed
-                todo.pop();
             }
-            else
-                todo.pop();
         }
+        return nScc;
     }
 
     /**
@@ -151,9 +207,68 @@ public class GraphUtil {
      * @return true if a directed path from start to end exists, false otherwise
      */
     public static boolean pathExists(Graph graph, int start, int end) {
-        int[] visited = new int[graph.n()];
-        Arrays.fill(visited, 0);
-        dfsNode(graph,(v,n) -> {},visited,start);
-        return visited[end] != 0;
+        int n = graph.n();
+        int[] offsets = new int[n + 1];
+        int[] targets = toCSR(graph, offsets);
+        return pathExists(n, offsets, targets, start, end, new Buffers(n));
+    }
+
+    /**
+     * Checks if a path exists between start and end
+     * with an iterative depth first search.
+     *
+     * @param n the number of nodes
+     * @param offsets the successors of node u start at {@code offsets[u]}, of size n+1
+     * @param targets the successors of the nodes
+     * @param start a node id from the graph
+     * @param end a node id from the graph
+     * @param buffers the work arrays
+     * @return true if a directed path from start to end exists, false otherwise
+     */
+    public static boolean pathExists(int n, int[] offsets, int[] targets, int start, int end, Buffers buffers) {
+        buffers.ensureCapacity(n);
+        boolean[] visited = buffers.onStack;
+        int[] stack = buffers.stack;
+        for (int u = 0; u < n; u++)
+            visited[u] = false;
+        int top = 0;
+        stack[top++] = start;
+        visited[start] = true;
+        while (top > 0) {
+            int u = stack[--top];
+            if (u == end) return true;
+            for (int k = offsets[u]; k < offsets[u + 1]; k++) {
+                int w = targets[k];
+                if (!visited[w]) {
+                    visited[w] = true;
+                    stack[top++] = w;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Converts a graph in compressed sparse row form.
+     *
+     * @param graph the graph to convert
+     * @param offsets an array of size n+1 filled with the start of the successors of each node
+     * @return the successors of the nodes, those of node u being at indices
+     *         {@code offsets[u]..offsets[u+1]-1}
+     */
+    private static int[] toCSR(Graph graph, int[] offsets) {
+        int n = graph.n();
+        int[] targets = new int[Math.max(n, 1)];
+        int nEdges = 0;
+        for (int u = 0; u < n; u++) {
+            offsets[u] = nEdges;
+            for (int w : graph.out(u)) {
+                if (nEdges == targets.length)
+                    targets = Arrays.copyOf(targets, 2 * nEdges);
+                targets[nEdges++] = w;
+            }
+        }
+        offsets[n] = nEdges;
+        return targets;
     }
 }
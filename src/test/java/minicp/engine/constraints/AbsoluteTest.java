@@ -25,6 +25,9 @@ import org.javagrader.Grade;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.util.Random;
+import java.util.function.Supplier;
+
 import static minicp.cp.Factory.*;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -164,4 +167,64 @@ public class AbsoluteTest extends SolverTest {
     }
 
 
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testBoundsOnly(Solver cp) {
+        try {
+            IntVar x = makeIntVar(cp, -50, 100);
+            IntVar y = makeIntVar(cp, -10, 1000);
+
+            cp.post(new Absolute(x, y, false));
+
+            assertEquals(0, y.min());
+            assertEquals(100, y.max());
+            assertEquals(-50, x.min());
+
+            // a hole in y is not propagated to x
+            y.remove(3);
+            cp.fixPoint();
+            assertTrue(x.contains(3));
+
+            // but the bounds are moved to supported values
+            x.removeAbove(3);
+            cp.fixPoint();
+            assertEquals(50, y.max());
+            y.removeBelow(60);
+            cp.fixPoint();
+            fail("should fail");
+        } catch (InconsistencyException e) {
+        } catch (NotImplementedException e) {
+            NotImplementedExceptionAssume.fail(e);
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("solverSupplier")
+    public void testDomainConsistent(Supplier<Solver> solverFactory) {
+        Random rand = new Random(0);
+        for (int iter = 0; iter < 100; iter++) {
+            Solver cp = solverFactory.get();
+            IntVar x = makeIntVar(cp, -10, 10);
+            IntVar y = makeIntVar(cp, -5, 12);
+            try {
+                cp.post(new Absolute(x, y));
+                for (int step = 0; step < 5; step++) {
+                    if (rand.nextBoolean())
+                        x.remove(rand.nextInt(21) - 10);
+                    else
+                        y.remove(rand.nextInt(13));
+                    cp.fixPoint();
+                    // each value has a support in the other domain
+                    for (int v = x.min(); v <= x.max(); v++)
+                        if (x.contains(v))
+                            assertTrue(y.contains(Math.abs(v)));
+                    for (int v = y.min(); v <= y.max(); v++)
+                        if (y.contains(v))
+                            assertTrue(x.contains(v) || x.contains(-v));
+                }
+            } catch (InconsistencyException e) {
+                fail("should not fail");
+            }
+        }
+    }
 }
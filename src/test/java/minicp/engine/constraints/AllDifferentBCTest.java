@@ -0,0 +1,151 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.SolverTest;
+import minicp.engine.core.IntVar;
+import minicp.engine.core.Solver;
+import minicp.search.SearchStatistics;
+import minicp.util.exception.InconsistencyException;
+import org.javagrader.Grade;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static minicp.cp.BranchingScheme.*;
+import static minicp.cp.Factory.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@Grade(cpuTimeout = 1)
+public class AllDifferentBCTest extends SolverTest {
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testHallInterval(Solver cp) {
+        try {
+            IntVar[] x = new IntVar[]{
+                    makeIntVar(cp, 1, 2),
+                    makeIntVar(cp, 1, 2),
+                    makeIntVar(cp, 1, 4),
+                    makeIntVar(cp, 2, 5)};
+            cp.post(allDifferentBC(x));
+            assertEquals(3, x[2].min());
+            assertEquals(3, x[3].min());
+            assertEquals(4, x[2].max());
+            assertEquals(5, x[3].max());
+            x[3].removeAbove(4);
+            cp.fixPoint();
+            assertEquals(1, x[0].min());
+            assertEquals(2, x[1].max());
+            assertEquals(2, x[2].size());
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testPigeonHole(Solver cp) {
+        IntVar[] x = new IntVar[]{
+                makeIntVar(cp, 0, 2),
+                makeIntVar(cp, 1, 2),
+                makeIntVar(cp, 0, 1),
+                makeIntVar(cp, 0, 5)};
+        x[3].removeAbove(2);
+        assertThrows(InconsistencyException.class, () -> cp.post(allDifferentBC(x)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testNoSolutionRemoved(Solver cp) {
+        IntVar[] x = makeIntVarArray(cp, 5, 5);
+        try {
+            cp.post(allDifferentBC(x));
+            SearchStatistics stats = makeDfs(cp, firstFail(x)).solve();
+            assertEquals(120, stats.numberOfSolutions());
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("solverSupplier")
+    public void testSameBoundsAsDC(Supplier<Solver> solverFactory) {
+        // on interval domains, bound consistency gives the same bounds as domain consistency
+        Random rand = new Random(0);
+        for (int iter = 0; iter < 50; iter++) {
+            int n = 6;
+            Solver cp = solverFactory.get();
+            Solver cpDC = solverFactory.get();
+            IntVar[] x = new IntVar[n];
+            IntVar[] y = new IntVar[n];
+            for (int i = 0; i < n; i++) {
+                int min = rand.nextInt(8) - 2;
+                int max = min + rand.nextInt(4);
+                x[i] = makeIntVar(cp, min, max);
+                y[i] = makeIntVar(cpDC, min, max);
+            }
+            boolean failX = false, failY = false;
+            try {
+                cp.post(allDifferentBC(x));
+            } catch (InconsistencyException e) {
+                failX = true;
+            }
+            try {
+                cpDC.post(allDifferentDC(y));
+            } catch (InconsistencyException e) {
+                failY = true;
+            }
+            assertEquals(failY, failX);
+            if (!failX) {
+                for (int i = 0; i < n; i++) {
+                    assertEquals(y[i].min(), x[i].min());
+                    assertEquals(y[i].max(), x[i].max());
+                }
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testNoFailureWithBoundSearch(Solver cp) {
+        try {
+            IntVar[] x = new IntVar[]{
+                    makeIntVar(cp, 0, 3),
+                    makeIntVar(cp, 1, 4),
+                    makeIntVar(cp, 0, 2),
+                    makeIntVar(cp, 3, 6),
+                    makeIntVar(cp, 2, 6)};
+            cp.post(allDifferentBC(x));
+            // splitting the domains keeps them as intervals
+            SearchStatistics stats = makeDfs(cp, () -> {
+                IntVar xs = selectMin(x, xi -> xi.size() > 1, xi -> xi.size());
+                if (xs == null)
+                    return EMPTY;
+                int mid = (xs.min() + xs.max()) / 2;
+                return branch(() -> cp.post(lessOrEqual(xs, mid)),
+                        () -> cp.post(largerOrEqual(xs, mid + 1)));
+            }).solve();
+            assertEquals(0, stats.numberOfFailures());
+            SearchStatistics statsBinary = makeDfs(cp, firstFail(x)).solve();
+            assertEquals(statsBinary.numberOfSolutions(), stats.numberOfSolutions());
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        }
+    }
+}
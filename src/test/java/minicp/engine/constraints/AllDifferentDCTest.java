@@ -32,6 +32,7 @@ import org.opentest4j.AssertionFailedError;
 
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.Random;
 import java.util.Set;
 
 import static minicp.cp.BranchingScheme.*;
@@ -402,4 +403,43 @@ public class AllDifferentDCTest extends SolverTest {
     }
 
 
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testSameSolutionsAsBinary(Solver cp) {
+        // the matching is reused across the search, with backtracks
+        Random rand = new Random(0);
+        for (int iter = 0; iter < 10; iter++) {
+            int n = 5;
+            int[][] domains = new int[n][];
+            for (int i = 0; i < n; i++)
+                domains[i] = rand.ints(4, -2, 5).toArray();
+            cp.getStateManager().saveState();
+            IntVar[] x = new IntVar[n];
+            IntVar[] y = new IntVar[n];
+            for (int i = 0; i < n; i++) {
+                Integer[] values = Arrays.stream(domains[i]).boxed().toArray(Integer[]::new);
+                x[i] = makeIVar(cp, values);
+                y[i] = makeIVar(cp, values);
+            }
+            int nSolX = -1;
+            try {
+                cp.post(new AllDifferentDC(x));
+                SearchStatistics stats = makeDfs(cp, firstFail(x)).solve();
+                assertEquals(0, stats.numberOfFailures());
+                nSolX = stats.numberOfSolutions();
+            } catch (InconsistencyException e) {
+                nSolX = 0;
+            }
+            int nSolY;
+            try {
+                cp.post(new AllDifferentBinary(y));
+                nSolY = makeDfs(cp, firstFail(y)).solve().numberOfSolutions();
+            } catch (InconsistencyException e) {
+                nSolY = 0;
+            }
+            assertEquals(nSolY, nSolX);
+            cp.getStateManager().restoreState();
+        }
+    }
+
 }
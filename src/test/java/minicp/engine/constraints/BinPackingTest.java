@@ -0,0 +1,140 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.SolverTest;
+import minicp.engine.core.BoolVar;
+import minicp.engine.core.IntVar;
+import minicp.engine.core.Solver;
+import minicp.search.SearchStatistics;
+import minicp.util.exception.InconsistencyException;
+import org.javagrader.Grade;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static minicp.cp.BranchingScheme.firstFail;
+import static minicp.cp.Factory.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@Grade(cpuTimeout = 1)
+public class BinPackingTest extends SolverTest {
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testLoads(Solver cp) {
+        try {
+            IntVar[] x = makeIntVarArray(cp, 4, 2);
+            IntVar[] l = makeIntVarArray(cp, 2, 20);
+            cp.post(binPacking(x, new int[]{3, 4, 5, 6}, l));
+            assertEquals(0, l[0].min());
+            assertEquals(18, l[0].max());
+            x[0].fix(0);
+            x[1].fix(1);
+            cp.fixPoint();
+            assertEquals(3, l[0].min());
+            assertEquals(14, l[0].max());
+            l[1].fix(4);
+            cp.fixPoint();
+            // the remaining items must go to bin 0
+            assertTrue(x[2].isFixed());
+            assertTrue(x[3].isFixed());
+            assertEquals(0, x[2].min());
+            assertEquals(14, l[0].min());
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testKnapsack(Solver cp) {
+        try {
+            IntVar[] x = makeIntVarArray(cp, 3, 2);
+            IntVar[] l = new IntVar[]{makeIntVar(cp, 1, 7), makeIntVar(cp, 0, 20)};
+            cp.post(binPacking(x, new int[]{4, 4, 9}, l));
+            // the only sum of candidates in [1,7] is 4, and item 2 is too heavy for bin 0
+            assertEquals(4, l[0].min());
+            assertEquals(4, l[0].max());
+            assertFalse(x[2].contains(0));
+            assertEquals(13, l[1].min());
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testNoSum(Solver cp) {
+        IntVar[] x = makeIntVarArray(cp, 3, 2);
+        IntVar[] l = new IntVar[]{makeIntVar(cp, 5, 7), makeIntVar(cp, 0, 20)};
+        // subsets of {4, 4, 4} sum up to 0, 4, 8 or 12
+        assertThrows(InconsistencyException.class, () -> cp.post(binPacking(x, new int[]{4, 4, 4}, l)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testLowerBound(Solver cp) {
+        IntVar[] x = makeIntVarArray(cp, 8, 3);
+        IntVar[] l = makeIntVarArray(cp, 3, 11);
+        // the total weight fits and each bin can be filled,
+        // but the four items of weight 6 need four bins of capacity 10
+        assertThrows(InconsistencyException.class,
+                () -> cp.post(binPacking(x, new int[]{6, 6, 6, 6, 1, 1, 1, 1}, l)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("solverSupplier")
+    public void testSameSolutionsAsDecomposition(Supplier<Solver> solverFactory) {
+        Random rand = new Random(0);
+        for (int iter = 0; iter < 20; iter++) {
+            int n = 6;
+            int m = 3;
+            int capa = 6 + rand.nextInt(6);
+            int[] w = new int[n];
+            for (int i = 0; i < n; i++)
+                w[i] = 1 + rand.nextInt(6);
+
+            Solver cpDec = solverFactory.get();
+            IntVar[] y = makeIntVarArray(cpDec, n, m);
+            IntVar[] ly = makeIntVarArray(cpDec, m, capa + 1);
+            long expected = 0;
+            try {
+                for (int j = 0; j < m; j++) {
+                    BoolVar[] in = new BoolVar[n];
+                    for (int i = 0; i < n; i++)
+                        in[i] = isEqual(y[i], j);
+                    cpDec.post(scalarProduct(w, in, ly[j]));
+                }
+                expected = makeDfs(cpDec, firstFail(y)).solve().numberOfSolutions();
+            } catch (InconsistencyException ignored) {
+            }
+
+            Solver cp = solverFactory.get();
+            IntVar[] x = makeIntVarArray(cp, n, m);
+            IntVar[] l = makeIntVarArray(cp, m, capa + 1);
+            try {
+                cp.post(binPacking(x, w, l));
+                SearchStatistics stats = makeDfs(cp, firstFail(x)).solve();
+                assertEquals(expected, stats.numberOfSolutions());
+            } catch (InconsistencyException e) {
+                assertEquals(0, expected);
+            }
+        }
+    }
+}
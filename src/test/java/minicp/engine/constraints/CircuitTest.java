@@ -32,6 +32,7 @@ import org.junit.jupiter.params.provider.ValueSource;
 
 import java.util.*;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -494,4 +495,93 @@ public class CircuitTest extends SolverTest {
         }
     }
 
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testStrongAllSolutions(Solver cp) {
+        try {
+            IntVar[] x = makeIntVarArray(cp, 6, 6);
+            cp.post(new Circuit(x, true));
+            DFSearch dfs = makeDfs(cp, firstFail(x));
+            dfs.onSolution(() -> {
+                int[] sol = new int[x.length];
+                for (int i = 0; i < x.length; i++) {
+                    sol[i] = x[i].min();
+                }
+                assertTrue(checkHamiltonian(sol), "Solution is not an hamiltonian Circuit");
+            });
+            SearchStatistics stats = dfs.solve();
+            assertEquals(120, stats.numberOfSolutions());
+            assertEquals(0, stats.numberOfFailures());
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testStrongNotConnected(Solver cp) {
+        // {0,1,2} and {3,4} can only reach each other through 2 -> 3, never back
+        IntVar[] x = new IntVar[]{
+                makeIntVar(cp, 1, 2),
+                makeIntVar(cp, 0, 2),
+                makeIntVar(cp, 0, 3),
+                makeIntVar(cp, 4, 4),
+                makeIntVar(cp, 3, 3)};
+        assertThrows(InconsistencyException.class, () -> cp.post(new Circuit(x, true)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testStrongDominator(Solver cp) {
+        try {
+            // all the paths from 0 to 2 and 3 go through 1, so 1 must be visited
+            // before them, and the arcs 2 -> 1 and 3 -> 1 would close a subtour
+            int[][] domains = new int[][]{{1, 4}, {2, 3}, {0, 1, 3}, {0, 1, 2}, {0, 1}};
+            IntVar[] x = new IntVar[domains.length];
+            IntVar[] y = new IntVar[domains.length];
+            for (int i = 0; i < domains.length; i++) {
+                x[i] = makeIntVar(cp, Arrays.stream(domains[i]).boxed().collect(Collectors.toSet()));
+                y[i] = makeIntVar(cp, Arrays.stream(domains[i]).boxed().collect(Collectors.toSet()));
+            }
+            cp.post(new Circuit(x, true));
+            assertFalse(x[2].contains(1));
+            assertFalse(x[3].contains(1));
+            // 4 can only be reached from 0, so it must be its successor
+            assertEquals(4, x[0].min());
+            assertEquals(1, x[4].min());
+            // the default filtering keeps them
+            cp.post(new Circuit(y));
+            assertTrue(y[2].contains(1));
+            assertTrue(y[3].contains(1));
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("solverSupplier")
+    public void testStrongSameSolutions(Supplier<Solver> solverFactory) {
+        Random rand = new Random(0);
+        for (int iter = 0; iter < 20; iter++) {
+            int n = 6;
+            int[][] domains = new int[n][];
+            for (int i = 0; i < n; i++)
+                domains[i] = rand.ints(4, 0, n).toArray();
+            int[] nSol = new int[2];
+            for (int strong = 0; strong < 2; strong++) {
+                Solver cp = solverFactory.get();
+                IntVar[] x = new IntVar[n];
+                for (int i = 0; i < n; i++)
+                    x[i] = makeIntVar(cp, Arrays.stream(domains[i]).boxed().collect(Collectors.toSet()));
+                try {
+                    cp.post(new Circuit(x, strong == 1));
+                    nSol[strong] = makeDfs(cp, firstFail(x)).solve().numberOfSolutions();
+                } catch (InconsistencyException e) {
+                    nSol[strong] = 0;
+                }
+            }
+            assertEquals(nSol[0], nSol[1]);
+        }
+    }
 }
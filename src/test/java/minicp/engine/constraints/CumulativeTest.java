@@ -17,6 +17,7 @@ package minicp.engine.constraints;
 
 import minicp.engine.SolverTest;
 import minicp.engine.constraints.Profile.Rectangle;
+import minicp.engine.core.BoolVar;
 import minicp.engine.core.IntVar;
 import minicp.engine.core.Solver;
 import minicp.search.DFSearch;
@@ -501,6 +502,123 @@ public class CumulativeTest extends SolverTest {
         }
     }
 
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testProfileAfterBacktrack(Solver cp) {
+        try {
+
+            IntVar[] s = makeIntVarArray(cp, 3, 10);
+            int[] d = new int[]{4, 4, 4};
+            int[] r = new int[]{1, 1, 1};
+
+            cp.post(new Cumulative(s, d, r, 2));
+
+            cp.getStateManager().saveState();
+            cp.post(equal(s[0], 0));
+            cp.post(equal(s[1], 0));
+            assertEquals(4, s[2].min());
+            cp.getStateManager().restoreState();
+
+            // the profile built in the left branch must not be reused
+            assertEquals(0, s[2].min());
+            cp.post(equal(s[0], 2));
+            assertEquals(0, s[2].min());
+            cp.post(equal(s[1], 3));
+            assertEquals(6, s[2].min());
+
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        } catch (NotImplementedException e) {
+            NotImplementedExceptionAssume.fail(e);
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testEnergeticOverload(Solver cp) {
+        IntVar[] s = new IntVar[]{makeIntVar(cp, 0, 2), makeIntVar(cp, 0, 2), makeIntVar(cp, 0, 3)};
+        int[] d = new int[]{2, 2, 2};
+        int[] r = new int[]{2, 2, 1};
+
+        cp.getStateManager().saveState();
+        // no compulsory part: the time-table filtering does not detect the overload
+        cp.post(new Cumulative(s, d, r, 2));
+        cp.getStateManager().restoreState();
+
+        // [0,4) must contain 4+4+1 units of energy for a capacity of 8
+        assertThrows(InconsistencyException.class, () -> cp.post(new Cumulative(s, d, r, 2, 1)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testEnergeticPush(Solver cp) {
+        try {
+
+            IntVar[] s = new IntVar[]{makeIntVar(cp, 0, 2), makeIntVar(cp, 0, 2), makeIntVar(cp, 0, 10)};
+            int[] d = new int[]{2, 2, 2};
+            int[] r = new int[]{2, 2, 1};
+
+            cp.post(new Cumulative(s, d, r, 2, 1));
+
+            // activities 0 and 1 fill the interval [0,4)
+            assertEquals(4, s[2].min());
+            assertEquals(0, s[0].min());
+
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testEnergeticSameNumberOfSolutions(Solver cp) {
+        int[] d = new int[]{3, 4, 2, 3, 1};
+        int[] r = new int[]{2, 3, 1, 2, 3};
+        long[] nSols = new long[3];
+        int[] periods = new int[]{0, 1, 3};
+        for (int k = 0; k < periods.length; k++) {
+            cp.getStateManager().saveState();
+            IntVar[] s = makeIntVarArray(cp, 5, 7);
+            cp.post(new Cumulative(s, d, r, 4, periods[k]));
+            DFSearch search = makeDfs(cp, firstFail(s));
+            nSols[k] = search.solve().numberOfSolutions();
+            cp.getStateManager().restoreState();
+        }
+        assertEquals(nSols[0], nSols[1]);
+        assertEquals(nSols[0], nSols[2]);
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testOptional(Solver cp) {
+        try {
+
+            IntVar[] s = new IntVar[]{makeIntVar(cp, 0, 0), makeIntVar(cp, 0, 10), makeIntVar(cp, 2, 4)};
+            int[] d = new int[]{5, 3, 4};
+            int[] r = new int[]{2, 1, 1};
+            BoolVar[] present = new BoolVar[]{makeBoolVar(cp), makeBoolVar(cp), makeBoolVar(cp)};
+
+            cp.post(new Cumulative(s, d, r, 2, present));
+            // the optional activities do not filter each other
+            assertEquals(0, s[1].min());
+            assertFalse(present[2].isFixed());
+
+            present[0].fix(true);
+            cp.fixPoint();
+            // activity 2 cannot fit before 5 and its start is not filtered
+            assertTrue(present[2].isFalse());
+            assertEquals(2, s[2].min());
+            // activity 1 may still be absent
+            assertEquals(0, s[1].min());
+            present[1].fix(true);
+            cp.fixPoint();
+            assertEquals(5, s[1].min());
+
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        }
+    }
+
     private static int[] discreteProfile(Rectangle... rectangles) {
         int min = Arrays.stream(rectangles).filter(r -> r.height() > 0).map(Rectangle::start).min(Integer::compare).get();
         int max = Arrays.stream(rectangles).filter(r -> r.height() > 0).map(Rectangle::end).max(Integer::compare).get();
@@ -28,6 +28,7 @@ import org.javagrader.Grade;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 import java.util.Arrays;
+import java.util.Random;
 
 import static minicp.cp.BranchingScheme.firstFail;
 import static minicp.cp.Factory.*;
@@ -359,4 +360,181 @@ public class DisjunctiveTest extends SolverTest {
             NotImplementedExceptionAssume.fail(e);
         }
     }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testStandaloneAllDiffDisjunctive(Solver cp) {
+        try {
+            IntVar[] s = makeIntVarArray(cp, 5, 5);
+
+            int[] d = new int[5];
+            Arrays.fill(d, 1);
+            cp.post(new Disjunctive(s, d, false));
+            SearchStatistics stats = makeDfs(cp, firstFail(s)).solve();
+            assertEquals(120, stats.numberOfSolutions());
+        } catch (InconsistencyException e) {
+            fail();
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testStandaloneNotRemovingSolutions(Solver cp) {
+        try {
+
+            IntVar[] s = makeIntVarArray(cp, 4, 20);
+            int[] d = new int[]{5, 4, 6, 7};
+            DFSearch dfs = makeDfs(cp, firstFail(s));
+
+            cp.getStateManager().saveState();
+
+            cp.post(new Disjunctive(s, d, false));
+
+            SearchStatistics stat1 = dfs.solve();
+
+            cp.getStateManager().restoreState();
+
+            decomposeDisjunctive(s, d);
+
+            SearchStatistics stat2 = dfs.solve();
+
+            assertEquals(stat1.numberOfSolutions(), stat2.numberOfSolutions());
+            // the global constraint never lets the search reach an overlapping assignment
+            assertTrue(stat1.numberOfFailures() <= stat2.numberOfFailures());
+
+        } catch (InconsistencyException e) {
+            fail();
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testStandaloneDisjunctive(Solver cp) {
+        IntVar sA = makeIntVar(cp, 0, 9);
+        int d1 = 5;
+        IntVar sB = makeIntVar(cp, 1, 10);
+        int d2 = 5;
+        IntVar sC = makeIntVar(cp, 3, 9);
+        int d3 = 4;
+
+        try {
+            cp.post(new Disjunctive(new IntVar[]{sA, sB, sC}, new int[]{d1, d2, d3}, false));
+            assertEquals(0, sA.min());
+            assertEquals(1, sA.max());
+            assertEquals(9, sB.min());
+            assertEquals(10, sB.max());
+            assertEquals(5, sC.min());
+            assertEquals(6, sC.max());
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testEdgeFinding(Solver cp) {
+        IntVar sA = makeIntVar(cp, 4, 26);
+        int d1 = 4;
+        IntVar sB = makeIntVar(cp, 5, 10);
+        int d2 = 3;
+        IntVar sC = makeIntVar(cp, 5, 10);
+        int d3 = 3;
+
+        Disjunctive disjunctive = new Disjunctive(new IntVar[]{sA, sB, sC}, new int[]{d1, d2, d3}, false);
+
+        // Test the method by itself:
+        cp.getStateManager().withNewState(() -> {
+            try {
+                assertFalse(disjunctive.detectablePrecedence());
+                // A cannot be processed before B and C, nor between them
+                assertTrue(disjunctive.edgeFinding());
+                assertEquals(11, sA.min(), "edge finding should set sA.min() to 11");
+                assertFalse(disjunctive.edgeFinding());
+            } catch (InconsistencyException e) {
+                fail();
+            }
+        });
+
+        // Integration test by posting the constraint:
+        try {
+            disjunctive.post();
+            assertEquals(11, sA.min());
+        } catch (InconsistencyException e) {
+            fail();
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testOptionalOverload(Solver cp) {
+        try {
+            IntVar[] s = new IntVar[]{makeIntVar(cp, 0, 5), makeIntVar(cp, 0, 5), makeIntVar(cp, 0, 5)};
+            int[] d = new int[]{5, 5, 3};
+            BoolVar[] present = new BoolVar[]{makeBoolVar(cp), makeBoolVar(cp), makeBoolVar(cp)};
+            present[0].fix(true);
+            present[1].fix(true);
+            cp.post(new Disjunctive(s, d, present));
+            // 0 and 1 fill [0,10), there is no room left for 2
+            assertTrue(present[2].isFalse());
+            assertEquals(0, s[2].min());
+            assertEquals(5, s[2].max());
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testOptionalDoesNotFilter(Solver cp) {
+        try {
+            IntVar[] s = new IntVar[]{makeIntVar(cp, 0, 10), makeIntVar(cp, 0, 0)};
+            int[] d = new int[]{5, 5};
+            BoolVar[] present = new BoolVar[]{makeBoolVar(cp), makeBoolVar(cp)};
+            present[0].fix(true);
+            cp.post(new Disjunctive(s, d, present));
+            assertEquals(0, s[0].min());
+            assertFalse(present[1].isFixed());
+            present[1].fix(true);
+            cp.fixPoint();
+            assertEquals(5, s[0].min());
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testOptionalNotRemovingSolutions(Solver cp) {
+        Random rand = new Random(0);
+        for (int iter = 0; iter < 10; iter++) {
+            int n = 3;
+            int[] d = new int[n];
+            for (int i = 0; i < n; i++)
+                d[i] = 1 + rand.nextInt(3);
+            // brute force count
+            int horizon = 5;
+            int expected = 0;
+            for (int a = 0; a < horizon * horizon * horizon * 8; a++) {
+                int[] st = new int[]{a % horizon, (a / horizon) % horizon, (a / horizon / horizon) % horizon};
+                int mask = a / horizon / horizon / horizon;
+                boolean ok = true;
+                for (int i = 0; i < n; i++)
+                    for (int j = i + 1; j < n; j++)
+                        if ((mask >> i & 1) == 1 && (mask >> j & 1) == 1
+                                && st[i] + d[i] > st[j] && st[j] + d[j] > st[i])
+                            ok = false;
+                if (ok) expected++;
+            }
+            cp.getStateManager().saveState();
+            IntVar[] s = makeIntVarArray(cp, n, horizon);
+            BoolVar[] present = new BoolVar[n];
+            for (int i = 0; i < n; i++)
+                present[i] = makeBoolVar(cp);
+            IntVar[] all = new IntVar[]{present[0], present[1], present[2], s[0], s[1], s[2]};
+            cp.post(new Disjunctive(s, d, present));
+            SearchStatistics stats = makeDfs(cp, firstFail(all)).solve();
+            assertEquals(expected, stats.numberOfSolutions());
+            cp.getStateManager().restoreState();
+        }
+    }
 }
@@ -30,6 +30,8 @@ import org.junit.jupiter.params.provider.MethodSource;
 
 import java.util.stream.IntStream;
 import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Random;
 import java.util.stream.Stream;
 
@@ -329,4 +331,115 @@ public class Element1DTest {
             NotImplementedExceptionAssume.fail(e);
         }
     }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void element1dOutOfRangeIndices(String solver) {
+        try {
+            Solver cp = solver(solver);
+            IntVar y = makeIntVar(cp, new HashSet<>(Arrays.asList(-2, 1, 3, 7)));
+            IntVar z = makeIntVar(cp, -20, 20);
+            int[] T = new int[]{3, 2, 1, -1, 0};
+
+            cp.post(new Element1D(T, y, z));
+
+            // the bounds of z do not exclude -2 and 7, they are removed as out of the array
+            assertEquals(2, y.size());
+            assertTrue(y.contains(1));
+            assertTrue(y.contains(3));
+            assertEquals(-1, z.min());
+            assertEquals(2, z.max());
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        } catch (NotImplementedException e) {
+            NotImplementedExceptionAssume.fail(e);
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void element1dHoleInZ(String solver) {
+        try {
+            Solver cp = solver(solver);
+            IntVar y = makeIntVar(cp, 0, 2);
+            IntVar z = makeIntVar(cp, 0, 2);
+            int[] T = new int[]{0, 1, 2};
+
+            cp.post(new Element1D(T, y, z));
+
+            // the constraint is bound consistent on z: an interior hole of z
+            // is not propagated to y, Element1DDomainConsistent removes index 1
+            z.remove(1);
+            cp.fixPoint();
+            assertEquals(3, y.size());
+
+            // index 1 is still rejected once it is the only one left
+            y.remove(0);
+            y.remove(2);
+            assertThrows(InconsistencyException.class, () -> cp.fixPoint());
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        } catch (NotImplementedException e) {
+            NotImplementedExceptionAssume.fail(e);
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void element1dRestoreState(String solver) {
+        try {
+            Solver cp = solver(solver);
+            IntVar y = makeIntVar(cp, 0, 5);
+            IntVar z = makeIntVar(cp, 0, 10);
+            int[] T = new int[]{5, 1, 4, 2, 3, 6};
+
+            Element1D element1D = new Element1D(T, y, z);
+            cp.post(element1D);
+            assertEquals(1, z.min());
+            assertEquals(6, z.max());
+
+            cp.getStateManager().saveState();
+            z.removeBelow(2);
+            z.removeAbove(4);
+            cp.fixPoint();
+            assertEquals(3, y.size());
+            assertFalse(y.contains(0));
+            assertFalse(y.contains(1));
+            assertFalse(y.contains(5));
+
+            cp.getStateManager().saveState();
+            y.remove(2); // value 4
+            y.remove(3); // value 2
+            cp.fixPoint();
+            assertTrue(y.isFixed());
+            assertTrue(z.isFixed());
+            assertEquals(3, z.min());
+
+            cp.getStateManager().restoreState();
+            // low and up are restored with the domains: propagating again keeps the bounds of z
+            element1D.propagate();
+            assertEquals(3, y.size());
+            assertEquals(2, z.min());
+            assertEquals(4, z.max());
+
+            cp.getStateManager().restoreState();
+            element1D.propagate();
+            assertEquals(6, y.size());
+            assertEquals(1, z.min());
+            assertEquals(6, z.max());
+
+            // the other side moves inwards from the restored positions
+            z.removeAbove(3);
+            cp.fixPoint();
+            assertEquals(3, y.size());
+            assertTrue(y.contains(1));
+            assertTrue(y.contains(3));
+            assertTrue(y.contains(4));
+            assertEquals(3, z.max());
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        } catch (NotImplementedException e) {
+            NotImplementedExceptionAssume.fail(e);
+        }
+    }
 }
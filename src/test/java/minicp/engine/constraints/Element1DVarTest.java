@@ -30,11 +30,16 @@ import org.junit.jupiter.params.provider.MethodSource;
 
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.Random;
+import java.util.function.Supplier;
 
 import static minicp.cp.BranchingScheme.firstFail;
 import static minicp.cp.Factory.makeDfs;
 import static minicp.cp.Factory.makeIntVar;
+import static minicp.cp.Factory.makeIntVarArray;
+import static minicp.cp.Factory.notEqual;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 @Grade(cpuTimeout = 1)
@@ -306,4 +311,96 @@ public class Element1DVarTest extends SolverTest {
         }
     }
 
+    @ParameterizedTest
+    @MethodSource("solverSupplier")
+    public void element1dVarTestDomainConsistency(Supplier<Solver> solverFactory) {
+        Random rand = new Random(0);
+        for (int iter = 0; iter < 50; iter++) {
+            Solver cp = solverFactory.get();
+            IntVar[] T = makeIntVarArray(cp, 4, 6);
+            IntVar y = makeIntVar(cp, -1, 4);
+            IntVar z = makeIntVar(cp, 0, 5);
+            for (int i = 0; i < 4; i++)
+                for (int k = 0; k < 3; k++)
+                    T[i].remove(rand.nextInt(6));
+            for (int k = 0; k < 2; k++)
+                z.remove(rand.nextInt(6));
+            try {
+                cp.post(new Element1DVar(T, y, z));
+                for (int step = 0; step < 3; step++) {
+                    // a random removal, then check that every value has a support
+                    IntVar[] vars = new IntVar[]{y, z, T[rand.nextInt(4)]};
+                    IntVar x = vars[rand.nextInt(3)];
+                    cp.post(notEqual(x, x.min() + rand.nextInt(x.max() - x.min() + 1)));
+                    for (int v = 0; v < 6; v++) {
+                        boolean supported = false;
+                        for (int i = 0; i < 4; i++)
+                            supported |= y.contains(i) && T[i].contains(v);
+                        assertTrue(supported || !z.contains(v));
+                    }
+                    for (int i = 0; i < 4; i++) {
+                        boolean supported = false;
+                        for (int v = 0; v < 6; v++)
+                            supported |= T[i].contains(v) && z.contains(v);
+                        assertTrue(supported || !y.contains(i));
+                    }
+                    if (y.isFixed())
+                        for (int v = 0; v < 6; v++)
+                            assertTrue(!T[y.min()].contains(v) || z.contains(v));
+                }
+            } catch (InconsistencyException ignored) {
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("solverSupplier")
+    public void element1dVarTestSameSolutionsAsEnumeration(Supplier<Solver> solverFactory) {
+        Random rand = new Random(1);
+        for (int iter = 0; iter < 20; iter++) {
+            boolean[][] dom = new boolean[4][5];
+            boolean[] domZ = new boolean[5];
+            for (int v = 0; v < 5; v++) {
+                domZ[v] = rand.nextInt(3) > 0;
+                for (int i = 0; i < 4; i++)
+                    dom[i][v] = rand.nextInt(3) > 0;
+            }
+            // tuples (y, z, T) with T[y] == z
+            long expected = 0;
+            for (int i = 0; i < 4; i++) {
+                for (int v = 0; v < 5; v++) {
+                    if (!domZ[v] || !dom[i][v]) continue;
+                    long others = 1;
+                    for (int j = 0; j < 4; j++) {
+                        if (j == i) continue;
+                        int c = 0;
+                        for (int w = 0; w < 5; w++)
+                            if (dom[j][w]) c++;
+                        others *= c;
+                    }
+                    expected += others;
+                }
+            }
+
+            Solver cp = solverFactory.get();
+            IntVar[] T = makeIntVarArray(cp, 4, 5);
+            IntVar y = makeIntVar(cp, 0, 3);
+            IntVar z = makeIntVar(cp, 0, 4);
+            try {
+                for (int v = 0; v < 5; v++) {
+                    if (!domZ[v]) z.remove(v);
+                    for (int i = 0; i < 4; i++)
+                        if (!dom[i][v]) T[i].remove(v);
+                }
+                cp.post(new Element1DVar(T, y, z));
+                IntVar[] vars = new IntVar[]{y, z, T[0], T[1], T[2], T[3]};
+                DFSearch dfs = makeDfs(cp, firstFail(vars));
+                dfs.onSolution(() -> assertEquals(T[y.min()].min(), z.min()));
+                assertEquals(expected, dfs.solve().numberOfSolutions());
+            } catch (InconsistencyException e) {
+                assertEquals(0, expected);
+            }
+        }
+    }
+
 }
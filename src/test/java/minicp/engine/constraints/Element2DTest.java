@@ -25,11 +25,15 @@ import org.junit.jupiter.api.Timeout;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.util.Random;
+import java.util.function.Supplier;
+
 import static minicp.cp.BranchingScheme.firstFail;
+import static minicp.cp.Factory.element;
 import static minicp.cp.Factory.makeDfs;
 import static minicp.cp.Factory.makeIntVar;
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.fail;
+import static minicp.cp.Factory.notEqual;
+import static org.junit.jupiter.api.Assertions.*;
 
 @Timeout(1)
 public class Element2DTest extends SolverTest {
@@ -120,4 +124,166 @@ public class Element2DTest extends SolverTest {
         }
     }
 
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void element2dTestSharedMatrix(Solver cp) {
+        try {
+            int[][] T = new int[][]{
+                    {3, 1, 4},
+                    {1, 5, 9},
+                    {2, 6, 5},
+            };
+            IntVar x1 = makeIntVar(cp, 0, 2);
+            IntVar y1 = makeIntVar(cp, 0, 2);
+            IntVar z1 = makeIntVar(cp, 0, 3);
+            IntVar x2 = makeIntVar(cp, 0, 2);
+            IntVar y2 = makeIntVar(cp, 0, 2);
+            IntVar z2 = makeIntVar(cp, 5, 20);
+            Element2D.Cells cells = new Element2D.Cells(T);
+            cp.post(new Element2D(cells, x1, y1, z1));
+            cp.post(new Element2D(cells, x2, y2, z2));
+
+            assertEquals(1, z1.min());
+            assertEquals(3, z1.max());
+            assertEquals(1, y1.max());
+            assertEquals(5, z2.min());
+            assertEquals(9, z2.max());
+            assertEquals(1, x2.min());
+            assertEquals(1, y2.min());
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("solverSupplier")
+    public void element2dTestModifiedMatrix(Supplier<Solver> solverFactory) {
+        try {
+            int[][] T = new int[][]{
+                    {3, 1},
+                    {1, 5},
+            };
+            Solver cp1 = solverFactory.get();
+            IntVar x1 = makeIntVar(cp1, 0, 1);
+            IntVar y1 = makeIntVar(cp1, 0, 1);
+            IntVar z1 = makeIntVar(cp1, 0, 20);
+            cp1.post(new Element2D(T, x1, y1, z1));
+            Element2D.Cells cells = new Element2D.Cells(T);
+
+            // a second model over the same matrix with different contents
+            T[1][1] = 8;
+            T[0][1] = 0;
+            Solver cp2 = solverFactory.get();
+            IntVar x2 = makeIntVar(cp2, 0, 1);
+            IntVar y2 = makeIntVar(cp2, 0, 1);
+            IntVar z2 = makeIntVar(cp2, 0, 20);
+            cp2.post(new Element2D(T, x2, y2, z2));
+            assertEquals(0, z2.min());
+            assertEquals(8, z2.max());
+            z2.removeBelow(4);
+            cp2.fixPoint();
+            assertTrue(x2.isFixed());
+            assertEquals(1, x2.min());
+            assertEquals(8, z2.min());
+
+            // the first model and the cells keep the contents they were built with
+            assertEquals(1, z1.min());
+            assertEquals(5, z1.max());
+            z1.removeBelow(4);
+            cp1.fixPoint();
+            assertEquals(5, z1.min());
+            assertTrue(x1.isFixed());
+            assertEquals(1, x1.min());
+
+            Solver cp3 = solverFactory.get();
+            IntVar z3 = element(cells, makeIntVar(cp3, 0, 1), makeIntVar(cp3, 0, 1));
+            assertEquals(1, z3.min());
+            assertEquals(5, z3.max());
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void element2dTestDomainConsistent(Solver cp) {
+        try {
+            IntVar x = makeIntVar(cp, 0, 3);
+            IntVar y = makeIntVar(cp, 0, 4);
+            IntVar z = makeIntVar(cp, 0, 10);
+
+            int[][] T = new int[][]{
+                    {9, 8, 7, 5, 6},
+                    {9, 1, 5, 2, 8},
+                    {8, 3, 1, 4, 9},
+                    {9, 1, 2, 8, 6},
+            };
+
+            cp.post(new Element2D(T, x, y, z, true));
+            assertFalse(z.contains(0));
+            assertFalse(z.contains(10));
+            assertEquals(9, z.size());
+
+            // row 0 only has 9, 8, 7, 5 and 6
+            for (int v = 5; v <= 9; v++)
+                z.remove(v);
+            cp.fixPoint();
+            assertFalse(x.contains(0));
+            assertFalse(y.contains(0));
+            assertEquals(4, z.size());
+
+            x.remove(2);
+            cp.fixPoint();
+            // values 3 and 4 are only in row 2
+            assertFalse(z.contains(3));
+            assertFalse(z.contains(4));
+            assertFalse(y.contains(4));
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("solverSupplier")
+    public void element2dTestSameSolutionsDomainConsistent(Supplier<Solver> solverFactory) {
+        Random rand = new Random(0);
+        for (int iter = 0; iter < 20; iter++) {
+            int[][] T = new int[4][5];
+            for (int i = 0; i < 4; i++)
+                for (int j = 0; j < 5; j++)
+                    T[i][j] = rand.nextInt(8);
+            int[] removed = new int[]{rand.nextInt(8), rand.nextInt(8), rand.nextInt(8)};
+
+            long[] count = new long[2];
+            for (int mode = 0; mode < 2; mode++) {
+                Solver cp = solverFactory.get();
+                IntVar x = makeIntVar(cp, 0, 3);
+                IntVar y = makeIntVar(cp, 0, 4);
+                IntVar z = makeIntVar(cp, 0, 7);
+                try {
+                    for (int v : removed)
+                        z.remove(v);
+                    cp.post(new Element2D(T, x, y, z, mode == 1));
+                    if (mode == 1) {
+                        // every value has a support
+                        for (int v = 0; v < 8; v++) {
+                            boolean supported = v != removed[0] && v != removed[1] && v != removed[2];
+                            boolean inCell = false;
+                            for (int i = 0; i < 4; i++)
+                                for (int j = 0; j < 5; j++)
+                                    inCell |= x.contains(i) && y.contains(j) && T[i][j] == v;
+                            assertEquals(supported && inCell, z.contains(v));
+                        }
+                    }
+                    DFSearch dfs = makeDfs(cp, firstFail(x, y, z));
+                    dfs.onSolution(() -> assertEquals(T[x.min()][y.min()], z.min()));
+                    count[mode] = dfs.solve().numberOfSolutions();
+                } catch (InconsistencyException e) {
+                    count[mode] = 0;
+                }
+            }
+            assertEquals(count[0], count[1]);
+        }
+    }
+
 }
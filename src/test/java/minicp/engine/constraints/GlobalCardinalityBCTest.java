@@ -0,0 +1,170 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.SolverTest;
+import minicp.engine.core.IntVar;
+import minicp.engine.core.Solver;
+import minicp.search.SearchStatistics;
+import minicp.util.exception.InconsistencyException;
+import org.javagrader.Grade;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static minicp.cp.BranchingScheme.firstFail;
+import static minicp.cp.Factory.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@Grade(cpuTimeout = 1)
+public class GlobalCardinalityBCTest extends SolverTest {
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testHallInterval(Solver cp) {
+        try {
+            IntVar[] x = new IntVar[]{
+                    makeIntVar(cp, 1, 2),
+                    makeIntVar(cp, 1, 2),
+                    makeIntVar(cp, 1, 2),
+                    makeIntVar(cp, 1, 4)};
+            // values 1 and 2 can be taken three times in total
+            cp.post(globalCardinalityBC(x, new int[]{1, 2}, new int[]{0, 0}, new int[]{2, 1}));
+            assertEquals(3, x[3].min());
+            assertEquals(4, x[3].max());
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testNullCapacity(Solver cp) {
+        try {
+            IntVar[] x = new IntVar[]{
+                    makeIntVar(cp, 1, 3),
+                    makeIntVar(cp, 1, 3),
+                    makeIntVar(cp, 2, 4)};
+            cp.post(globalCardinalityBC(x, new int[]{2, 3}, new int[]{0, 0}, new int[]{0, 1}));
+            for (IntVar xi : x)
+                assertFalse(xi.contains(2));
+            // 3 can only be taken once and 1 is the only other value for x0 and x1
+            x[0].fix(3);
+            cp.fixPoint();
+            assertEquals(1, x[1].max());
+            assertEquals(4, x[2].min());
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testLowerCapacity(Solver cp) {
+        try {
+            IntVar[] x = new IntVar[]{
+                    makeIntVar(cp, 1, 3),
+                    makeIntVar(cp, 3, 5),
+                    makeIntVar(cp, 1, 2)};
+            cp.post(globalCardinalityBC(x, new int[]{3}, new int[]{2}, new int[]{3}));
+            assertTrue(x[0].isFixed());
+            assertTrue(x[1].isFixed());
+            assertEquals(3, x[0].min());
+            assertEquals(3, x[1].min());
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("solverSupplier")
+    public void testSameBoundsAsDC(Supplier<Solver> solverFactory) {
+        // without lower capacities, on interval domains,
+        // bound consistency gives the same bounds as domain consistency
+        Random rand = new Random(0);
+        for (int iter = 0; iter < 100; iter++) {
+            int n = 6;
+            int[] values = new int[]{0, 1, 2, 3, 4};
+            int[] low = new int[5];
+            int[] up = new int[5];
+            for (int k = 0; k < 5; k++)
+                up[k] = 1 + rand.nextInt(2);
+            Solver cp = solverFactory.get();
+            Solver cpDC = solverFactory.get();
+            IntVar[] x = new IntVar[n];
+            IntVar[] y = new IntVar[n];
+            for (int i = 0; i < n; i++) {
+                int min = rand.nextInt(7) - 1;
+                int max = min + rand.nextInt(3);
+                x[i] = makeIntVar(cp, min, max);
+                y[i] = makeIntVar(cpDC, min, max);
+            }
+            boolean failX = false, failY = false;
+            try {
+                cp.post(globalCardinalityBC(x, values, low, up));
+            } catch (InconsistencyException e) {
+                failX = true;
+            }
+            try {
+                cpDC.post(globalCardinality(y, values, low, up));
+            } catch (InconsistencyException e) {
+                failY = true;
+            }
+            assertEquals(failY, failX);
+            if (!failX) {
+                for (int i = 0; i < n; i++) {
+                    assertEquals(y[i].min(), x[i].min());
+                    assertEquals(y[i].max(), x[i].max());
+                }
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("solverSupplier")
+    public void testSameSolutionsAsDC(Supplier<Solver> solverFactory) {
+        Random rand = new Random(1);
+        for (int iter = 0; iter < 10; iter++) {
+            int n = 6;
+            int[] values = new int[]{0, 1, 3};
+            int[] low = new int[3];
+            int[] up = new int[3];
+            for (int k = 0; k < 3; k++) {
+                low[k] = rand.nextInt(2);
+                up[k] = low[k] + rand.nextInt(3);
+            }
+            long expected = 0;
+            Solver cpDC = solverFactory.get();
+            IntVar[] y = makeIntVarArray(cpDC, n, 4);
+            try {
+                cpDC.post(globalCardinality(y, values, low, up));
+                expected = makeDfs(cpDC, firstFail(y)).solve().numberOfSolutions();
+            } catch (InconsistencyException ignored) {
+            }
+            Solver cp = solverFactory.get();
+            IntVar[] x = makeIntVarArray(cp, n, 4);
+            try {
+                cp.post(globalCardinalityBC(x, values, low, up));
+                SearchStatistics stats = makeDfs(cp, firstFail(x)).solve();
+                assertEquals(expected, stats.numberOfSolutions());
+            } catch (InconsistencyException e) {
+                assertEquals(0, expected);
+            }
+        }
+    }
+}
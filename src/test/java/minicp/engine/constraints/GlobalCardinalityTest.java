@@ -0,0 +1,202 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.SolverTest;
+import minicp.engine.core.IntVar;
+import minicp.engine.core.Solver;
+import minicp.search.DFSearch;
+import minicp.search.SearchStatistics;
+import minicp.util.exception.InconsistencyException;
+import org.javagrader.Grade;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static minicp.cp.BranchingScheme.firstFail;
+import static minicp.cp.Factory.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@Grade(cpuTimeout = 1)
+public class GlobalCardinalityTest extends SolverTest {
+
+    private static boolean satisfied(IntVar[] x, int[] values, int[] low, int[] up) {
+        for (int k = 0; k < values.length; k++) {
+            int c = 0;
+            for (IntVar xi : x)
+                if (xi.min() == values[k]) c++;
+            if (c < low[k] || c > up[k]) return false;
+        }
+        return true;
+    }
+
+    private static Set<Integer> toSet(int[] values) {
+        return Arrays.stream(values).boxed().collect(Collectors.toSet());
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testLowerBounds(Solver cp) {
+        try {
+            IntVar[] x = new IntVar[]{
+                    makeIntVar(cp, 1, 2),
+                    makeIntVar(cp, 1, 2),
+                    makeIntVar(cp, 1, 3),
+                    makeIntVar(cp, 1, 3)};
+            cp.post(globalCardinality(x, new int[]{1, 2, 3}, new int[]{1, 1, 2}, new int[]{1, 1, 2}));
+            assertTrue(x[2].isFixed());
+            assertTrue(x[3].isFixed());
+            assertEquals(3, x[2].min());
+            assertEquals(3, x[3].min());
+            assertEquals(2, x[0].size());
+            x[0].fix(2);
+            cp.fixPoint();
+            assertEquals(1, x[1].min());
+            assertTrue(x[1].isFixed());
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testUpperBounds(Solver cp) {
+        try {
+            IntVar[] x = makeIntVarArray(cp, 5, 4);
+            cp.post(globalCardinality(x, new int[]{0, 1}, new int[]{0, 0}, new int[]{1, 2}));
+            x[0].fix(0);
+            x[1].fix(1);
+            x[2].fix(1);
+            cp.fixPoint();
+            for (int i = 3; i < 5; i++) {
+                assertFalse(x[i].contains(0));
+                assertFalse(x[i].contains(1));
+                assertEquals(2, x[i].size());
+            }
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("solverSupplier")
+    public void testInfeasible(Supplier<Solver> solverFactory) {
+        Solver cp = solverFactory.get();
+        IntVar[] x = makeIntVarArray(cp, 3, 3);
+        // the minimum occurrences exceed the number of variables
+        assertThrows(InconsistencyException.class,
+                () -> cp.post(globalCardinality(x, new int[]{0, 1}, new int[]{2, 2}, new int[]{3, 3})));
+
+        Solver cp2 = solverFactory.get();
+        IntVar[] y = makeIntVarArray(cp2, 3, 3);
+        // value 5 is in no domain
+        assertThrows(InconsistencyException.class,
+                () -> cp2.post(globalCardinality(y, new int[]{5}, new int[]{1}, new int[]{1})));
+    }
+
+    @ParameterizedTest
+    @MethodSource("solverSupplier")
+    public void testDomainConsistency(Supplier<Solver> solverFactory) {
+        Random rand = new Random(0);
+        for (int iter = 0; iter < 30; iter++) {
+            int n = 5;
+            int[] values = new int[]{0, 1, 2};
+            int[] low = new int[3];
+            int[] up = new int[3];
+            for (int k = 0; k < 3; k++) {
+                low[k] = rand.nextInt(2);
+                up[k] = low[k] + rand.nextInt(3);
+            }
+            int[][] domains = new int[n][];
+            for (int i = 0; i < n; i++) {
+                domains[i] = new int[]{rand.nextInt(5) - 1, rand.nextInt(5) - 1, rand.nextInt(5) - 1};
+            }
+
+            // supported values by enumeration
+            Solver ref = solverFactory.get();
+            IntVar[] y = new IntVar[n];
+            for (int i = 0; i < n; i++)
+                y[i] = makeIntVar(ref, toSet(domains[i]));
+            boolean[][] supported = new boolean[n][6];
+            DFSearch dfs = makeDfs(ref, firstFail(y));
+            dfs.onSolution(() -> {
+                if (satisfied(y, values, low, up))
+                    for (int i = 0; i < n; i++)
+                        supported[i][y[i].min() + 1] = true;
+            });
+            dfs.solve();
+
+            Solver cp = solverFactory.get();
+            IntVar[] x = new IntVar[n];
+            for (int i = 0; i < n; i++)
+                x[i] = makeIntVar(cp, toSet(domains[i]));
+            boolean failed = false;
+            try {
+                cp.post(globalCardinality(x, values, low, up));
+            } catch (InconsistencyException e) {
+                failed = true;
+            }
+            boolean hasSolution = false;
+            for (int v = 0; v < 6; v++)
+                hasSolution |= supported[0][v];
+            assertEquals(!hasSolution, failed);
+            if (!failed) {
+                for (int i = 0; i < n; i++)
+                    for (int v = -1; v < 5; v++)
+                        assertEquals(supported[i][v + 1], x[i].contains(v));
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("solverSupplier")
+    public void testSameSolutionsAsEnumeration(Supplier<Solver> solverFactory) {
+        Random rand = new Random(1);
+        for (int iter = 0; iter < 10; iter++) {
+            int n = 6;
+            int[] values = new int[]{0, 2, 3};
+            int[] low = new int[3];
+            int[] up = new int[3];
+            for (int k = 0; k < 3; k++) {
+                low[k] = rand.nextInt(2);
+                up[k] = low[k] + 1 + rand.nextInt(2);
+            }
+            Solver ref = solverFactory.get();
+            IntVar[] y = makeIntVarArray(ref, n, 4);
+            int[] expected = new int[1];
+            DFSearch dfs = makeDfs(ref, firstFail(y));
+            dfs.onSolution(() -> {
+                if (satisfied(y, values, low, up)) expected[0]++;
+            });
+            dfs.solve();
+
+            Solver cp = solverFactory.get();
+            IntVar[] x = makeIntVarArray(cp, n, 4);
+            try {
+                cp.post(globalCardinality(x, values, low, up));
+                SearchStatistics stats = makeDfs(cp, firstFail(x)).solve();
+                assertEquals(expected[0], stats.numberOfSolutions());
+            } catch (InconsistencyException e) {
+                assertEquals(0, expected[0]);
+            }
+        }
+    }
+}
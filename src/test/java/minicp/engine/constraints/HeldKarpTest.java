@@ -0,0 +1,138 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.SolverTest;
+import minicp.engine.core.IntVar;
+import minicp.engine.core.Solver;
+import minicp.search.DFSearch;
+import minicp.search.Objective;
+import minicp.util.exception.InconsistencyException;
+import org.javagrader.Grade;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static minicp.cp.BranchingScheme.firstFail;
+import static minicp.cp.Factory.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@Grade(cpuTimeout = 2)
+public class HeldKarpTest extends SolverTest {
+
+    // points on a line at 0, 1, 2, 3, 4: the shortest circuit has length 8
+    private static int[][] line(int n) {
+        int[][] d = new int[n][n];
+        for (int i = 0; i < n; i++)
+            for (int j = 0; j < n; j++)
+                d[i][j] = Math.abs(i - j);
+        return d;
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testBound(Solver cp) {
+        try {
+            int n = 5;
+            IntVar[] succ = makeIntVarArray(cp, n, n);
+            IntVar cost = makeIntVar(cp, 0, 100);
+            cp.post(new HeldKarp(succ, line(n), cost));
+            assertEquals(8, cost.min());
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testRemoveEdges(Solver cp) {
+        try {
+            // two clusters {0,1} and {2,3}, the cheapest way between them is 1 - 2 and 3 - 0
+            int[][] d = new int[][]{
+                    {0, 1, 12, 10},
+                    {1, 0, 10, 12},
+                    {12, 10, 0, 1},
+                    {10, 12, 1, 0}};
+            IntVar[] succ = makeIntVarArray(cp, 4, 4);
+            IntVar cost = makeIntVar(cp, 0, 22);
+            cp.post(new HeldKarp(succ, d, cost));
+            assertEquals(22, cost.min());
+            assertFalse(succ[0].contains(2));
+            assertFalse(succ[2].contains(0));
+            assertFalse(succ[1].contains(3));
+            assertFalse(succ[3].contains(1));
+            assertTrue(succ[0].contains(1));
+            assertTrue(succ[0].contains(3));
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testFail(Solver cp) {
+        int n = 5;
+        IntVar[] succ = makeIntVarArray(cp, n, n);
+        IntVar cost = makeIntVar(cp, 0, 7);
+        assertThrows(InconsistencyException.class, () -> cp.post(new HeldKarp(succ, line(n), cost)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("solverSupplier")
+    public void testSameOptimum(Supplier<Solver> solverFactory) {
+        Random rand = new Random(0);
+        for (int iter = 0; iter < 20; iter++) {
+            int n = 7;
+            int[][] d = new int[n][n];
+            boolean[][] removed = new boolean[n][n]; // sparse graphs make the 1-tree fail during the search
+            for (int i = 0; i < n; i++)
+                for (int j = 0; j < n; j++) {
+                    d[i][j] = i == j ? 0 : 1 + rand.nextInt(20);
+                    removed[i][j] = rand.nextInt(100) < 40;
+                }
+            int[] best = new int[2];
+            long[] nodes = new long[2];
+            for (int withBound = 0; withBound < 2; withBound++) {
+                Solver cp = solverFactory.get();
+                final int k = withBound;
+                try {
+                    IntVar[] succ = makeIntVarArray(cp, n, n);
+                    for (int i = 0; i < n; i++)
+                        for (int j = 0; j < n; j++)
+                            if (removed[i][j]) succ[i].remove(j);
+                    IntVar[] distSucc = makeIntVarArray(cp, n, 21);
+                    cp.post(new Circuit(succ));
+                    for (int i = 0; i < n; i++)
+                        cp.post(new Element1D(d[i], succ[i], distSucc[i]));
+                    IntVar cost = sum(distSucc);
+                    if (withBound == 1)
+                        cp.post(new HeldKarp(succ, d, cost));
+                    Objective obj = cp.minimize(cost);
+                    DFSearch dfs = makeDfs(cp, firstFail(succ));
+                    best[k] = -1;
+                    dfs.onSolution(() -> best[k] = cost.min());
+                    nodes[k] = dfs.optimize(obj).numberOfNodes();
+                } catch (InconsistencyException e) {
+                    best[k] = -1;
+                }
+            }
+            assertEquals(best[0], best[1]);
+            assertTrue(nodes[1] <= nodes[0]);
+        }
+    }
+}
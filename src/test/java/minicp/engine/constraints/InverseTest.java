@@ -0,0 +1,149 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.SolverTest;
+import minicp.engine.core.IntVar;
+import minicp.engine.core.Solver;
+import minicp.search.DFSearch;
+import minicp.search.SearchStatistics;
+import minicp.util.exception.InconsistencyException;
+import org.javagrader.Grade;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static minicp.cp.BranchingScheme.firstFail;
+import static minicp.cp.Factory.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@Grade(cpuTimeout = 1)
+public class InverseTest extends SolverTest {
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testChanneling(Solver cp) {
+        try {
+            IntVar[] f = makeIntVarArray(cp, 4, -2, 6);
+            IntVar[] g = makeIntVarArray(cp, 4, 4);
+            cp.post(inverse(f, g));
+            for (int i = 0; i < 4; i++) {
+                assertEquals(0, f[i].min());
+                assertEquals(3, f[i].max());
+            }
+            f[0].remove(2);
+            cp.fixPoint();
+            assertFalse(g[2].contains(0));
+            g[1].removeAbove(1);
+            cp.fixPoint();
+            assertFalse(f[2].contains(1));
+            assertFalse(f[3].contains(1));
+            f[3].fix(0);
+            cp.fixPoint();
+            assertTrue(g[0].isFixed());
+            assertEquals(3, g[0].min());
+            for (int i = 0; i < 3; i++)
+                assertFalse(f[i].contains(0));
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testBacktrack(Solver cp) {
+        try {
+            IntVar[] f = makeIntVarArray(cp, 3, 3);
+            IntVar[] g = makeIntVarArray(cp, 3, 3);
+            cp.post(inverse(f, g));
+            cp.getStateManager().saveState();
+            f[0].remove(1);
+            cp.fixPoint();
+            assertFalse(g[1].contains(0));
+            cp.getStateManager().restoreState();
+            assertTrue(g[1].contains(0));
+            g[1].remove(0);
+            cp.fixPoint();
+            assertFalse(f[0].contains(1));
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testInfeasible(Solver cp) {
+        IntVar[] f = makeIntVarArray(cp, 3, 3);
+        IntVar[] g = makeIntVarArray(cp, 3, 3);
+        f[0].fix(1);
+        f[1].fix(1);
+        assertThrows(InconsistencyException.class, () -> cp.post(inverse(f, g)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("solverSupplier")
+    public void testSameSolutionsAsEnumeration(Supplier<Solver> solverFactory) {
+        Random rand = new Random(0);
+        for (int iter = 0; iter < 20; iter++) {
+            int n = 5;
+            int[][] removed = new int[n][2];
+            for (int i = 0; i < n; i++) {
+                removed[i][0] = rand.nextInt(n);
+                removed[i][1] = rand.nextInt(n);
+            }
+
+            // permutations avoiding the removed values of f and whose inverse avoids those of g
+            Solver ref = solverFactory.get();
+            IntVar[] y = makeIntVarArray(ref, n, n);
+            for (int i = 0; i < n; i++)
+                y[i].remove(removed[i][0]);
+            ref.post(allDifferent(y));
+            int[] count = new int[1];
+            DFSearch refDfs = makeDfs(ref, firstFail(y));
+            refDfs.onSolution(() -> {
+                for (int i = 0; i < n; i++)
+                    if (removed[y[i].min()][1] == i) return;
+                count[0]++;
+            });
+            refDfs.solve();
+            long expected = count[0];
+
+            Solver cp = solverFactory.get();
+            IntVar[] f = makeIntVarArray(cp, n, n);
+            IntVar[] g = makeIntVarArray(cp, n, n);
+            try {
+                for (int i = 0; i < n; i++) {
+                    f[i].remove(removed[i][0]);
+                    g[i].remove(removed[i][1]);
+                }
+                cp.post(inverse(f, g));
+                DFSearch dfs = makeDfs(cp, firstFail(f));
+                dfs.onSolution(() -> {
+                    for (int i = 0; i < n; i++) {
+                        assertTrue(g[i].isFixed());
+                        assertEquals(i, f[g[i].min()].min());
+                    }
+                });
+                SearchStatistics stats = dfs.solve();
+                assertEquals(expected, stats.numberOfSolutions());
+            } catch (InconsistencyException e) {
+                assertEquals(0, expected);
+            }
+        }
+    }
+}
@@ -193,4 +193,37 @@ public class IsLessOrEqualVarTest extends SolverTest {
             NotImplementedExceptionAssume.fail(e);
         }
     }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testOffset(Solver cp) {
+        try {
+            IntVar x = makeIntVar(cp, 0, 10);
+            IntVar y = makeIntVar(cp, 0, 10);
+            BoolVar b = isLessOrEqual(x, y, -3); // b <=> x <= y - 3
+
+            cp.getStateManager().saveState();
+            b.fix(true);
+            cp.fixPoint();
+            assertEquals(7, x.max());
+            assertEquals(3, y.min());
+            cp.getStateManager().restoreState();
+
+            cp.getStateManager().saveState();
+            b.fix(false);
+            y.fix(5);
+            cp.fixPoint();
+            assertEquals(3, x.min()); // x >= y - 2
+            cp.getStateManager().restoreState();
+
+            x.removeAbove(2);
+            y.removeBelow(5);
+            cp.fixPoint();
+            assertTrue(b.isTrue());
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        } catch (NotImplementedException e) {
+            NotImplementedExceptionAssume.fail(e);
+        }
+    }
 }
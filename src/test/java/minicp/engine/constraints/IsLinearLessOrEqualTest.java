@@ -0,0 +1,119 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.SolverTest;
+import minicp.engine.core.BoolVar;
+import minicp.engine.core.IntVar;
+import minicp.engine.core.Solver;
+import minicp.search.DFSearch;
+import minicp.search.SearchStatistics;
+import minicp.util.exception.InconsistencyException;
+import org.javagrader.Grade;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static minicp.cp.BranchingScheme.and;
+import static minicp.cp.BranchingScheme.firstFail;
+import static minicp.cp.Factory.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@Grade(cpuTimeout = 1)
+public class IsLinearLessOrEqualTest extends SolverTest {
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testEntailment(Solver cp) {
+        try {
+            // b <=> 2x - y <= 3
+            IntVar x = makeIntVar(cp, 0, 5);
+            IntVar y = makeIntVar(cp, 0, 5);
+            BoolVar b = isLinearLeq(new int[]{2, -1}, new IntVar[]{x, y}, 3);
+            assertFalse(b.isFixed());
+            x.removeAbove(1);
+            cp.fixPoint();
+            assertTrue(b.isTrue()); // 2 - 0 <= 3
+
+            cp.getStateManager().saveState();
+            BoolVar c = isLinearLeq(new int[]{2, -1}, new IntVar[]{x, y}, -6);
+            assertTrue(c.isFalse()); // 0 - 5 > -6
+            cp.getStateManager().restoreState();
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testFiltering(Solver cp) {
+        try {
+            // b <=> 3x + 2y <= 10
+            IntVar x = makeIntVar(cp, 0, 5);
+            IntVar y = makeIntVar(cp, 0, 5);
+            BoolVar b = isLinearLeq(new int[]{3, 2}, new IntVar[]{x, y}, 10);
+
+            cp.getStateManager().saveState();
+            b.fix(true);
+            cp.fixPoint();
+            assertEquals(3, x.max());
+            assertEquals(5, y.max());
+            cp.getStateManager().restoreState();
+
+            cp.getStateManager().saveState();
+            b.fix(false);
+            y.removeAbove(1);
+            cp.fixPoint();
+            assertEquals(3, x.min()); // 3x + 2 >= 11
+            cp.getStateManager().restoreState();
+
+            b.fix(false);
+            x.removeAbove(2);
+            y.removeAbove(2);
+            cp.fixPoint();
+            fail("should fail");
+        } catch (InconsistencyException e) {
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("solverSupplier")
+    public void testSameSolutionsAsEnumeration(Supplier<Solver> solverFactory) {
+        Random rand = new Random(0);
+        for (int iter = 0; iter < 30; iter++) {
+            int[] a = new int[3];
+            for (int i = 0; i < 3; i++)
+                a[i] = rand.nextInt(7) - 3;
+            int c = rand.nextInt(9) - 4;
+
+            Solver cp = solverFactory.get();
+            IntVar[] x = makeIntVarArray(cp, 3, -1, 2);
+            BoolVar b = isLinearLeq(a, x, c);
+            DFSearch dfs = makeDfs(cp, iter % 2 == 0 ? and(firstFail(x), firstFail(b)) : and(firstFail(b), firstFail(x)));
+            dfs.onSolution(() -> {
+                int sum = 0;
+                for (int i = 0; i < 3; i++)
+                    sum += a[i] * x[i].min();
+                assertEquals(sum <= c, b.isTrue());
+            });
+            SearchStatistics stats = dfs.solve();
+            // a single value of b for each of the 4^3 assignments of x
+            assertEquals(64, stats.numberOfSolutions());
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.SolverTest;
+import minicp.engine.core.IntVar;
+import minicp.engine.core.Solver;
+import minicp.search.DFSearch;
+import minicp.search.SearchStatistics;
+import minicp.util.exception.InconsistencyException;
+import org.javagrader.Grade;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static minicp.cp.BranchingScheme.and;
+import static minicp.cp.BranchingScheme.firstFail;
+import static minicp.cp.Factory.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@Grade(cpuTimeout = 1)
+public class LaneSeparationTest extends SolverTest {
+
+    private static boolean separated(int[] lane, int[] time, int[] type, int[][] delay) {
+        for (int i = 0; i < lane.length; i++)
+            for (int j = i + 1; j < lane.length; j++)
+                if (lane[i] == lane[j]
+                        && time[i] + delay[type[i]][type[j]] > time[j]
+                        && time[j] + delay[type[j]][type[i]] > time[i])
+                    return false;
+        return true;
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testPrecedence(Solver cp) {
+        try {
+            int[] type = new int[]{0, 1};
+            int[][] delay = new int[][]{{1, 5}, {3, 1}};
+            IntVar[] lane = makeIntVarArray(cp, 2, 2);
+            IntVar[] time = new IntVar[]{makeIntVar(cp, 0, 4), makeIntVar(cp, 2, 20)};
+            lane[0].fix(0);
+            lane[1].fix(0);
+            cp.post(laneSeparation(lane, time, type, delay));
+            // plane 1 cannot land 3 before plane 0, so it lands 5 after
+            assertEquals(5, time[1].min());
+            time[1].removeAbove(8);
+            cp.fixPoint();
+            assertEquals(3, time[0].max());
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testLaneRemoved(Solver cp) {
+        try {
+            int[] type = new int[]{0, 0, 0};
+            int[][] delay = new int[][]{{4}};
+            IntVar[] lane = makeIntVarArray(cp, 3, 3);
+            IntVar[] time = makeIntVarArray(cp, 3, 100);
+            lane[0].fix(0);
+            time[0].fix(10);
+            lane[1].fix(1);
+            time[1].fix(50);
+            time[2].fix(12);
+            cp.post(laneSeparation(lane, time, type, delay));
+            assertFalse(lane[2].contains(0));
+            assertTrue(lane[2].contains(1));
+            assertTrue(lane[2].contains(2));
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("solverSupplier")
+    public void testSameSolutionsAsEnumeration(Supplier<Solver> solverFactory) {
+        Random rand = new Random(0);
+        for (int iter = 0; iter < 6; iter++) {
+            int n = 4;
+            int nLanes = 2;
+            int horizon = 5;
+            int[] type = new int[n];
+            for (int i = 0; i < n; i++)
+                type[i] = rand.nextInt(2);
+            int[][] delay = new int[2][2];
+            for (int a = 0; a < 2; a++)
+                for (int b = 0; b < 2; b++)
+                    delay[a][b] = rand.nextInt(4);
+
+            // brute force over all the lanes and times
+            int count = 0;
+            int[] lanes = new int[n];
+            int[] times = new int[n];
+            int total = (int) Math.pow(nLanes * horizon, n);
+            for (int c = 0; c < total; c++) {
+                int code = c;
+                for (int i = 0; i < n; i++) {
+                    lanes[i] = code % nLanes;
+                    code /= nLanes;
+                    times[i] = code % horizon;
+                    code /= horizon;
+                }
+                if (separated(lanes, times, type, delay)) count++;
+            }
+
+            Solver cp = solverFactory.get();
+            IntVar[] lane = makeIntVarArray(cp, n, nLanes);
+            IntVar[] time = makeIntVarArray(cp, n, horizon);
+            cp.post(laneSeparation(lane, time, type, delay));
+            DFSearch dfs = makeDfs(cp, iter % 2 == 0
+                    ? and(firstFail(lane), firstFail(time))
+                    : and(firstFail(time), firstFail(lane)));
+            dfs.onSolution(() -> {
+                int[] l = new int[n];
+                int[] t = new int[n];
+                for (int i = 0; i < n; i++) {
+                    l[i] = lane[i].min();
+                    t[i] = time[i].min();
+                }
+                assertTrue(separated(l, t, type, delay));
+            });
+            SearchStatistics stats = dfs.solve();
+            assertEquals(count, stats.numberOfSolutions());
+        }
+    }
+}
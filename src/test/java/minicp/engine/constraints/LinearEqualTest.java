@@ -0,0 +1,148 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.SolverTest;
+import minicp.engine.core.BoolVar;
+import minicp.engine.core.IntVar;
+import minicp.engine.core.Solver;
+import minicp.search.DFSearch;
+import minicp.search.SearchStatistics;
+import minicp.util.exception.InconsistencyException;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Random;
+
+import static minicp.cp.BranchingScheme.firstFail;
+import static minicp.cp.Factory.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@Timeout(1)
+public class LinearEqualTest extends SolverTest {
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void linearEq1(Solver cp) {
+        try {
+            // 2x - 3y + z = 10
+            IntVar x = makeIntVar(cp, 0, 10);
+            IntVar y = makeIntVar(cp, 0, 10);
+            IntVar z = makeIntVar(cp, 0, 2);
+            cp.post(linearEq(new int[]{2, -3, 1}, new IntVar[]{x, y, z}, 10));
+            assertEquals(4, x.min());
+            assertEquals(4, y.max());
+            y.fix(4);
+            cp.fixPoint();
+            assertEquals(10, x.min());
+            assertTrue(z.isFixed());
+            assertEquals(2, z.min());
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void linearLeq1(Solver cp) {
+        try {
+            // 3x - 2y <= 4
+            IntVar x = makeIntVar(cp, -5, 5);
+            IntVar y = makeIntVar(cp, -2, 3);
+            cp.post(linearLeq(new int[]{3, -2}, new IntVar[]{x, y}, 4));
+            assertEquals(3, x.max()); // 3*3 - 2*3 <= 4
+            assertEquals(-2, y.min());
+            assertEquals(-5, x.min());
+            x.removeBelow(2);
+            cp.fixPoint();
+            assertEquals(1, y.min()); // 6 - 2y <= 4
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void linearLeq2(Solver cp) {
+        IntVar x = makeIntVar(cp, 3, 5);
+        IntVar y = makeIntVar(cp, 0, 2);
+        assertThrows(InconsistencyException.class, () -> cp.post(linearLeq(new int[]{2, -1}, new IntVar[]{x, y}, 3)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void scalarProduct1(Solver cp) {
+        try {
+            BoolVar[] b = new BoolVar[4];
+            for (int i = 0; i < b.length; i++)
+                b[i] = makeBoolVar(cp);
+            int[] w = {3, 5, 7, 0};
+            IntVar l = scalarProduct(w, b);
+            assertEquals(0, l.min());
+            assertEquals(15, l.max());
+            l.removeBelow(13);
+            cp.fixPoint();
+            assertTrue(b[1].isTrue());
+            assertTrue(b[2].isTrue());
+            assertFalse(b[3].isFixed());
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void linearRandom(Solver cp) {
+        Random rand = new Random(0);
+        for (int iter = 0; iter < 20; iter++) {
+            int n = 3;
+            int[] a = new int[n];
+            for (int i = 0; i < n; i++)
+                a[i] = rand.nextInt(9) - 4;
+            int c = rand.nextInt(11) - 5;
+            boolean eq = rand.nextBoolean();
+            cp.getStateManager().saveState();
+            IntVar[] x = makeIntVarArray(cp, n, -2, 2);
+            int[] nSol = new int[1];
+            DFSearch dfs = makeDfs(cp, firstFail(x));
+            dfs.onSolution(() -> {
+                if (eq ? value(a, x) == c : value(a, x) <= c) nSol[0]++;
+            });
+            dfs.solve();
+            try {
+                cp.post(eq ? linearEq(a, x, c) : linearLeq(a, x, c));
+                DFSearch dfsLinear = makeDfs(cp, firstFail(x));
+                dfsLinear.onSolution(() -> {
+                    if (eq) assertEquals(c, value(a, x));
+                    else assertTrue(value(a, x) <= c);
+                });
+                SearchStatistics stats = dfsLinear.solve();
+                assertEquals(nSol[0], stats.numberOfSolutions());
+            } catch (InconsistencyException e) {
+                assertEquals(0, nSol[0]);
+            }
+            cp.getStateManager().restoreState();
+        }
+    }
+
+    private static int value(int[] a, IntVar[] x) {
+        int s = 0;
+        for (int i = 0; i < a.length; i++)
+            s += a[i] * x[i].min();
+        return s;
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.SolverTest;
+import minicp.engine.core.IntVar;
+import minicp.engine.core.Solver;
+import minicp.search.DFSearch;
+import minicp.search.Objective;
+import minicp.util.exception.InconsistencyException;
+import org.javagrader.Grade;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static minicp.cp.BranchingScheme.firstFail;
+import static minicp.cp.Factory.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@Grade(cpuTimeout = 1)
+public class QAPObjectiveTest extends SolverTest {
+
+    private static int[][] randomMatrix(Random rand, int n) {
+        int[][] m = new int[n][n];
+        for (int i = 0; i < n; i++)
+            for (int j = 0; j < n; j++)
+                m[i][j] = i == j ? 0 : rand.nextInt(10);
+        return m;
+    }
+
+    private static int cost(int[][] w, int[][] d, int[] perm) {
+        int c = 0;
+        for (int i = 0; i < perm.length; i++)
+            for (int j = 0; j < perm.length; j++)
+                c += w[i][j] * d[perm[i]][perm[j]];
+        return c;
+    }
+
+    // minimum cost of the permutations extending perm[0..i-1]
+    private static int bestCompletion(int[][] w, int[][] d, int[] perm, boolean[] used, int i) {
+        if (i == perm.length)
+            return cost(w, d, perm);
+        int best = Integer.MAX_VALUE;
+        for (int k = 0; k < perm.length; k++) {
+            if (used[k]) continue;
+            used[k] = true;
+            perm[i] = k;
+            best = Math.min(best, bestCompletion(w, d, perm, used, i + 1));
+            used[k] = false;
+        }
+        return best;
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testFixedCost(Solver cp) {
+        try {
+            int[][] w = new int[][]{{0, 2, 1}, {2, 0, 3}, {1, 3, 0}};
+            int[][] d = new int[][]{{0, 5, 2}, {5, 0, 4}, {2, 4, 0}};
+            IntVar[] x = makeIntVarArray(cp, 3, 3);
+            IntVar cost = makeIntVar(cp, 0, 1000);
+            cp.post(allDifferent(x));
+            cp.post(new QAPObjective(w, d, x, cost));
+            x[0].fix(2);
+            x[1].fix(0);
+            cp.fixPoint();
+            assertTrue(cost.isFixed());
+            assertEquals(cost(w, d, new int[]{2, 0, 1}), cost.min());
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("solverSupplier")
+    public void testValidBound(Supplier<Solver> solverFactory) {
+        Random rand = new Random(0);
+        for (int iter = 0; iter < 30; iter++) {
+            int n = 6;
+            int[][] w = randomMatrix(rand, n);
+            int[][] d = randomMatrix(rand, n);
+            // place the first facilities
+            int nPlaced = rand.nextInt(4);
+            int[] perm = new int[n];
+            boolean[] used = new boolean[n];
+            for (int i = 0; i < nPlaced; i++) {
+                int k;
+                do {
+                    k = rand.nextInt(n);
+                } while (used[k]);
+                used[k] = true;
+                perm[i] = k;
+            }
+            int best = bestCompletion(w, d, perm, used, nPlaced);
+
+            Solver cp = solverFactory.get();
+            IntVar[] x = makeIntVarArray(cp, n, n);
+            IntVar cost = makeIntVar(cp, 0, 10000);
+            try {
+                cp.post(allDifferent(x));
+                cp.post(new QAPObjective(w, d, x, cost));
+                for (int i = 0; i < nPlaced; i++)
+                    x[i].fix(perm[i]);
+                cp.fixPoint();
+                assertTrue(cost.min() <= best);
+                // the best completion is not removed by the reduced costs
+                cost.removeAbove(best);
+                cp.fixPoint();
+            } catch (InconsistencyException e) {
+                fail("should not fail");
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("solverSupplier")
+    public void testOptimum(Supplier<Solver> solverFactory) {
+        Random rand = new Random(1);
+        for (int iter = 0; iter < 10; iter++) {
+            int n = 6;
+            int[][] w = randomMatrix(rand, n);
+            int[][] d = randomMatrix(rand, n);
+            int best = bestCompletion(w, d, new int[n], new boolean[n], 0);
+
+            for (boolean filtering : new boolean[]{false, true}) {
+                Solver cp = solverFactory.get();
+                IntVar[] x = makeIntVarArray(cp, n, n);
+                IntVar cost = makeIntVar(cp, 0, 10000);
+                cp.post(allDifferent(x));
+                cp.post(new QAPObjective(w, d, x, cost, filtering));
+                Objective obj = cp.minimize(cost);
+                DFSearch dfs = makeDfs(cp, firstFail(x));
+                int[] found = new int[]{Integer.MAX_VALUE};
+                dfs.onSolution(() -> {
+                    int[] perm = new int[n];
+                    for (int i = 0; i < n; i++)
+                        perm[i] = x[i].min();
+                    assertEquals(cost(w, d, perm), cost.min());
+                    found[0] = cost.min();
+                });
+                dfs.optimize(obj);
+                assertEquals(best, found[0]);
+            }
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.SolverTest;
+import minicp.engine.core.IntVar;
+import minicp.engine.core.Solver;
+import minicp.search.DFSearch;
+import minicp.search.SearchStatistics;
+import minicp.util.Automaton;
+import minicp.util.exception.InconsistencyException;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Random;
+
+import static minicp.cp.BranchingScheme.firstFail;
+import static minicp.cp.Factory.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@Timeout(1)
+public class RegularTest extends SolverTest {
+
+    // words over {0,1} without two consecutive 1
+    private static Automaton noConsecutiveOnes() {
+        return new Automaton(2, 0, new int[]{0, 1}, new int[][]{
+                {0, 0, 0},
+                {0, 1, 1},
+                {1, 0, 0},
+        });
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void regularTest1(Solver cp) {
+        try {
+            IntVar[] x = makeIntVarArray(cp, 5, -1, 3);
+            cp.post(regular(x, noConsecutiveOnes()));
+            for (IntVar var : x) {
+                assertEquals(0, var.min());
+                assertEquals(1, var.max());
+            }
+            x[2].fix(1);
+            cp.fixPoint();
+            assertTrue(x[1].isFixed() && x[1].min() == 0);
+            assertTrue(x[3].isFixed() && x[3].min() == 0);
+            assertEquals(2, x[0].size());
+            assertEquals(2, x[4].size());
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void regularTest2(Solver cp) {
+        try {
+            // words over {0,1,2} ending with a 2
+            Automaton a = new Automaton(2, 0, new int[]{1}, new int[][]{
+                    {0, 0, 0}, {0, 1, 0}, {0, 2, 1},
+                    {1, 0, 0}, {1, 1, 0}, {1, 2, 1},
+            });
+            IntVar[] x = makeIntVarArray(cp, 4, 3);
+            cp.post(regular(x, a));
+            assertTrue(x[3].isFixed() && x[3].min() == 2);
+            x[3].remove(2);
+            fail("should fail");
+        } catch (InconsistencyException e) {
+            // expected
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void regularTest3(Solver cp) {
+        // stretches of 1 must be of even length
+        Automaton a = new Automaton(2, 0, new int[]{0}, new int[][]{
+                {0, 0, 0}, {0, 1, 1}, {1, 1, 0},
+        });
+        IntVar[] x = makeIntVarArray(cp, 3, 2);
+        x[0].fix(1);
+        x[2].fix(1);
+        assertThrows(InconsistencyException.class, () -> cp.post(regular(x, a)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void regularTestRandom(Solver cp) {
+        Random rand = new Random(0);
+        for (int iter = 0; iter < 20; iter++) {
+            int nStates = 1 + rand.nextInt(4);
+            Automaton a = new Automaton(nStates, 0, new int[]{rand.nextInt(nStates), rand.nextInt(nStates)});
+            for (int q = 0; q < nStates; q++)
+                for (int v = 0; v < 3; v++)
+                    if (rand.nextInt(4) > 0) a.addTransition(q, v, rand.nextInt(nStates));
+            cp.getStateManager().saveState();
+            IntVar[] x = makeIntVarArray(cp, 5, 3);
+            int[] nSol = new int[1];
+            DFSearch dfs = makeDfs(cp, firstFail(x));
+            dfs.onSolution(() -> {
+                int[] word = new int[x.length];
+                for (int i = 0; i < x.length; i++)
+                    word[i] = x[i].min();
+                if (a.accepts(word)) nSol[0]++;
+            });
+            dfs.solve();
+            try {
+                cp.post(regular(x, a));
+                // domain consistency: the search never fails
+                DFSearch dfsRegular = makeDfs(cp, firstFail(x));
+                dfsRegular.onSolution(() -> {
+                    int[] word = new int[x.length];
+                    for (int i = 0; i < x.length; i++)
+                        word[i] = x[i].min();
+                    assertTrue(a.accepts(word));
+                });
+                SearchStatistics stats = dfsRegular.solve();
+                assertEquals(nSol[0], stats.numberOfSolutions());
+                assertEquals(0, stats.numberOfFailures());
+            } catch (InconsistencyException e) {
+                assertEquals(0, nSol[0]);
+            }
+            cp.getStateManager().restoreState();
+        }
+    }
+}
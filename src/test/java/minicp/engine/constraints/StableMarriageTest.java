@@ -0,0 +1,160 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import minicp.engine.SolverTest;
+import minicp.engine.core.IntVar;
+import minicp.engine.core.Solver;
+import minicp.search.DFSearch;
+import minicp.search.SearchStatistics;
+import minicp.util.exception.InconsistencyException;
+import org.javagrader.Grade;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static minicp.cp.BranchingScheme.and;
+import static minicp.cp.BranchingScheme.firstFail;
+import static minicp.cp.Factory.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@Grade(cpuTimeout = 1)
+public class StableMarriageTest extends SolverTest {
+
+    private static int[][] randomRanks(Random rand, int n) {
+        int[][] rank = new int[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++)
+                rank[i][j] = j + 1;
+            for (int j = n - 1; j > 0; j--) {
+                int k = rand.nextInt(j + 1);
+                int tmp = rank[i][j];
+                rank[i][j] = rank[i][k];
+                rank[i][k] = tmp;
+            }
+        }
+        return rank;
+    }
+
+    private static boolean stable(int[] x, int[][] rankX, int[][] rankY) {
+        int n = x.length;
+        int[] y = new int[n];
+        for (int m = 0; m < n; m++)
+            y[x[m]] = m;
+        for (int m = 0; m < n; m++)
+            for (int w = 0; w < n; w++)
+                if (rankX[m][w] < rankX[m][x[m]] && rankY[w][m] < rankY[w][y[w]])
+                    return false;
+        return true;
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testGSLists(Solver cp) {
+        try {
+            // both men prefer w0, both women prefer m1
+            int[][] rankX = new int[][]{{1, 2}, {1, 2}};
+            int[][] rankY = new int[][]{{2, 1}, {2, 1}};
+            IntVar[] x = makeIntVarArray(cp, 2, 2);
+            IntVar[] y = makeIntVarArray(cp, 2, 2);
+            cp.post(stableMarriage(x, y, rankX, rankY));
+            assertTrue(x[0].isFixed());
+            assertEquals(1, x[0].min());
+            assertEquals(0, x[1].min());
+            assertEquals(1, y[0].min());
+            assertEquals(0, y[1].min());
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void testRemovedPartner(Solver cp) {
+        try {
+            // each man prefers a different woman, who prefers the other man
+            int[][] rankX = new int[][]{{1, 2}, {2, 1}};
+            int[][] rankY = new int[][]{{2, 1}, {1, 2}};
+            IntVar[] x = makeIntVarArray(cp, 2, 2);
+            IntVar[] y = makeIntVarArray(cp, 2, 2);
+            cp.post(stableMarriage(x, y, rankX, rankY));
+            assertEquals(2, x[0].size());
+            // m0 loses w0, who must then marry a man she prefers to m0
+            x[0].remove(0);
+            cp.fixPoint();
+            assertEquals(1, y[0].min());
+            assertEquals(0, y[1].min());
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("solverSupplier")
+    public void testSameSolutionsAsEnumeration(Supplier<Solver> solverFactory) {
+        Random rand = new Random(0);
+        for (int iter = 0; iter < 30; iter++) {
+            int n = 5;
+            int[][] rankX = randomRanks(rand, n);
+            int[][] rankY = randomRanks(rand, n);
+            int[] removed = new int[n];
+            for (int m = 0; m < n; m++)
+                removed[m] = iter % 2 == 0 ? -1 : rand.nextInt(n);
+
+            // stable matchings among the permutations avoiding the removed pairs
+            Solver ref = solverFactory.get();
+            IntVar[] z = makeIntVarArray(ref, n, n);
+            for (int m = 0; m < n; m++)
+                z[m].remove(removed[m]);
+            ref.post(allDifferent(z));
+            int[] count = new int[1];
+            DFSearch refDfs = makeDfs(ref, firstFail(z));
+            refDfs.onSolution(() -> {
+                int[] match = new int[n];
+                for (int m = 0; m < n; m++)
+                    match[m] = z[m].min();
+                if (stable(match, rankX, rankY)) count[0]++;
+            });
+            refDfs.solve();
+
+            Solver cp = solverFactory.get();
+            IntVar[] x = makeIntVarArray(cp, n, n);
+            IntVar[] y = makeIntVarArray(cp, n, n);
+            try {
+                for (int m = 0; m < n; m++)
+                    x[m].remove(removed[m]);
+                cp.post(stableMarriage(x, y, rankX, rankY));
+                DFSearch dfs = makeDfs(cp, and(firstFail(x), firstFail(y)));
+                dfs.onSolution(() -> {
+                    int[] match = new int[n];
+                    for (int m = 0; m < n; m++) {
+                        match[m] = x[m].min();
+                        assertEquals(m, y[match[m]].min());
+                    }
+                    assertTrue(stable(match, rankX, rankY));
+                });
+                SearchStatistics stats = dfs.solve();
+                assertEquals(count[0], stats.numberOfSolutions());
+                if (iter % 2 == 0) // the search never fails on complete lists
+                    assertEquals(0, stats.numberOfFailures());
+            } catch (InconsistencyException e) {
+                assertEquals(0, count[0]);
+            }
+        }
+    }
+}
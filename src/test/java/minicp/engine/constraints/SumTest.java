@@ -17,6 +17,7 @@ package minicp.engine.constraints;
 
 import minicp.cp.Factory;
 import minicp.engine.SolverTest;
+import minicp.engine.core.BoolVar;
 import minicp.engine.core.IntVar;
 import minicp.engine.core.Solver;
 import minicp.search.DFSearch;
@@ -34,7 +35,9 @@ import java.util.HashSet;
 import static minicp.cp.BranchingScheme.firstFail;
 import static minicp.cp.Factory.lessOrEqual;
 import static minicp.cp.Factory.makeDfs;
+import static minicp.cp.Factory.makeBoolVar;
 import static minicp.cp.Factory.makeIntVar;
+import static minicp.cp.Factory.makeIntVarArray;
 import static org.junit.jupiter.api.Assertions.*;
 
 
@@ -321,4 +324,53 @@ public class SumTest extends SolverTest {
     }
 
 
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void sum14BoolVars(Solver cp) {
+        try {
+            BoolVar[] b = new BoolVar[]{makeBoolVar(cp), makeBoolVar(cp), makeBoolVar(cp)};
+            IntVar y = makeIntVar(cp, 0, 3);
+            cp.post(Factory.sum(b, y));
+            y.removeAbove(1);
+            b[0].fix(true);
+            cp.fixPoint();
+            assertTrue(y.isFixed());
+            assertTrue(b[1].isFalse() && b[2].isFalse());
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        } catch (NotImplementedException e) {
+            NotImplementedExceptionAssume.fail(e);
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("getSolver")
+    public void sum15Incremental(Solver cp) {
+        try {
+            IntVar[] x = makeIntVarArray(cp, 5, 0, 10);
+            IntVar y = makeIntVar(cp, 0, 50);
+            cp.post(Factory.sum(x, y));
+
+            cp.getStateManager().saveState();
+            for (int i = 0; i < 4; i++)
+                x[i].removeAbove(2);
+            cp.fixPoint();
+            assertEquals(18, y.max());
+            y.removeAbove(3);
+            cp.fixPoint();
+            assertEquals(3, x[4].max());
+            cp.getStateManager().restoreState();
+
+            assertEquals(50, y.max());
+            y.removeBelow(48);
+            cp.fixPoint();
+            for (int i = 0; i < 5; i++)
+                assertEquals(8, x[i].min());
+        } catch (InconsistencyException e) {
+            fail("should not fail");
+        } catch (NotImplementedException e) {
+            NotImplementedExceptionAssume.fail(e);
+        }
+    }
+
 }
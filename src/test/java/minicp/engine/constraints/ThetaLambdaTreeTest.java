@@ -0,0 +1,75 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.engine.constraints;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ThetaLambdaTreeTest {
+
+    @Test
+    public void simpleTest0() {
+        ThetaLambdaTree tree = new ThetaLambdaTree(4);
+        tree.insertTheta(0, 5, 5);
+        tree.insertTheta(1, 31, 6);
+        tree.insertTheta(2, 30, 4);
+        tree.insertTheta(3, 42, 10);
+        assertEquals(45, tree.getECT());
+        assertEquals(45, tree.getECTBar());
+        assertEquals(-1, tree.getResponsibleECTBar());
+
+        tree.insertLambda(3, 42, 10);
+        assertEquals(35, tree.getECT());
+        assertEquals(45, tree.getECTBar());
+        assertEquals(3, tree.getResponsibleECTBar());
+
+        tree.insertLambda(1, 31, 6);
+        assertEquals(30, tree.getECT());
+        // with 1: 2 completes at 35, with 3: 3 completes at 42
+        assertEquals(42, tree.getECTBar());
+        assertEquals(3, tree.getResponsibleECTBar());
+
+        tree.remove(3);
+        assertEquals(35, tree.getECTBar());
+        assertEquals(1, tree.getResponsibleECTBar());
+
+        tree.reset();
+        assertEquals(Integer.MIN_VALUE, tree.getECT());
+        assertEquals(Integer.MIN_VALUE, tree.getECTBar());
+    }
+
+    @Test
+    public void grayInTheMiddle() {
+        ThetaLambdaTree tree = new ThetaLambdaTree(3);
+        tree.insertTheta(0, 3, 3);
+        tree.insertLambda(1, 11, 5);
+        tree.insertTheta(2, 12, 2);
+        assertEquals(12, tree.getECT());
+        // the gray activity is processed before the last white one
+        assertEquals(13, tree.getECTBar());
+        assertEquals(1, tree.getResponsibleECTBar());
+    }
+
+    @Test
+    public void singleLeaf() {
+        ThetaLambdaTree tree = new ThetaLambdaTree(1);
+        tree.insertLambda(0, 7, 2);
+        assertEquals(Integer.MIN_VALUE, tree.getECT());
+        assertEquals(7, tree.getECTBar());
+        assertEquals(0, tree.getResponsibleECTBar());
+    }
+}
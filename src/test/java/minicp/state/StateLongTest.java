@@ -0,0 +1,68 @@
+/*
+ * mini-cp is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License  v3
+ * as published by the Free Software Foundation.
+ *
+ * mini-cp is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY.
+ * See the GNU Lesser General Public License  for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with mini-cp. If not, see http://www.gnu.org/licenses/lgpl-3.0.en.html
+ *
+ * Copyright (c)  2018. by Laurent Michel, Pierre Schaus, Pascal Van Hentenryck
+ */
+
+package minicp.state;
+
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class StateLongTest extends StateManagerTest {
+
+    @ParameterizedTest
+    @MethodSource("getStateManager")
+    public void testStateLong(StateManager sm) {
+        StateLong a = sm.makeStateLong(5);
+        StateLong b = sm.makeStateLong(Long.MAX_VALUE);
+        assertEquals(5, a.value());
+        a.setValue(7);
+        assertEquals(7, a.value());
+
+        sm.saveState();
+
+        a.setValue(10);
+        assertEquals(10, a.value());
+        a.setValue(11);
+        b.setValue(3);
+        assertEquals(3, b.value());
+
+        sm.restoreState();
+        assertEquals(7, a.value());
+        assertEquals(Long.MAX_VALUE, b.value());
+    }
+
+    @ParameterizedTest
+    @MethodSource("getStateManager")
+    public void testAdd(StateManager sm) {
+        StateLong a = sm.makeStateLong(Integer.MAX_VALUE);
+        assertEquals(Integer.MAX_VALUE + 1L, a.add(1));
+
+        sm.saveState(); // level 0
+        a.add(Integer.MAX_VALUE);
+        assertEquals(2L * Integer.MAX_VALUE + 1, a.value());
+
+        sm.saveState(); // level 1
+        a.add(-5);
+        a.add(-5);
+        assertEquals(2L * Integer.MAX_VALUE - 9, a.value());
+
+        sm.restoreState();
+        assertEquals(2L * Integer.MAX_VALUE + 1, a.value());
+        sm.restoreState();
+        assertEquals(Integer.MAX_VALUE + 1L, a.value());
+    }
+}
@@ -29,6 +29,7 @@ import static minicp.util.GraphUtil.pathExists;
 import static minicp.util.GraphUtil.stronglyConnectedComponents;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @ExtendWith(GraderExtension.class)
 public class GraphUtilTest {
@@ -221,6 +222,40 @@ public class GraphUtilTest {
         }
     }
 
+    @Test
+    public void primitiveTestSCC() {
+        // the buffers are reused for graphs of increasing size
+        GraphUtil.Buffers buffers = new GraphUtil.Buffers(2);
+        Random rand = new Random(0);
+        for (int test = 0; test < 100; test++) {
+            int n = 1 + test / 10;
+            int[] offsets = new int[n + 1];
+            int[] targets = new int[n * n];
+            int k = 0;
+            for (int i = 0; i < n; i++) {
+                offsets[i] = k;
+                for (int j = 0; j < n; j++)
+                    if (rand.nextInt(100) < 20)
+                        targets[k++] = j;
+            }
+            offsets[n] = k;
+            int[] scc = new int[n];
+            int nScc = stronglyConnectedComponents(n, offsets, targets, scc, buffers);
+            for (int u = 0; u < n; u++) {
+                assertTrue(scc[u] >= 0 && scc[u] < nScc);
+                for (int e = offsets[u]; e < offsets[u + 1]; e++)
+                    assertTrue(scc[u] >= scc[targets[e]]); // reverse topological order
+                for (int v = 0; v < n; v++) {
+                    if (u != v) {
+                        boolean connected = pathExists(n, offsets, targets, u, v, buffers)
+                                && pathExists(n, offsets, targets, v, u, buffers);
+                        assertEquals(scc[u] == scc[v], connected);
+                    }
+                }
+            }
+        }
+    }
+
     private static void checkScc(Graph g, int[] scc) {
         for (int start = 0; start < g.n(); start++) {
             for (int end = 0; end < g.n(); end++) {